@@ -0,0 +1,87 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * appending to a full series, like GraphViewSeries#appendData with maxDataCount
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AppendBenchmark {
+	private static final int BATCH = 500;
+
+	/**
+	 * maxDataCount
+	 */
+	@Param({"1000", "100000", "1000000", "10000000"})
+	public int size;
+
+	@Param({"false", "true"})
+	public boolean levelOfDetail;
+
+	private SeriesData data;
+	private double nextX;
+	private final double[] batchX = new double[BATCH];
+	private final double[] batchY = new double[BATCH];
+
+	@Setup
+	public void setup() {
+		data = new SeriesData(new double[0], new double[0]);
+		data.setLevelOfDetailEnabled(levelOfDetail);
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		for (int i=0; i<size; i++) {
+			valuesX[i] = nextX++;
+			valuesY[i] = Math.sin(i * 0.001);
+		}
+		data.append(valuesX, valuesY, size);
+	}
+
+	@Benchmark
+	public int appendOne() {
+		double x = nextX++;
+		data.append(x, Math.sin(x * 0.001), size);
+		return data.getSize();
+	}
+
+	@Benchmark
+	public int appendBatch() {
+		for (int i=0; i<BATCH; i++) {
+			double x = nextX++;
+			batchX[i] = x;
+			batchY[i] = Math.sin(x * 0.001);
+		}
+		data.append(batchX, batchY, size);
+		return data.getSize();
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.text.NumberFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * label generation and formatting, like GraphView#generateHorlabels, generateVerlabels and formatLabel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LabelBenchmark {
+	/**
+	 * number of labels
+	 */
+	@Param({"5", "20"})
+	public int labels;
+
+	/**
+	 * visible x range, selects the number of fraction digits
+	 */
+	@Param({"0.05", "10", "100000"})
+	public double viewportSize;
+
+	private String[] generatedLabels;
+	private double viewportStart;
+	private int fractionDigits;
+	private final FastDecimalFormat format = new FastDecimalFormat();
+	private final NumberFormat numberFormat = NumberFormat.getNumberInstance();
+	private final CustomLabelFormatter formatter = new CustomLabelFormatter() {
+		@Override
+		public String formatLabel(double value, boolean isValueX) {
+			return format.format(value, fractionDigits);
+		}
+	};
+
+	@Setup
+	public void setup() {
+		generatedLabels = new String[labels];
+		viewportStart = 1000;
+		fractionDigits = LabelGenerator.getFractionDigits(viewportStart, viewportStart + viewportSize);
+		numberFormat.setMaximumFractionDigits(fractionDigits);
+	}
+
+	/**
+	 * same labels as the last frame, from the cache
+	 */
+	@Benchmark
+	public String[] generateStatic() {
+		LabelGenerator.generate(generatedLabels, viewportStart, viewportStart + viewportSize, true, formatter);
+		return generatedLabels;
+	}
+
+	/**
+	 * new labels for every frame, like while scrolling
+	 */
+	@Benchmark
+	public String[] generatePanning() {
+		viewportStart += viewportSize / 97;
+		LabelGenerator.generate(generatedLabels, viewportStart, viewportStart + viewportSize, false, formatter);
+		return generatedLabels;
+	}
+
+	/**
+	 * one label that is not in the cache
+	 */
+	@Benchmark
+	public String formatLabel() {
+		viewportStart += viewportSize / 97;
+		return format.format(viewportStart, fractionDigits);
+	}
+
+	/**
+	 * baseline for {@link #formatLabel()}
+	 */
+	@Benchmark
+	public String formatLabelNumberFormat() {
+		viewportStart += viewportSize / 97;
+		return numberFormat.format(viewportStart);
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * a complete line graph rendered by {@link GraphRenderer} into an image, like a report on a server
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderBenchmark {
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 480;
+
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	@Param({"false", "true"})
+	public boolean downsampling;
+
+	private GraphRenderer renderer;
+	private BufferedImage image;
+	private Graphics2D graphics;
+	private Java2DRenderBackend backend;
+
+	@Setup
+	public void setup() {
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		Random random = new Random(42);
+		for (int i=0; i<size; i++) {
+			valuesX[i] = i;
+			valuesY[i] = Math.sin(i * 0.001) * 100 + random.nextGaussian();
+		}
+		renderer = new GraphRenderer(GraphRenderer.GraphType.LINE);
+		renderer.setTitle("benchmark");
+		renderer.setBackgroundColor(0xff000000);
+		renderer.setDownsamplingEnabled(downsampling);
+		renderer.addSeries("values", valuesX, valuesY, 0xff0077cc, 3);
+		image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		graphics = image.createGraphics();
+		backend = new Java2DRenderBackend(graphics);
+	}
+
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage render() {
+		renderer.render(backend, WIDTH, HEIGHT);
+		return image;
+	}
+
+	/**
+	 * only the layout, labels and series math, without drawing
+	 */
+	@Benchmark
+	public GraphRenderer layout() {
+		renderer.render(NullRenderBackend.INSTANCE, WIDTH, HEIGHT);
+		return renderer;
+	}
+
+	/**
+	 * measures texts with a fixed size per character and draws nothing
+	 */
+	static final class NullRenderBackend implements RenderBackend {
+		static final NullRenderBackend INSTANCE = new NullRenderBackend();
+		private float textSize;
+		@Override
+		public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width) {
+		}
+		@Override
+		public void drawLines(float[] points, int count, int color, float width) {
+		}
+		@Override
+		public void fillCircle(float centerX, float centerY, float radius, int color) {
+		}
+		@Override
+		public void fillRect(float left, float top, float right, float bottom, int color) {
+		}
+		@Override
+		public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color) {
+		}
+		@Override
+		public void fillPolygon(float[] points, int count, int color) {
+		}
+		@Override
+		public void drawText(String text, float x, float y, Align align, int color) {
+		}
+		@Override
+		public void setTextSize(float textSize) {
+			this.textSize = textSize;
+		}
+		@Override
+		public float getTextSize() {
+			return textSize;
+		}
+		@Override
+		public int getTextWidth(String text) {
+			return (int) (text.length() * textSize * 0.6f);
+		}
+		@Override
+		public int getTextHeight(String text) {
+			return (int) textSize;
+		}
+	}
+}
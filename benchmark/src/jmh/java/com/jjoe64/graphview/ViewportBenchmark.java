@@ -0,0 +1,117 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * viewport slicing and y range of one series, like GraphView#_values, getMinY and getMaxY
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ViewportBenchmark {
+	/**
+	 * pixel columns of the graph, for the level of detail
+	 */
+	private static final int COLUMNS = 1080;
+
+	@Param({"1000", "100000", "1000000", "10000000"})
+	public int size;
+
+	/**
+	 * viewport width as part of all data
+	 */
+	@Param({"0.001", "0.01", "0.1", "1"})
+	public double viewportWidth;
+
+	private SeriesData data;
+	private final ValuesRange range = new ValuesRange();
+	private final SeriesData.Snapshot snapshot = new SeriesData.Snapshot();
+	private double viewportStart;
+	private double viewportSize;
+
+	@Setup
+	public void setup() {
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		Random random = new Random(42);
+		for (int i=0; i<size; i++) {
+			valuesX[i] = i;
+			valuesY[i] = Math.sin(i * 0.001) * 100 + random.nextGaussian();
+		}
+		data = new SeriesData(valuesX, valuesY);
+		data.setLevelOfDetailEnabled(true);
+		viewportSize = size * viewportWidth;
+		// centered
+		viewportStart = (size - viewportSize) / 2;
+	}
+
+	/**
+	 * visible values with min/max y
+	 */
+	@Benchmark
+	public double slice() {
+		data.slice(range, viewportStart, viewportSize, 0);
+		return range.maxY - range.minY;
+	}
+
+	/**
+	 * visible values for drawing, reduced by the level of detail pyramid
+	 */
+	@Benchmark
+	public int sliceForDrawing() {
+		data.slice(range, viewportStart, viewportSize, COLUMNS);
+		return range.to - range.from;
+	}
+
+	/**
+	 * the y range of the viewport, by scanning all values. baseline for {@link #slice()}
+	 */
+	@Benchmark
+	public double minMaxLinearScan() {
+		SeriesData.Snapshot snapshot = this.snapshot;
+		data.acquire(snapshot);
+		int from = ValuesRange.lowerBound(snapshot.valuesX, 0, snapshot.size, viewportStart);
+		int to = ValuesRange.upperBound(snapshot.valuesX, from, snapshot.size, viewportStart + viewportSize);
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		double[] valuesY = snapshot.valuesY;
+		for (int i=from; i<to; i++) {
+			if (valuesY[i] < smallest)
+				smallest = valuesY[i];
+			if (valuesY[i] > largest)
+				largest = valuesY[i];
+		}
+		SeriesData.release(snapshot);
+		return largest - smallest;
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * draws a series as bar chart to a {@link RenderBackend}.
+ * Used by BarGraphView and {@link GraphRenderer}.
+ */
+final class BarSeriesRenderer {
+	/**
+	 * reusable data object for the {@link ValueDependentColor} hook
+	 */
+	static private final class BarValue implements GraphViewDataInterface {
+		double valueX;
+		double valueY;
+		@Override
+		public double getX() {
+			return valueX;
+		}
+		@Override
+		public double getY() {
+			return valueY;
+		}
+	}
+
+	private final BarValue barValue = new BarValue();
+	boolean drawValuesOnTop;
+	/**
+	 * white
+	 */
+	int valuesOnTopColor = 0xffffffff;
+
+	/**
+	 * draws one bar per value from (inclusive) to to (exclusive)
+	 * @param valueDependentColor null = every bar has the color
+	 * @param formatter formats the values on top of the bars
+	 */
+	void draw(RenderBackend backend, double[] valuesX, double[] valuesY, int from, int to, float graphwidth, float graphheight,
+			float border, double minY, double diffY, float horstart, int color, ValueDependentColor valueDependentColor,
+			CustomLabelFormatter formatter) {
+		float colwidth = graphwidth / (to - from);
+
+		float offset = 0;
+
+		// draw data
+		for (int i = 0; i < to - from; i++) {
+			float valY = (float) (valuesY[from + i] - minY);
+			float ratY = (float) (valY / diffY);
+			float y = graphheight * ratY;
+
+			// hook for value dependent color
+			// the data object is reused, so no object is created per bar
+			int barColor = color;
+			if (valueDependentColor != null) {
+				barValue.valueX = valuesX[from + i];
+				barValue.valueY = valuesY[from + i];
+				barColor = valueDependentColor.get(barValue);
+			}
+
+			float left = (i * colwidth) + horstart -offset;
+			float top = (border - y) + graphheight;
+			float right = ((i * colwidth) + horstart) + (colwidth - 1) -offset;
+			backend.fillRect(left, top, right, graphheight + border - 1, barColor);
+
+			// -----Set values on top of graph---------
+			if (drawValuesOnTop) {
+				top -= 4;
+				if (top<=border) top+=border+4;
+				backend.drawText(formatter.formatLabel(valuesY[from + i], false), (left+right)/2, top, RenderBackend.Align.CENTER, valuesOnTopColor);
+			}
+		}
+	}
+}
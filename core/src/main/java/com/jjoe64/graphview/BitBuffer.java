@@ -0,0 +1,123 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * a growable buffer of bits, written and read most significant bit first.
+ * Not thread safe.
+ */
+final class BitBuffer {
+	byte[] bytes;
+	/**
+	 * number of written bits
+	 */
+	int length;
+	/**
+	 * next bit to read
+	 */
+	int position;
+
+	BitBuffer(int capacity) {
+		bytes = new byte[capacity];
+	}
+
+	/**
+	 * @return number of bytes used by the written bits
+	 */
+	int getByteLength() {
+		return (length + 7) >>> 3;
+	}
+
+	/**
+	 * removes all bits
+	 */
+	void clear() {
+		int used = getByteLength();
+		for (int i=0; i<used; i++) {
+			bytes[i] = 0;
+		}
+		length = 0;
+		position = 0;
+	}
+
+	/**
+	 * prepares the buffer to read bytes that were written to bytes[0 .. byteLength-1]
+	 */
+	void reset(int byteLength) {
+		length = byteLength << 3;
+		position = 0;
+	}
+
+	/**
+	 * makes sure that bytes can hold byteLength bytes, the content is kept
+	 */
+	void ensureCapacity(int byteLength) {
+		if (bytes.length < byteLength) {
+			byte[] newBytes = new byte[Math.max(byteLength, bytes.length * 2)];
+			System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
+			bytes = newBytes;
+		}
+	}
+
+	/**
+	 * @param value the lowest bits are written
+	 * @param bits 1 .. 64
+	 */
+	void write(long value, int bits) {
+		ensureCapacity(((length + bits) >>> 3) + 1);
+		while (bits > 0) {
+			int free = 8 - (length & 7);
+			int n = Math.min(free, bits);
+			int chunk = (int) (value >>> (bits - n)) & ((1 << n) - 1);
+			bytes[length >>> 3] |= chunk << (free - n);
+			bits -= n;
+			length += n;
+		}
+	}
+
+	void writeBit(boolean bit) {
+		write(bit ? 1 : 0, 1);
+	}
+
+	/**
+	 * @param bits 1 .. 64
+	 * @return the bits in the lowest bits
+	 */
+	long read(int bits) {
+		if (position + bits > length) {
+			throw new IllegalStateException("end of the bits");
+		}
+		long value = 0;
+		while (bits > 0) {
+			int available = 8 - (position & 7);
+			int n = Math.min(available, bits);
+			int b = bytes[position >>> 3] & 0xff;
+			value = (value << n) | ((b >>> (available - n)) & ((1 << n) - 1));
+			bits -= n;
+			position += n;
+		}
+		return value;
+	}
+
+	boolean readBit() {
+		return read(1) != 0;
+	}
+}
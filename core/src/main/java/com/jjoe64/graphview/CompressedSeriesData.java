@@ -0,0 +1,541 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * the data of a series, compressed in blocks of {@link SeriesCodec#BLOCK_SIZE} values
+ * with {@link SeriesCodec}. Slowly changing values need a few bytes instead of 16 bytes per value.
+ * The newest values are kept uncompressed until a block is full.
+ * Every block knows its first, last, smallest and largest value, so the y range and
+ * zoomed out viewports don't decode any block. Otherwise only the blocks in the viewport are
+ * decoded, the last {@link #CACHE_SIZE} decoded blocks are cached per thread.
+ *
+ * Like {@link SeriesData}, the graph reads an immutable state without locking, new values
+ * are written after the visible values. Every thread that reads has its own cache, so the
+ * render thread and the UI thread don't wait for each other.
+ */
+final class CompressedSeriesData extends SeriesStore {
+	private static final int BLOCK_SHIFT = 10;
+	private static final int BLOCK_SIZE = SeriesCodec.BLOCK_SIZE;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	/**
+	 * number of decoded blocks that are kept per thread, 16 KB each
+	 */
+	static final int CACHE_SIZE = 32;
+
+	/**
+	 * a compressed block of BLOCK_SIZE values
+	 */
+	static final class Block {
+		final byte[] bytes;
+		final double firstX, firstY;
+		final double lastX, lastY;
+		final double minX, minY;
+		final double maxX, maxY;
+		/**
+		 * indices of the smallest and largest value in the block
+		 */
+		final int min, max;
+
+		Block(byte[] bytes, double[] valuesX, double[] valuesY, int min, int max) {
+			this.bytes = bytes;
+			firstX = valuesX[0];
+			firstY = valuesY[0];
+			lastX = valuesX[BLOCK_SIZE-1];
+			lastY = valuesY[BLOCK_SIZE-1];
+			minX = valuesX[min];
+			minY = valuesY[min];
+			maxX = valuesX[max];
+			maxY = valuesY[max];
+			this.min = min;
+			this.max = max;
+		}
+	}
+
+	/**
+	 * the values first .. end-1. Values before tailStart are in blocks, the
+	 * block of value i is blocks[(i >> BLOCK_SHIFT) - blockShift].
+	 * The others are uncompressed in tailX/tailY.
+	 */
+	static final class State {
+		final Block[] blocks;
+		final long blockShift;
+		final long tailStart;
+		final double[] tailX;
+		final double[] tailY;
+		final long first;
+		final long end;
+
+		State(Block[] blocks, long blockShift, long tailStart, double[] tailX, double[] tailY, long first, long end) {
+			this.blocks = blocks;
+			this.blockShift = blockShift;
+			this.tailStart = tailStart;
+			this.tailX = tailX;
+			this.tailY = tailY;
+			this.first = first;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * the last decoded blocks of a thread
+	 */
+	private static final class BlockCache {
+		final Block[] blocks = new Block[CACHE_SIZE];
+		final double[][] valuesX = new double[CACHE_SIZE][];
+		final double[][] valuesY = new double[CACHE_SIZE][];
+		final long[] used = new long[CACHE_SIZE];
+		final BitBuffer bits = new BitBuffer(0);
+		long clock;
+		int last;
+
+		/**
+		 * @return the slot of the decoded block
+		 */
+		int get(Block block) {
+			clock++;
+			if (blocks[last] == block) {
+				used[last] = clock;
+				return last;
+			}
+			int oldest = 0;
+			for (int i=0; i<CACHE_SIZE; i++) {
+				if (blocks[i] == block) {
+					used[i] = clock;
+					last = i;
+					return i;
+				}
+				if (used[i] < used[oldest]) {
+					oldest = i;
+				}
+			}
+			if (valuesX[oldest] == null) {
+				valuesX[oldest] = new double[BLOCK_SIZE];
+				valuesY[oldest] = new double[BLOCK_SIZE];
+			}
+			bits.bytes = block.bytes;
+			bits.reset(block.bytes.length);
+			SeriesCodec.decode(bits, BLOCK_SIZE, valuesX[oldest], valuesY[oldest], 0);
+			blocks[oldest] = block;
+			used[oldest] = clock;
+			last = oldest;
+			return oldest;
+		}
+
+		double x(State s, long index) {
+			if (index >= s.tailStart) {
+				return s.tailX[(int) (index - s.tailStart)];
+			}
+			return valuesX[get(block(s, index >> BLOCK_SHIFT))][(int) index & BLOCK_MASK];
+		}
+
+		double y(State s, long index) {
+			if (index >= s.tailStart) {
+				return s.tailY[(int) (index - s.tailStart)];
+			}
+			return valuesY[get(block(s, index >> BLOCK_SHIFT))][(int) index & BLOCK_MASK];
+		}
+	}
+
+	volatile State state;
+	private final ThreadLocal<BlockCache> caches = new ThreadLocal<BlockCache>() {
+		@Override
+		protected BlockCache initialValue() {
+			return new BlockCache();
+		}
+	};
+
+	// the state that is written, guarded by this
+	private final BitBuffer encoder = new BitBuffer(BLOCK_SIZE * 4);
+	private Block[] blocks;
+	private long blockShift;
+	private long tailStart;
+	private double[] tailX;
+	private double[] tailY;
+	private long first;
+	private long end;
+
+	/**
+	 * @param valuesX sorted ascending, the values are copied
+	 * @param valuesY same length as valuesX
+	 */
+	CompressedSeriesData(double[] valuesX, double[] valuesY) {
+		setValues(valuesX, valuesY);
+	}
+
+	@Override
+	int getSize() {
+		State current = state;
+		return (int) (current.end - current.first);
+	}
+
+	@Override
+	double getX(int index) {
+		State current = state;
+		return caches.get().x(current, current.first + index);
+	}
+
+	@Override
+	double getY(int index) {
+		State current = state;
+		return caches.get().y(current, current.first + index);
+	}
+
+	@Override
+	double getFirstX() {
+		State current = state;
+		if (current.first == current.end) {
+			return Double.NaN;
+		}
+		return caches.get().x(current, current.first);
+	}
+
+	@Override
+	double getLastX() {
+		State current = state;
+		return current.first == current.end ? Double.NaN : current.tailX[(int) (current.end - 1 - current.tailStart)];
+	}
+
+	@Override
+	synchronized void append(double valueX, double valueY, int maxDataCount) {
+		write(valueX, valueY);
+		publish(maxDataCount);
+	}
+
+	@Override
+	synchronized void append(double[] valuesX, double[] valuesY, int maxDataCount) {
+		// only the values that stay visible
+		for (int i=valuesX.length-Math.min(valuesX.length, maxDataCount); i<valuesX.length; i++) {
+			write(valuesX[i], valuesY[i]);
+		}
+		publish(maxDataCount);
+	}
+
+	/**
+	 * the values are compressed, the arrays are not used afterwards
+	 */
+	@Override
+	synchronized void setValues(double[] valuesX, double[] valuesY) {
+		if (valuesX.length != valuesY.length) {
+			throw new IllegalArgumentException("valuesX and valuesY must have the same length");
+		}
+		// the graph may still read the old state
+		blocks = new Block[Math.max(16, valuesX.length / BLOCK_SIZE * 2)];
+		blockShift = 0;
+		tailStart = 0;
+		tailX = new double[BLOCK_SIZE];
+		tailY = new double[BLOCK_SIZE];
+		first = 0;
+		end = 0;
+		for (int i=0; i<valuesX.length; i++) {
+			write(valuesX[i], valuesY[i]);
+		}
+		publish(Integer.MAX_VALUE);
+	}
+
+	private void write(double valueX, double valueY) {
+		if (end - tailStart == BLOCK_SIZE) {
+			// the tail is full
+			long blockEnd = tailStart >> BLOCK_SHIFT;
+			if (blockEnd - blockShift == blocks.length) {
+				// copy the visible blocks to a new array with free space
+				long liveStart = Math.min(first >> BLOCK_SHIFT, blockEnd);
+				int live = (int) (blockEnd - liveStart);
+				Block[] newBlocks = new Block[Math.max(16, live * 2 + 1)];
+				System.arraycopy(blocks, (int) (liveStart - blockShift), newBlocks, 0, live);
+				blocks = newBlocks;
+				blockShift = liveStart;
+			}
+			blocks[(int) (blockEnd - blockShift)] = compress();
+			tailStart = end;
+			// the old tail is still read by the graph
+			tailX = new double[BLOCK_SIZE];
+			tailY = new double[BLOCK_SIZE];
+		}
+		tailX[(int) (end - tailStart)] = valueX;
+		tailY[(int) (end - tailStart)] = valueY;
+		end++;
+	}
+
+	private Block compress() {
+		encoder.clear();
+		SeriesCodec.encode(tailX, tailY, 0, BLOCK_SIZE, encoder);
+		byte[] bytes = new byte[encoder.getByteLength()];
+		System.arraycopy(encoder.bytes, 0, bytes, 0, bytes.length);
+		int min = 0;
+		int max = 0;
+		for (int i=1; i<BLOCK_SIZE; i++) {
+			if (tailY[i] < tailY[min]) min = i;
+			if (tailY[i] > tailY[max]) max = i;
+		}
+		return new Block(bytes, tailX, tailY, min, max);
+	}
+
+	/**
+	 * makes the written values visible
+	 */
+	private void publish(int maxDataCount) {
+		first = Math.max(first, end - maxDataCount);
+		state = new State(blocks, blockShift, tailStart, tailX, tailY, first, end);
+	}
+
+	/**
+	 * @return number of bytes of the compressed blocks
+	 */
+	long getCompressedSize() {
+		State current = state;
+		long size = 0;
+		for (long b=current.first >> BLOCK_SHIFT; b<current.tailStart >> BLOCK_SHIFT; b++) {
+			size += block(current, b).bytes.length;
+		}
+		return size;
+	}
+
+	/**
+	 * the values are always aggregated per column
+	 */
+	@Override
+	boolean isLevelOfDetailEnabled() {
+		return true;
+	}
+
+	@Override
+	void setLevelOfDetailEnabled(boolean enabled) {
+	}
+
+	private static Block block(State s, long block) {
+		return s.blocks[(int) (block - s.blockShift)];
+	}
+
+	@Override
+	void slice(ValuesRange range, double viewportStart, double viewportSize, int columns) {
+		State s = state;
+		BlockCache cache = caches.get();
+		long from;
+		long to;
+		if (viewportStart == 0 && viewportSize == 0) {
+			// all data
+			from = s.first;
+			to = s.end;
+		} else {
+			// viewport
+			from = search(cache, s, viewportStart, false);
+			if (from > s.first) {
+				from--; // one before, for nice scrolling
+			}
+			to = search(cache, s, viewportStart+viewportSize, true);
+			if (to < s.end) {
+				to++; // one more for nice scrolling
+			}
+		}
+		range.visited = (int) (to - from);
+		setMinMax(cache, range, s, from, to);
+
+		range.ensureBuffers(columns > 0 ? (columns + 4) * 4 : 0);
+		range.valuesX = range.levelOfDetailX;
+		range.valuesY = range.levelOfDetailY;
+		range.from = 0;
+		if (columns <= 0) {
+			// only the y range is needed
+			range.to = 0;
+		} else if (to - from <= columns * 4) {
+			// every value
+			int n = 0;
+			for (long i=from; i<to; i++) {
+				range.valuesX[n] = cache.x(s, i);
+				range.valuesY[n++] = cache.y(s, i);
+			}
+			range.to = n;
+		} else {
+			range.to = aggregate(cache, s, from, to, columns, range.valuesX, range.valuesY);
+		}
+	}
+
+	/**
+	 * decodes at most one block
+	 * @param upper false: the first value with x >= value, true: the first value with x > value
+	 * @return index of the value, or end
+	 */
+	private static long search(BlockCache cache, State s, double value, boolean upper) {
+		long blockEnd = s.tailStart >> BLOCK_SHIFT;
+		// first block whose last value is not before the searched value
+		long low = s.first >> BLOCK_SHIFT;
+		long high = blockEnd;
+		while (low < high) {
+			long mid = (low + high) >>> 1;
+			double lastX = block(s, mid).lastX;
+			if (upper ? lastX <= value : lastX < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		double[] valuesX;
+		long base;
+		int to;
+		if (low < blockEnd) {
+			valuesX = cache.valuesX[cache.get(block(s, low))];
+			base = low << BLOCK_SHIFT;
+			to = BLOCK_SIZE;
+		} else {
+			valuesX = s.tailX;
+			base = s.tailStart;
+			to = (int) (s.end - base);
+		}
+		int from = (int) (Math.max(s.first, base) - base);
+		return base + (upper ? ValuesRange.upperBound(valuesX, from, to, value) : ValuesRange.lowerBound(valuesX, from, to, value));
+	}
+
+	/**
+	 * smallest and largest y value of the values from .. to-1, the complete blocks from the summaries
+	 */
+	private static void setMinMax(BlockCache cache, ValuesRange range, State s, long from, long to) {
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		long i = from;
+		while (i < to) {
+			long blockStart = i & ~(long) BLOCK_MASK;
+			long blockTo = blockStart + BLOCK_SIZE;
+			if (i < s.tailStart && i == blockStart && blockTo <= to) {
+				Block block = block(s, i >> BLOCK_SHIFT);
+				if (block.minY < smallest) smallest = block.minY;
+				if (block.maxY > largest) largest = block.maxY;
+				i = blockTo;
+			} else {
+				long stop = i < s.tailStart ? Math.min(to, blockTo) : to;
+				for (; i<stop; i++) {
+					double y = cache.y(s, i);
+					if (y < smallest) smallest = y;
+					if (y > largest) largest = y;
+				}
+			}
+		}
+		range.minY = smallest;
+		range.maxY = largest;
+	}
+
+	/**
+	 * writes first, min, max and last value of groups of values, about 1 group per column.
+	 * Groups of complete blocks are aggregated from the block summaries, without decoding.
+	 * @return number of values written, at most (columns + 4) * 4
+	 */
+	private static int aggregate(BlockCache cache, State s, long from, long to, int columns, double[] outX, double[] outY) {
+		long groupSize = (to - from + columns - 1) / columns;
+		long blockFrom = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+		long blockTo = Math.min(to, s.tailStart) >> BLOCK_SHIFT;
+		int n = 0;
+		if (groupSize < BLOCK_SIZE || blockFrom >= blockTo) {
+			for (long start=from; start<to; start+=groupSize) {
+				n = writeValues(cache, s, start, Math.min(to, start + groupSize), outX, outY, n);
+			}
+			return n;
+		}
+		// groups of complete blocks, the values before and after them are aggregated directly
+		long blocksPerGroup = (groupSize + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+		n = writeValues(cache, s, from, blockFrom << BLOCK_SHIFT, outX, outY, n);
+		for (long b=blockFrom; b<blockTo; b+=blocksPerGroup) {
+			n = writeBlocks(s, b, Math.min(blockTo, b + blocksPerGroup), outX, outY, n);
+		}
+		for (long start=blockTo << BLOCK_SHIFT; start<to; start+=groupSize) {
+			n = writeValues(cache, s, start, Math.min(to, start + groupSize), outX, outY, n);
+		}
+		return n;
+	}
+
+	/**
+	 * aggregates the values from .. to-1 to one group
+	 */
+	private static int writeValues(BlockCache cache, State s, long from, long to, double[] outX, double[] outY, int n) {
+		if (from >= to) {
+			return n;
+		}
+		long min = from;
+		long max = from;
+		double minY = cache.y(s, from);
+		double maxY = minY;
+		for (long i=from+1; i<to; i++) {
+			double y = cache.y(s, i);
+			if (y < minY) {
+				minY = y;
+				min = i;
+			}
+			if (y > maxY) {
+				maxY = y;
+				max = i;
+			}
+		}
+		return writeGroup(from, cache.x(s, from), cache.y(s, from), min, cache.x(s, min), minY, max, cache.x(s, max), maxY,
+				to - 1, cache.x(s, to - 1), cache.y(s, to - 1), outX, outY, n);
+	}
+
+	/**
+	 * aggregates the complete blocks blockFrom .. blockTo-1 to one group
+	 */
+	private static int writeBlocks(State s, long blockFrom, long blockTo, double[] outX, double[] outY, int n) {
+		Block min = block(s, blockFrom);
+		Block max = min;
+		long minBlock = blockFrom;
+		long maxBlock = blockFrom;
+		for (long b=blockFrom+1; b<blockTo; b++) {
+			Block block = block(s, b);
+			if (block.minY < min.minY) {
+				min = block;
+				minBlock = b;
+			}
+			if (block.maxY > max.maxY) {
+				max = block;
+				maxBlock = b;
+			}
+		}
+		Block first = block(s, blockFrom);
+		Block last = block(s, blockTo - 1);
+		return writeGroup(blockFrom << BLOCK_SHIFT, first.firstX, first.firstY,
+				(minBlock << BLOCK_SHIFT) + min.min, min.minX, min.minY,
+				(maxBlock << BLOCK_SHIFT) + max.max, max.maxX, max.maxY,
+				(blockTo << BLOCK_SHIFT) - 1, last.lastX, last.lastY, outX, outY, n);
+	}
+
+	/**
+	 * writes the first, smallest, largest and last value of a group in their original order, without duplicates,
+	 * like {@link Decimation#writeGroup(double[], double[], int, int, int, int, double[], double[], int)}
+	 */
+	private static int writeGroup(long first, double firstX, double firstY, long min, double minX, double minY,
+			long max, double maxX, double maxY, long last, double lastX, double lastY, double[] outX, double[] outY, int n) {
+		outX[n] = firstX;
+		outY[n++] = firstY;
+		boolean minFirst = min <= max;
+		long low = minFirst ? min : max;
+		long high = minFirst ? max : min;
+		if (low != first && low != last) {
+			outX[n] = minFirst ? minX : maxX;
+			outY[n++] = minFirst ? minY : maxY;
+		}
+		if (high != low && high != last) {
+			outX[n] = minFirst ? maxX : minX;
+			outY[n++] = minFirst ? maxY : minY;
+		}
+		if (last != first) {
+			outX[n] = lastX;
+			outY[n++] = lastY;
+		}
+		return n;
+	}
+}
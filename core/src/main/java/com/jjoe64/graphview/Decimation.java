@@ -0,0 +1,181 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * algorithms to reduce the number of values before they are drawn.
+ * The results are written to arrays of the caller, so no memory is allocated.
+ */
+final class Decimation {
+	private Decimation() {
+	}
+
+	/**
+	 * Largest-Triangle-Three-Buckets downsampling.
+	 * The first and the last value are kept, the values between are split into
+	 * threshold-2 buckets. Of every bucket the value that forms the largest triangle
+	 * with the previous selected value and the average of the next bucket is kept.
+	 * This keeps the visual shape and the extremes.
+	 *
+	 * @param valuesX x values, sorted
+	 * @param valuesY y values
+	 * @param from first index (inclusive)
+	 * @param to last index (exclusive)
+	 * @param threshold number of values to keep, at least 3
+	 * @param outX receives the x values, length >= threshold
+	 * @param outY receives the y values, length >= threshold
+	 * @return number of values written to outX/outY
+	 */
+	static int lttb(double[] valuesX, double[] valuesY, int from, int to, int threshold, double[] outX, double[] outY) {
+		int count = to - from;
+		if (threshold >= count || threshold < 3) {
+			// nothing to do
+			System.arraycopy(valuesX, from, outX, 0, count);
+			System.arraycopy(valuesY, from, outY, 0, count);
+			return count;
+		}
+
+		// bucket size, without the first and the last value
+		double every = (double) (count - 2) / (threshold - 2);
+		int selected = from;
+		int n = 0;
+		outX[n] = valuesX[selected];
+		outY[n++] = valuesY[selected];
+
+		for (int i=0; i<threshold-2; i++) {
+			// average of the next bucket
+			int avgFrom = from + (int) ((i + 1) * every) + 1;
+			int avgTo = Math.min(from + (int) ((i + 2) * every) + 1, to);
+			double avgX = 0;
+			double avgY = 0;
+			for (int j=avgFrom; j<avgTo; j++) {
+				avgX += valuesX[j];
+				avgY += valuesY[j];
+			}
+			avgX /= avgTo - avgFrom;
+			avgY /= avgTo - avgFrom;
+
+			// value of the current bucket with the largest triangle
+			int rangeFrom = from + (int) (i * every) + 1;
+			int rangeTo = from + (int) ((i + 1) * every) + 1;
+			double selectedX = valuesX[selected];
+			double selectedY = valuesY[selected];
+			double maxArea = -1;
+			int next = rangeFrom;
+			for (int j=rangeFrom; j<rangeTo; j++) {
+				// twice the area, the factor doesn't matter for the comparison
+				double area = Math.abs((selectedX - avgX) * (valuesY[j] - selectedY)
+						- (selectedX - valuesX[j]) * (avgY - selectedY));
+				if (area > maxArea) {
+					maxArea = area;
+					next = j;
+				}
+			}
+			selected = next;
+			outX[n] = valuesX[selected];
+			outY[n++] = valuesY[selected];
+		}
+
+		outX[n] = valuesX[to - 1];
+		outY[n++] = valuesY[to - 1];
+		return n;
+	}
+
+	/**
+	 * M4 aggregation.
+	 * The values are grouped by the pixel column they are drawn to. Of every column
+	 * the first, the last, the smallest and the largest value are kept, in their
+	 * original order. The line drawn from the result covers the same pixels as the
+	 * line drawn from all values, so spikes never disappear.
+	 * Values left or right of the graph get a column of their own.
+	 *
+	 * @param valuesX x values, sorted
+	 * @param valuesY y values
+	 * @param from first index (inclusive)
+	 * @param to last index (exclusive)
+	 * @param minX x value of the left border
+	 * @param diffX x range of the graph
+	 * @param columns number of pixel columns
+	 * @param outX receives the x values, length >= 4*(columns+2)
+	 * @param outY receives the y values, length >= 4*(columns+2)
+	 * @return number of values written to outX/outY
+	 */
+	static int m4(double[] valuesX, double[] valuesY, int from, int to, double minX, double diffX, int columns, double[] outX, double[] outY) {
+		int n = 0;
+		int i = from;
+		while (i < to) {
+			int column = column(valuesX[i], minX, diffX, columns);
+			int first = i;
+			int min = i;
+			int max = i;
+			int last = i;
+			for (i++; i < to && column(valuesX[i], minX, diffX, columns) == column; i++) {
+				if (valuesY[i] < valuesY[min]) {
+					min = i;
+				}
+				if (valuesY[i] > valuesY[max]) {
+					max = i;
+				}
+				last = i;
+			}
+
+			n = writeGroup(valuesX, valuesY, first, min, max, last, outX, outY, n);
+		}
+		return n;
+	}
+
+	/**
+	 * @return pixel column of the x value, -1 if left of the graph, columns if right of the graph
+	 */
+	private static int column(double valueX, double minX, double diffX, int columns) {
+		double column = (valueX - minX) / diffX * columns;
+		if (column < 0) {
+			return -1;
+		}
+		if (column >= columns) {
+			return columns;
+		}
+		return (int) column;
+	}
+
+	/**
+	 * writes the first, smallest, largest and last value of a group in their original order, without duplicates
+	 * @return new number of values in outX/outY
+	 */
+	static int writeGroup(double[] valuesX, double[] valuesY, int first, int min, int max, int last, double[] outX, double[] outY, int n) {
+		int low = Math.min(min, max);
+		int high = Math.max(min, max);
+		outX[n] = valuesX[first];
+		outY[n++] = valuesY[first];
+		if (low != first && low != last) {
+			outX[n] = valuesX[low];
+			outY[n++] = valuesY[low];
+		}
+		if (high != low && high != last) {
+			outX[n] = valuesX[high];
+			outY[n++] = valuesY[high];
+		}
+		if (last != first) {
+			outX[n] = valuesX[last];
+			outY[n++] = valuesY[last];
+		}
+		return n;
+	}
+}
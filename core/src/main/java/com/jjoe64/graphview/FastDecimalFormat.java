@@ -0,0 +1,155 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+
+/**
+ * formats numbers for the labels like {@link NumberFormat#getNumberInstance()}
+ * with a maximum number of fraction digits, but without creating objects:
+ * the digits are written to a reused char buffer, and the recently formatted
+ * labels are kept in a cache, so the same value is only converted once.
+ *
+ * The cache is set associative: a value can only be stored in one set of
+ * {@link #WAYS} entries, the least recently used entry of the set is replaced.
+ *
+ * Not thread safe.
+ */
+final class FastDecimalFormat {
+	static final int MAX_FRACTION_DIGITS = 9;
+	private static final int SET_BITS = 7;
+	private static final int SETS = 1 << SET_BITS;
+	private static final int WAYS = 4;
+	private static final long[] POW10 = new long[MAX_FRACTION_DIGITS + 1];
+	static {
+		POW10[0] = 1;
+		for (int i=1; i<POW10.length; i++) {
+			POW10[i] = POW10[i-1] * 10;
+		}
+	}
+	/**
+	 * larger scaled values could be rounded differently than by NumberFormat
+	 */
+	private static final double MAX_SCALED = 1e13;
+
+	private final char decimalSeparator;
+	private final char groupingSeparator;
+	private final char minusSign;
+	private final char[] buffer = new char[32];
+	private NumberFormat fallbackFormat;
+
+	private final long[] cacheValues = new long[SETS * WAYS];
+	private final int[] cacheFractionDigits = new int[SETS * WAYS];
+	private final String[] cacheLabels = new String[SETS * WAYS];
+	private final long[] cacheLastUse = new long[SETS * WAYS];
+	private long useCounter;
+
+	FastDecimalFormat() {
+		DecimalFormatSymbols symbols = new DecimalFormatSymbols();
+		decimalSeparator = symbols.getDecimalSeparator();
+		groupingSeparator = symbols.getGroupingSeparator();
+		minusSign = symbols.getMinusSign();
+	}
+
+	/**
+	 * @param value
+	 * @param maxFractionDigits 0 .. {@link #MAX_FRACTION_DIGITS}, trailing zeros are not shown
+	 * @return the formatted value, with grouping separators
+	 */
+	String format(double value, int maxFractionDigits) {
+		long bits = Double.doubleToLongBits(value);
+		// the low bits of round values are all zero, the multiplication moves
+		// every bit into the high bits, that select the set
+		long hash = (bits + maxFractionDigits) * 0x9E3779B97F4A7C15L;
+		int set = (int) (hash >>> (64 - SET_BITS));
+		int start = set * WAYS;
+		int oldest = start;
+		useCounter++;
+		for (int i=start; i<start+WAYS; i++) {
+			if (cacheLabels[i] != null && cacheValues[i] == bits && cacheFractionDigits[i] == maxFractionDigits) {
+				cacheLastUse[i] = useCounter;
+				return cacheLabels[i];
+			}
+			if (cacheLastUse[i] < cacheLastUse[oldest]) {
+				oldest = i;
+			}
+		}
+		String label = formatUncached(value, maxFractionDigits);
+		cacheValues[oldest] = bits;
+		cacheFractionDigits[oldest] = maxFractionDigits;
+		cacheLabels[oldest] = label;
+		cacheLastUse[oldest] = useCounter;
+		return label;
+	}
+
+	private String formatUncached(double value, int maxFractionDigits) {
+		double scaledValue = Math.abs(value) * POW10[maxFractionDigits];
+		if (Double.isNaN(value) || !(scaledValue < MAX_SCALED)) {
+			return formatFallback(value, maxFractionDigits);
+		}
+		if (Math.abs(scaledValue - Math.floor(scaledValue) - 0.5) <= Math.ulp(scaledValue) * 4) {
+			// almost exactly between two results, the scaling error could round to the wrong one
+			return formatFallback(value, maxFractionDigits);
+		}
+		long scaled = (long) Math.rint(scaledValue);
+		int fractionDigits = maxFractionDigits;
+		while (fractionDigits > 0 && scaled % 10 == 0) {
+			scaled /= 10;
+			fractionDigits--;
+		}
+
+		// written from right to left
+		int pos = buffer.length;
+		for (int i=0; i<fractionDigits; i++) {
+			buffer[--pos] = (char) ('0' + scaled % 10);
+			scaled /= 10;
+		}
+		if (fractionDigits > 0) {
+			buffer[--pos] = decimalSeparator;
+		}
+		int integerDigits = 0;
+		do {
+			if (integerDigits > 0 && integerDigits % 3 == 0) {
+				buffer[--pos] = groupingSeparator;
+			}
+			buffer[--pos] = (char) ('0' + scaled % 10);
+			scaled /= 10;
+			integerDigits++;
+		} while (scaled > 0);
+		if (Double.doubleToRawLongBits(value) < 0) {
+			// also for -0 and negative values that are rounded to 0, like NumberFormat
+			buffer[--pos] = minusSign;
+		}
+		return new String(buffer, pos, buffer.length - pos);
+	}
+
+	/**
+	 * for values that are too large for the buffer, NaN and infinity
+	 */
+	private String formatFallback(double value, int maxFractionDigits) {
+		if (fallbackFormat == null) {
+			fallbackFormat = NumberFormat.getNumberInstance();
+		}
+		fallbackFormat.setMaximumFractionDigits(maxFractionDigits);
+		return fallbackFormat.format(value);
+	}
+}
@@ -0,0 +1,598 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * the layout of a graph, used by GraphView and by {@link GraphRenderer}:
+ * the x and y range of the viewport, the size, format and values of the labels,
+ * the position of the graph area, and the grid, labels, title and legend drawn
+ * to a {@link RenderBackend}. The series are drawn into the graph area by the series renderers.
+ * Not thread safe, the GraphView uses it under its draw lock and draws a frame
+ * with a copy, see {@link #copyFrom(GraphLayout)}.
+ */
+final class GraphLayout {
+	static final float BORDER = 20;
+
+	static final int LEGEND_TOP = 0;
+	static final int LEGEND_MIDDLE = 1;
+	static final int LEGEND_BOTTOM = 2;
+
+	/**
+	 * the series of the graph, for the x and y range and the legend
+	 */
+	interface SeriesSource {
+		int getSeriesCount();
+
+		SeriesStore getSeriesData(int index);
+
+		/**
+		 * @return ARGB color of the legend
+		 */
+		int getSeriesColor(int index);
+
+		/**
+		 * @return text of the legend, or null
+		 */
+		String getSeriesDescription(int index);
+	}
+
+	private final SeriesSource source;
+	private final ValuesRange range = new ValuesRange();
+
+	double viewportStart;
+	/**
+	 * 0 = all data
+	 */
+	double viewportSize;
+	boolean manualYAxis;
+	boolean manualMaxY;
+	boolean manualMinY;
+	double manualMaxYValue;
+	double manualMinYValue;
+
+	String title = "";
+	float textSize = 30f;
+	int gridColor = 0xff444444;
+	int horizontalLabelsColor = 0xffffffff;
+	int verticalLabelsColor = 0xffffffff;
+	/**
+	 * 0 = auto
+	 */
+	int verticalLabelsWidth;
+	/**
+	 * 0 = auto
+	 */
+	int numHorizontalLabels;
+	/**
+	 * 0 = auto
+	 */
+	int numVerticalLabels;
+	boolean showHorizontalLabels = true;
+	/**
+	 * lines at the vertical labels
+	 */
+	boolean horizontalGridLines = true;
+	/**
+	 * lines at the horizontal labels
+	 */
+	boolean verticalGridLines = true;
+	boolean showLegend;
+	/**
+	 * {@link #LEGEND_TOP}, {@link #LEGEND_MIDDLE} or {@link #LEGEND_BOTTOM}
+	 */
+	int legendAlign = LEGEND_MIDDLE;
+	int legendWidth = 120;
+	int legendBorder = 10;
+	int legendSpacing = 10;
+	int legendMarginBottom;
+
+	CustomLabelFormatter customLabelFormatter;
+	/**
+	 * formats the generated labels, {@link #formatLabel(double, boolean)} by default
+	 */
+	CustomLabelFormatter labelFormatter = new CustomLabelFormatter() {
+		@Override
+		public String formatLabel(double value, boolean isValueX) {
+			return GraphLayout.this.formatLabel(value, isValueX);
+		}
+	};
+	/**
+	 * labels that were set, null = generated
+	 */
+	private String[] staticHorlabels;
+	private String[] staticVerlabels;
+	/**
+	 * the generated labels, null = have to be generated
+	 */
+	private String[] horlabels;
+	private String[] verlabels;
+	/**
+	 * the arrays of the generated labels are reused if the number of labels doesn't change
+	 */
+	private String[] generatedHorlabels;
+	private String[] generatedVerlabels;
+	/**
+	 * fraction digits of the y (0) and x (1) labels, -1 = not yet calculated
+	 */
+	private final int[] labelFractionDigits = {-1, -1};
+	private final FastDecimalFormat labelFormat = new FastDecimalFormat();
+	private boolean measured;
+	int labelTextHeight;
+	int horLabelTextWidth;
+	int verLabelTextWidth;
+
+	/**
+	 * x and y range of the graph, see {@link #setRange(double, double, double, double)}
+	 */
+	double minX;
+	double maxX;
+	double minY;
+	double maxY;
+	/**
+	 * the y range that is drawn, never empty
+	 */
+	double rangeMinY;
+	double rangeMaxY;
+
+	/**
+	 * geometry of the graph area, see {@link #layout(int, int, float)}
+	 */
+	float border;
+	float horstart;
+	/**
+	 * right border of the graph area
+	 */
+	float width;
+	float height;
+	float graphwidth;
+	float graphheight;
+
+	GraphLayout(SeriesSource source) {
+		this.source = source;
+	}
+
+	/**
+	 * returns the maximal X value of the current viewport (if viewport is set)
+	 * otherwise maximal X value of all data, 0 if there is no data.
+	 */
+	double getMaxX(boolean ignoreViewport) {
+		if (!ignoreViewport && viewportSize != 0) {
+			return viewportStart + viewportSize;
+		}
+		// values are sorted by x, so the last value has the largest X value
+		double highest = 0;
+		boolean first = true;
+		for (int i=0; i<source.getSeriesCount(); i++) {
+			double x = source.getSeriesData(i).getLastX();
+			if (!Double.isNaN(x)) {
+				highest = first ? x : Math.max(highest, x);
+				first = false;
+			}
+		}
+		return highest;
+	}
+
+	/**
+	 * returns the minimal X value of the current viewport (if viewport is set)
+	 * otherwise minimal X value of all data, 0 if there is no data.
+	 */
+	double getMinX(boolean ignoreViewport) {
+		if (!ignoreViewport && viewportSize != 0) {
+			return viewportStart;
+		}
+		// values are sorted by x, so the first value has the smallest X value
+		double lowest = 0;
+		boolean first = true;
+		for (int i=0; i<source.getSeriesCount(); i++) {
+			double x = source.getSeriesData(i).getFirstX();
+			if (!Double.isNaN(x)) {
+				lowest = first ? x : Math.min(lowest, x);
+				first = false;
+			}
+		}
+		return lowest;
+	}
+
+	/**
+	 * @return the manual bound, or the largest y value of the visible data
+	 */
+	double getMaxY() {
+		if (manualYAxis || manualMaxY) {
+			return manualMaxYValue;
+		}
+		double largest = Integer.MIN_VALUE;
+		for (int i=0; i<source.getSeriesCount(); i++) {
+			// the stores are read without lock
+			source.getSeriesData(i).slice(range, viewportStart, viewportSize, 0);
+			largest = Math.max(largest, range.maxY);
+			range.release();
+		}
+		return largest;
+	}
+
+	/**
+	 * @return the manual bound, or the smallest y value of the visible data
+	 */
+	double getMinY() {
+		if (manualYAxis || manualMinY) {
+			return manualMinYValue;
+		}
+		double smallest = Integer.MAX_VALUE;
+		for (int i=0; i<source.getSeriesCount(); i++) {
+			source.getSeriesData(i).slice(range, viewportStart, viewportSize, 0);
+			smallest = Math.min(smallest, range.minY);
+			range.release();
+		}
+		return smallest;
+	}
+
+	/**
+	 * sets the x and y range of the graph. If min and max y are the same,
+	 * the drawn range is enlarged so that a line can be drawn.
+	 */
+	void setRange(double minX, double maxX, double minY, double maxY) {
+		this.minX = minX;
+		this.maxX = maxX;
+		this.minY = minY;
+		this.maxY = maxY;
+		rangeMinY = minY;
+		rangeMaxY = maxY;
+		if (maxY == minY) {
+			// if min/max is the same, fake it so that we can render a line
+			if (maxY == 0) {
+				// if both are zero, change the values to prevent division by zero
+				rangeMaxY = 1.0d;
+				rangeMinY = 0.0d;
+			} else {
+				rangeMaxY = maxY*1.05d;
+				rangeMinY = minY*0.95d;
+			}
+		}
+	}
+
+	/**
+	 * formats a label with the custom label formatter, or with the fraction
+	 * digits that fit to the range
+	 */
+	String formatLabel(double value, boolean isValueX) {
+		if (customLabelFormatter != null) {
+			String label = customLabelFormatter.formatLabel(value, isValueX);
+			if (label != null) {
+				return label;
+			}
+		}
+		int i = isValueX ? 1 : 0;
+		if (labelFractionDigits[i] < 0) {
+			labelFractionDigits[i] = isValueX ? LabelGenerator.getFractionDigits(minX, maxX) : LabelGenerator.getFractionDigits(minY, maxY);
+		}
+		// cached, so panning and redrawing doesn't format the same values again
+		return labelFormat.format(value, labelFractionDigits[i]);
+	}
+
+	/**
+	 * @return true if the labels were measured since the last {@link #resetLabels()}
+	 */
+	boolean isMeasured() {
+		return measured;
+	}
+
+	/**
+	 * measures the size of typical labels, with the text size of the backend
+	 * @param lowestX smallest x value of all data
+	 * @param highestX largest x value of all data
+	 */
+	void measureLabels(RenderBackend backend, double lowestX, double highestX) {
+		String testLabel = labelFormatter.formatLabel(((highestX-lowestX)*0.783)+lowestX, true);
+		labelTextHeight = backend.getTextHeight(testLabel);
+		horLabelTextWidth = backend.getTextWidth(testLabel);
+		testLabel = labelFormatter.formatLabel(((maxY-minY)*0.783)+minY, false);
+		verLabelTextWidth = backend.getTextWidth(testLabel);
+		measured = true;
+	}
+
+	/**
+	 * @return width of the vertical labels, the set width or the measured width
+	 */
+	int getVerticalLabelsWidth() {
+		return verticalLabelsWidth != 0 ? verticalLabelsWidth : (int) (verLabelTextWidth + BORDER);
+	}
+
+	/**
+	 * @return space above and below the graph area, for the title and the horizontal labels
+	 */
+	float getBorder() {
+		return BORDER + labelTextHeight;
+	}
+
+	/**
+	 * sets the geometry of the graph area. The labels have to be measured.
+	 * @param horstart left border of the graph area
+	 */
+	void layout(int width, int height, float horstart) {
+		border = getBorder();
+		this.horstart = horstart;
+		this.width = width - 1;
+		this.height = height;
+		graphwidth = this.width - horstart;
+		graphheight = height - (2 * border);
+	}
+
+	/**
+	 * the labels are generated again for the next frame
+	 */
+	void invalidateLabels() {
+		horlabels = null;
+		verlabels = null;
+	}
+
+	/**
+	 * the labels are measured, formatted and generated again for the next frame
+	 */
+	void resetLabels() {
+		invalidateLabels();
+		labelFractionDigits[0] = -1;
+		labelFractionDigits[1] = -1;
+		measured = false;
+	}
+
+	/**
+	 * @return true if the horizontal labels are set or generated
+	 */
+	boolean hasHorizontalLabels() {
+		return staticHorlabels != null || horlabels != null;
+	}
+
+	/**
+	 * @return true if the vertical labels are set or generated
+	 */
+	boolean hasVerticalLabels() {
+		return staticVerlabels != null || verlabels != null;
+	}
+
+	/**
+	 * @param graphwidth width of the graph area
+	 * @return the static labels, or the labels from left to right, generated if needed
+	 */
+	String[] getHorizontalLabels(float graphwidth) {
+		if (staticHorlabels != null) {
+			return staticHorlabels;
+		}
+		if (horlabels == null) {
+			int intervals = LabelGenerator.getIntervals(numHorizontalLabels, graphwidth, horLabelTextWidth*2);
+			horlabels = generatedHorlabels = reuse(generatedHorlabels, intervals+1);
+			LabelGenerator.generate(horlabels, minX, maxX, true, labelFormatter);
+		}
+		return horlabels;
+	}
+
+	/**
+	 * @param graphheight height of the graph area
+	 * @return the static labels, or the labels from top to bottom, generated if needed
+	 */
+	String[] getVerticalLabels(float graphheight) {
+		if (staticVerlabels != null) {
+			return staticVerlabels;
+		}
+		if (verlabels == null) {
+			int intervals = LabelGenerator.getIntervals(numVerticalLabels, graphheight, labelTextHeight*3);
+			verlabels = generatedVerlabels = reuse(generatedVerlabels, intervals+1);
+			LabelGenerator.generate(verlabels, rangeMinY, rangeMaxY, false, labelFormatter);
+		}
+		return verlabels;
+	}
+
+	private static String[] reuse(String[] labels, int length) {
+		if (labels == null || labels.length != length) {
+			return new String[length];
+		}
+		return labels;
+	}
+
+	/**
+	 * @param horlabels labels from left to right, null = generated
+	 */
+	void setHorizontalLabels(String[] horlabels) {
+		staticHorlabels = horlabels;
+	}
+
+	/**
+	 * @param verlabels labels from top to bottom, null = generated
+	 */
+	void setVerticalLabels(String[] verlabels) {
+		staticVerlabels = verlabels;
+	}
+
+	/**
+	 * copies the settings, the range, the geometry and the labels of another layout,
+	 * so that a frame can be drawn while the other layout is changed.
+	 * The arrays of the labels are reused, the formatters are not copied.
+	 */
+	void copyFrom(GraphLayout other) {
+		viewportStart = other.viewportStart;
+		viewportSize = other.viewportSize;
+		manualYAxis = other.manualYAxis;
+		manualMaxY = other.manualMaxY;
+		manualMinY = other.manualMinY;
+		manualMaxYValue = other.manualMaxYValue;
+		manualMinYValue = other.manualMinYValue;
+
+		title = other.title;
+		textSize = other.textSize;
+		gridColor = other.gridColor;
+		horizontalLabelsColor = other.horizontalLabelsColor;
+		verticalLabelsColor = other.verticalLabelsColor;
+		verticalLabelsWidth = other.verticalLabelsWidth;
+		numHorizontalLabels = other.numHorizontalLabels;
+		numVerticalLabels = other.numVerticalLabels;
+		showHorizontalLabels = other.showHorizontalLabels;
+		horizontalGridLines = other.horizontalGridLines;
+		verticalGridLines = other.verticalGridLines;
+		showLegend = other.showLegend;
+		legendAlign = other.legendAlign;
+		legendWidth = other.legendWidth;
+		legendBorder = other.legendBorder;
+		legendSpacing = other.legendSpacing;
+		legendMarginBottom = other.legendMarginBottom;
+		customLabelFormatter = other.customLabelFormatter;
+
+		// static labels are copied as well, they could be changed by the caller
+		staticHorlabels = null;
+		staticVerlabels = null;
+		String[] labels = other.staticHorlabels != null ? other.staticHorlabels : other.horlabels;
+		horlabels = labels == null ? null : (generatedHorlabels = copyLabels(labels, generatedHorlabels));
+		labels = other.staticVerlabels != null ? other.staticVerlabels : other.verlabels;
+		verlabels = labels == null ? null : (generatedVerlabels = copyLabels(labels, generatedVerlabels));
+		labelFractionDigits[0] = other.labelFractionDigits[0];
+		labelFractionDigits[1] = other.labelFractionDigits[1];
+		measured = other.measured;
+		labelTextHeight = other.labelTextHeight;
+		horLabelTextWidth = other.horLabelTextWidth;
+		verLabelTextWidth = other.verLabelTextWidth;
+
+		minX = other.minX;
+		maxX = other.maxX;
+		minY = other.minY;
+		maxY = other.maxY;
+		rangeMinY = other.rangeMinY;
+		rangeMaxY = other.rangeMaxY;
+
+		border = other.border;
+		horstart = other.horstart;
+		width = other.width;
+		height = other.height;
+		graphwidth = other.graphwidth;
+		graphheight = other.graphheight;
+	}
+
+	/**
+	 * @return a copy of labels, in target if it has the same length
+	 */
+	private static String[] copyLabels(String[] labels, String[] target) {
+		if (labels == null) {
+			return null;
+		}
+		target = reuse(target, labels.length);
+		System.arraycopy(labels, 0, target, 0, labels.length);
+		return target;
+	}
+
+	/**
+	 * draws the horizontal lines of the grid at the vertical labels
+	 */
+	void drawGrid(RenderBackend backend, String[] verlabels) {
+		if (!horizontalGridLines) {
+			return;
+		}
+		int vers = verlabels.length - 1;
+		for (int i = 0; i < verlabels.length; i++) {
+			float y = ((graphheight / vers) * i) + border;
+			backend.drawLine(horstart, y, width, y, gridColor, 0);
+		}
+	}
+
+	/**
+	 * @param x position of the labels, for the align
+	 * @param border top of the graph area
+	 */
+	void drawVerticalLabels(RenderBackend backend, String[] verlabels, float x, RenderBackend.Align align, float border, float graphheight) {
+		int vers = verlabels.length - 1;
+		for (int i = 0; i < verlabels.length; i++) {
+			float y = ((graphheight / vers) * i) + border;
+			backend.drawText(verlabels[i], x, y, align, verticalLabelsColor);
+		}
+	}
+
+	/**
+	 * draws the horizontal labels and the vertical lines of the grid
+	 */
+	void drawHorizontalLabels(RenderBackend backend, float border, float horstart, float height, String[] horlabels, float graphwidth) {
+		int hors = horlabels.length - 1;
+		for (int i = 0; i < horlabels.length; i++) {
+			float x = ((graphwidth / hors) * i) + horstart;
+			if (verticalGridLines) {
+				backend.drawLine(x, height - border, x, border, gridColor, 0);
+			}
+			if (showHorizontalLabels) {
+				RenderBackend.Align align = RenderBackend.Align.CENTER;
+				if (i==horlabels.length-1)
+					align = RenderBackend.Align.RIGHT;
+				if (i==0)
+					align = RenderBackend.Align.LEFT;
+				backend.drawText(horlabels[i], x, height - 4, align, horizontalLabelsColor);
+			}
+		}
+	}
+
+	/**
+	 * like {@link #drawHorizontalLabels(RenderBackend, float, float, float, String[], float)},
+	 * but the labels are centered below the bars
+	 */
+	void drawBarHorizontalLabels(RenderBackend backend, float border, float horstart, float height, String[] horlabels, float graphwidth) {
+		int hors = horlabels.length;
+		float barwidth = graphwidth/horlabels.length;
+		float textOffset = barwidth/2;
+		for (int i = 0; i < horlabels.length; i++) {
+			float x = ((graphwidth / hors) * i) + horstart;
+			backend.drawLine(x, height - border, x, border, gridColor, 0);
+			if (showHorizontalLabels) {
+				x = barwidth*i + textOffset + horstart;
+				backend.drawText(horlabels[i], x, height - 4, RenderBackend.Align.CENTER, horizontalLabelsColor);
+			}
+		}
+	}
+
+	void drawTitle(RenderBackend backend) {
+		backend.drawText(title, (graphwidth / 2) + horstart, border - 4, RenderBackend.Align.CENTER, horizontalLabelsColor);
+	}
+
+	/**
+	 * @param height height of the graph
+	 * @param width right border of the legend
+	 */
+	void drawLegend(RenderBackend backend, float height, float width) {
+		int shapeSize = (int) (backend.getTextSize()*0.8d);
+
+		// rect
+		float legendHeight = (shapeSize+legendSpacing)*source.getSeriesCount() +2*legendBorder -legendSpacing;
+		float lLeft = width-legendWidth - legendBorder*2;
+		float lTop;
+		switch (legendAlign) {
+		case LEGEND_TOP:
+			lTop = 0;
+			break;
+		case LEGEND_MIDDLE:
+			lTop = height/2 - legendHeight/2;
+			break;
+		default:
+			lTop = height - BORDER - legendHeight - legendMarginBottom;
+		}
+		backend.fillRoundRect(lLeft, lTop, lLeft+legendWidth, lTop+legendHeight, 8, 0xb4646464);
+
+		for (int i=0; i<source.getSeriesCount(); i++) {
+			float top = lTop+legendBorder+(i*(shapeSize+legendSpacing));
+			backend.fillRect(lLeft+legendBorder, top, lLeft+legendBorder+shapeSize, top+shapeSize, source.getSeriesColor(i));
+			String description = source.getSeriesDescription(i);
+			if (description != null) {
+				backend.drawText(description, lLeft+legendBorder+shapeSize+legendSpacing, top+shapeSize, RenderBackend.Align.LEFT, 0xffffffff);
+			}
+		}
+	}
+}
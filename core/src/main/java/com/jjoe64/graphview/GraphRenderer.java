@@ -0,0 +1,361 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * draws a complete graph - grid, labels, title, series and legend - to a {@link RenderBackend}.
+ * No Android classes are used, so graphs can be rendered on a server, e.g. into a
+ * java.awt.image.BufferedImage with the Java2D backend, and the drawing can be
+ * profiled on a plain JVM.
+ * The layout and the labels are calculated and drawn by the same {@link GraphLayout} as
+ * in GraphView, the series by the renderers of LineGraphView and BarGraphView.
+ * {@code
+ * 		GraphRenderer renderer = new GraphRenderer(GraphRenderer.GraphType.LINE);
+ * 		renderer.setTitle("Sales");
+ * 		renderer.addSeries("2014", valuesX, valuesY, 0xff0077cc, 3);
+ * 		renderer.render(backend, 800, 480);
+ * }
+ * An instance is not thread safe. The buffers are reused, so one instance per thread
+ * can render many graphs without creating much garbage.
+ */
+public class GraphRenderer {
+	public enum GraphType {
+		LINE, BAR
+	}
+
+	static private final class Series {
+		final String description;
+		final SeriesData data;
+		final int color;
+		final int thickness;
+		final ValueDependentColor valueDependentColor;
+
+		Series(String description, SeriesData data, int color, int thickness, ValueDependentColor valueDependentColor) {
+			this.description = description;
+			this.data = data;
+			this.color = color;
+			this.thickness = thickness;
+			this.valueDependentColor = valueDependentColor;
+		}
+	}
+
+	private final GraphType graphType;
+	private final List<Series> graphSeries = new ArrayList<Series>();
+	private final GraphLayout layout = new GraphLayout(new GraphLayout.SeriesSource() {
+		@Override
+		public int getSeriesCount() {
+			return graphSeries.size();
+		}
+
+		@Override
+		public SeriesStore getSeriesData(int index) {
+			return graphSeries.get(index).data;
+		}
+
+		@Override
+		public int getSeriesColor(int index) {
+			return graphSeries.get(index).color;
+		}
+
+		@Override
+		public String getSeriesDescription(int index) {
+			return graphSeries.get(index).description;
+		}
+	});
+	private final ValuesRange range = new ValuesRange();
+	private final LineSeriesRenderer lineRenderer = new LineSeriesRenderer();
+	private final BarSeriesRenderer barRenderer = new BarSeriesRenderer();
+	private int backgroundColor;
+	private boolean showVerticalLabels = true;
+
+	public GraphRenderer(GraphType graphType) {
+		this.graphType = graphType;
+	}
+
+	/**
+	 * adds a series. The arrays are used directly, they are not copied.
+	 * @param description [optional] text of the legend
+	 * @param valuesX x values, sorted ascending
+	 * @param valuesY y values, same length as valuesX
+	 * @param color ARGB
+	 * @param thickness line width
+	 */
+	public void addSeries(String description, double[] valuesX, double[] valuesY, int color, int thickness) {
+		addSeries(description, valuesX, valuesY, color, thickness, null);
+	}
+
+	/**
+	 * adds a series. The arrays are used directly, they are not copied.
+	 * @param description [optional] text of the legend
+	 * @param valuesX x values, sorted ascending
+	 * @param valuesY y values, same length as valuesX
+	 * @param color ARGB
+	 * @param thickness line width
+	 * @param valueDependentColor [optional] color of each bar, only for {@link GraphType#BAR}
+	 */
+	public void addSeries(String description, double[] valuesX, double[] valuesY, int color, int thickness, ValueDependentColor valueDependentColor) {
+		if (valuesX.length != valuesY.length) {
+			throw new IllegalArgumentException("valuesX and valuesY must have the same length");
+		}
+		graphSeries.add(new Series(description, new SeriesData(valuesX, valuesY), color, thickness, valueDependentColor));
+	}
+
+	/**
+	 * removes all series, so that the renderer can be used for the next graph
+	 */
+	public void removeAllSeries() {
+		graphSeries.clear();
+	}
+
+	public int getSeriesCount() {
+		return graphSeries.size();
+	}
+
+	/**
+	 * draws the graph into the rectangle 0, 0, width, height of the backend
+	 */
+	public void render(RenderBackend backend, int width, int height) {
+		GraphLayout layout = this.layout;
+		backend.setTextSize(layout.textSize);
+		if (backgroundColor != 0) {
+			backend.fillRect(0, 0, width, height, backgroundColor);
+		}
+
+		// x and y range of the viewport, the labels of the last graph are not used
+		layout.resetLabels();
+		layout.setRange(layout.getMinX(false), layout.getMaxX(false), layout.getMinY(), layout.getMaxY());
+		layout.measureLabels(backend, layout.getMinX(true), layout.getMaxX(true));
+		layout.layout(width, height, showVerticalLabels ? layout.getVerticalLabelsWidth() : 0);
+		float border = layout.border;
+		float horstart = layout.horstart;
+		float graphwidth = layout.graphwidth;
+		float graphheight = layout.graphheight;
+		String[] hor = layout.getHorizontalLabels(graphwidth);
+		String[] ver = layout.getVerticalLabels(graphheight);
+
+		layout.drawGrid(backend, ver);
+		if (showVerticalLabels) {
+			layout.drawVerticalLabels(backend, ver, 0, RenderBackend.Align.LEFT, border, graphheight);
+		}
+		if (graphType == GraphType.BAR) {
+			layout.drawBarHorizontalLabels(backend, border, horstart, height, hor, graphwidth);
+		} else {
+			layout.drawHorizontalLabels(backend, border, horstart, height, hor, graphwidth);
+		}
+		layout.drawTitle(backend);
+
+		double minX = layout.minX;
+		double minY = layout.rangeMinY;
+		double diffX = layout.maxX - minX;
+		double diffY = layout.rangeMaxY - minY;
+		int columns = (int) Math.ceil(graphwidth);
+		for (int i=0; i<graphSeries.size(); i++) {
+			Series series = graphSeries.get(i);
+			series.data.slice(range, layout.viewportStart, layout.viewportSize, columns);
+			if (graphType == GraphType.BAR) {
+				barRenderer.draw(backend, range.valuesX, range.valuesY, range.from, range.to, graphwidth, graphheight, border, minY, diffY, horstart, series.color, series.valueDependentColor, layout.labelFormatter);
+			} else {
+				lineRenderer.draw(backend, range.valuesX, range.valuesY, range.from, range.to, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, series.color, series.thickness);
+			}
+			range.release();
+		}
+
+		if (layout.showLegend) layout.drawLegend(backend, height, layout.width);
+	}
+
+	public GraphType getGraphType() {
+		return graphType;
+	}
+
+	public String getTitle() {
+		return layout.title;
+	}
+
+	public float getTextSize() {
+		return layout.textSize;
+	}
+
+	public boolean isShowLegend() {
+		return layout.showLegend;
+	}
+
+	/**
+	 * @param color ARGB background of the whole graph, 0 = not filled (default)
+	 */
+	public void setBackgroundColor(int color) {
+		backgroundColor = color;
+	}
+
+	public void setCustomLabelFormatter(CustomLabelFormatter customLabelFormatter) {
+		layout.customLabelFormatter = customLabelFormatter;
+	}
+
+	/**
+	 * draws a background under the lines, only for {@link GraphType#LINE}
+	 * @param drawBackground
+	 * @param color ARGB
+	 */
+	public void setDrawBackground(boolean drawBackground, int color) {
+		lineRenderer.drawBackground = drawBackground;
+		lineRenderer.backgroundColor = color;
+	}
+
+	/**
+	 * draws circles at the data points, only for {@link GraphType#LINE}
+	 * @param drawDataPoints
+	 * @param radius
+	 */
+	public void setDrawDataPoints(boolean drawDataPoints, float radius) {
+		lineRenderer.drawDataPoints = drawDataPoints;
+		lineRenderer.dataPointsRadius = radius;
+	}
+
+	/**
+	 * draws the values on top of the bars, only for {@link GraphType#BAR}
+	 * @param drawValuesOnTop
+	 * @param color ARGB
+	 */
+	public void setDrawValuesOnTop(boolean drawValuesOnTop, int color) {
+		barRenderer.drawValuesOnTop = drawValuesOnTop;
+		barRenderer.valuesOnTopColor = color;
+	}
+
+	/**
+	 * draws only the first, last, min and max value per pixel column, if there are
+	 * more values than pixels. Looks exactly like drawing all values. Only for {@link GraphType#LINE}
+	 * @param downsamplingEnabled
+	 */
+	public void setDownsamplingEnabled(boolean downsamplingEnabled) {
+		lineRenderer.downsampling = downsamplingEnabled ? LineSeriesRenderer.DOWNSAMPLING_M4 : LineSeriesRenderer.DOWNSAMPLING_NONE;
+	}
+
+	public void setGridColor(int gridColor) {
+		layout.gridColor = gridColor;
+	}
+
+	/**
+	 * set's static horizontal labels (from left to right)
+	 * @param horlabels if null, labels were generated automatically
+	 */
+	public void setHorizontalLabels(String[] horlabels) {
+		layout.setHorizontalLabels(horlabels);
+	}
+
+	public void setHorizontalLabelsColor(int horizontalLabelsColor) {
+		layout.horizontalLabelsColor = horizontalLabelsColor;
+	}
+
+	/**
+	 * legend sizes, see GraphViewStyle
+	 */
+	public void setLegend(int legendWidth, int legendBorder, int legendSpacing) {
+		layout.legendWidth = legendWidth;
+		layout.legendBorder = legendBorder;
+		layout.legendSpacing = legendSpacing;
+	}
+
+	/**
+	 * set manual Y axis limit
+	 * @param max
+	 * @param min
+	 */
+	public void setManualYAxisBounds(double max, double min) {
+		layout.manualMaxYValue = max;
+		layout.manualMinYValue = min;
+		layout.manualYAxis = true;
+	}
+
+	/**
+	 * @param manualYAxis false = the y range is calculated from the visible values
+	 */
+	public void setManualYAxis(boolean manualYAxis) {
+		layout.manualYAxis = manualYAxis;
+	}
+
+	/**
+	 * @param numHorizontalLabels 0 = auto
+	 */
+	public void setNumHorizontalLabels(int numHorizontalLabels) {
+		layout.numHorizontalLabels = numHorizontalLabels;
+	}
+
+	/**
+	 * @param numVerticalLabels 0 = auto
+	 */
+	public void setNumVerticalLabels(int numVerticalLabels) {
+		layout.numVerticalLabels = numVerticalLabels;
+	}
+
+	public void setShowHorizontalLabels(boolean showHorizontalLabels) {
+		layout.showHorizontalLabels = showHorizontalLabels;
+	}
+
+	public void setShowLegend(boolean showLegend) {
+		layout.showLegend = showLegend;
+	}
+
+	public void setShowVerticalLabels(boolean showVerticalLabels) {
+		this.showVerticalLabels = showVerticalLabels;
+	}
+
+	public void setTextSize(float textSize) {
+		layout.textSize = textSize;
+	}
+
+	public void setTitle(String title) {
+		layout.title = title == null ? "" : title;
+	}
+
+	/**
+	 * set's static vertical labels (from top to bottom)
+	 * @param verlabels if null, labels were generated automatically
+	 */
+	public void setVerticalLabels(String[] verlabels) {
+		layout.setVerticalLabels(verlabels);
+	}
+
+	public void setVerticalLabelsColor(int verticalLabelsColor) {
+		layout.verticalLabelsColor = verticalLabelsColor;
+	}
+
+	/**
+	 * @param verticalLabelsWidth 0 = auto
+	 */
+	public void setVerticalLabelsWidth(int verticalLabelsWidth) {
+		layout.verticalLabelsWidth = verticalLabelsWidth;
+	}
+
+	/**
+	 * set's the viewport for the graph.
+	 * @param start x-value
+	 * @param size 0 = all data
+	 */
+	public void setViewPort(double start, double size) {
+		if (size<0) {
+			throw new IllegalArgumentException("Viewport size must be greater than 0!");
+		}
+		layout.viewportStart = start;
+		layout.viewportSize = size;
+	}
+}
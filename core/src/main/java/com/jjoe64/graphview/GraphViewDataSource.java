@@ -0,0 +1,54 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * loads the values of a series on demand, e.g. from a database or a file.
+ * The graph asks only for the values of the viewport, in pages, and keeps
+ * the last pages in memory. See {@link GraphViewSeries#GraphViewSeries(String, GraphViewSeries.GraphViewSeriesStyle, GraphViewDataSource)}
+ */
+public interface GraphViewDataSource {
+	/**
+	 * @return the smallest x value of all data, the graph can not be scrolled further.
+	 * Can be called on any thread.
+	 */
+	public double getMinX();
+
+	/**
+	 * @return the largest x value of all data, the graph can not be scrolled further.
+	 * Can be called on any thread.
+	 */
+	public double getMaxX();
+
+	/**
+	 * loads the values with minX <= x < maxX, sorted by x.
+	 * If there are more than maxValues values, the source should aggregate them
+	 * (e.g. min and max per interval), otherwise only the first values are used.
+	 * Called on a background thread.
+	 * @param minX
+	 * @param maxX
+	 * @param maxValues size of the arrays
+	 * @param valuesX the x values are written here
+	 * @param valuesY the y values are written here
+	 * @return number of values written
+	 */
+	public int load(double minX, double maxX, int maxValues, double[] valuesX, double[] valuesY);
+}
@@ -0,0 +1,80 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * the values and number format of the generated labels.
+ * No Android classes are used, so it can be benchmarked on a plain JVM.
+ */
+final class LabelGenerator {
+	private LabelGenerator() {
+	}
+
+	/**
+	 * @return the number of fraction digits for labels between lowest and highest
+	 */
+	static int getFractionDigits(double lowest, double highest) {
+		double diff = highest - lowest;
+		if (diff < 0.1) {
+			return 6;
+		} else if (diff < 1) {
+			return 4;
+		} else if (diff < 20) {
+			return 3;
+		} else if (diff < 100) {
+			return 1;
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * @param numLabels number of labels of the style, 0 = auto
+	 * @param length width or height of the graph
+	 * @param labelSpace space per label, if the number is calculated
+	 * @return number of intervals between the labels, the number of labels minus 1
+	 */
+	static int getIntervals(int numLabels, float length, float labelSpace) {
+		if (numLabels > 0) {
+			return numLabels - 1;
+		}
+		if (length <= 0) length = 1f;
+		return (int) (length / labelSpace);
+	}
+
+	/**
+	 * fills labels with evenly spaced values from min to max
+	 * @param labels receives the labels, the length is the number of labels
+	 * @param isValueX true: ascending from left to right. false: descending from top to bottom
+	 * @param formatter
+	 */
+	static void generate(String[] labels, double min, double max, boolean isValueX, CustomLabelFormatter formatter) {
+		int numLabels = labels.length - 1;
+		for (int i=0; i<=numLabels; i++) {
+			String label = formatter.formatLabel(min + ((max-min)*i/numLabels), isValueX);
+			if (isValueX) {
+				labels[i] = label;
+			} else {
+				labels[numLabels-i] = label;
+			}
+		}
+	}
+}
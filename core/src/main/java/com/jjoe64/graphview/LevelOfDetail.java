@@ -0,0 +1,193 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * pyramid of pre-aggregated buckets of a series, like a mipmap.
+ * Level k groups 2^k values to one bucket and stores the index of the
+ * smallest and the largest y value and the sum of the y values.
+ * Together with the first and the last value of the bucket, a level can
+ * be drawn like {@link Decimation#m4(double[], double[], int, int, double, double, int, double[], double[])},
+ * but in a time that only depends on the number of buckets.
+ *
+ * The buckets are aligned to the indices of the series arrays, only
+ * complete buckets are stored.
+ */
+final class LevelOfDetail {
+	private double[] values;
+	private int levels;
+	/**
+	 * [level-1][bucket]
+	 */
+	private int[][] minIndex;
+	private int[][] maxIndex;
+	private double[][] sum;
+
+	/**
+	 * The arrays of the buckets are reused if the length is the same.
+	 * @param values the array to aggregate. It has to be rebuilt if the array changes, except for {@link #update(int)}.
+	 */
+	void rebuild(double[] values) {
+		boolean reuse = this.values != null && this.values.length == values.length;
+		this.values = values;
+		if (!reuse) {
+			levels = values.length < 2 ? 0 : 31 - Integer.numberOfLeadingZeros(values.length);
+			minIndex = new int[levels][];
+			maxIndex = new int[levels][];
+			sum = new double[levels][];
+		}
+		for (int level=1; level<=levels; level++) {
+			int buckets = values.length >> level;
+			if (!reuse) {
+				minIndex[level-1] = new int[buckets];
+				maxIndex[level-1] = new int[buckets];
+				sum[level-1] = new double[buckets];
+			}
+			for (int bucket=0; bucket<buckets; bucket++) {
+				updateBucket(level, bucket);
+			}
+		}
+	}
+
+	/**
+	 * has to be called after values[index] was changed
+	 * @param index
+	 */
+	void update(int index) {
+		for (int level=1; level<=levels; level++) {
+			int bucket = index >> level;
+			if (bucket >= minIndex[level-1].length) {
+				break;
+			}
+			updateBucket(level, bucket);
+		}
+	}
+
+	/**
+	 * has to be called after values[from] .. values[to-1] were changed
+	 */
+	void update(int from, int to) {
+		if (from >= to) {
+			return;
+		}
+		for (int level=1; level<=levels; level++) {
+			int last = Math.min((to - 1) >> level, minIndex[level-1].length - 1);
+			for (int bucket=from >> level; bucket<=last; bucket++) {
+				updateBucket(level, bucket);
+			}
+		}
+	}
+
+	/**
+	 * @return the coarsest level that has at least one bucket per column, 0 = no aggregation
+	 */
+	int getLevel(int count, int columns) {
+		int level = 0;
+		while (level < levels && (count >> (level+1)) >= columns) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * @return the mean y value of a bucket
+	 */
+	double getMean(int level, int bucket) {
+		return sum[level-1][bucket] / (1 << level);
+	}
+
+	/**
+	 * @return the maximal number of values that {@link #fill(double[], int, int, int, double[], double[])} writes
+	 */
+	static int getMaxFillCount(int from, int to, int level) {
+		return (((to - from) >> level) + 2) * 4;
+	}
+
+	/**
+	 * writes first, min, max and last value of every bucket in the range.
+	 * The incomplete buckets at the borders are aggregated from the values.
+	 * @param valuesX x values, parallel to the aggregated array
+	 * @param from first index (inclusive)
+	 * @param to last index (exclusive)
+	 * @param level level > 0
+	 * @param outX receives the x values, length >= {@link #getMaxFillCount(int, int, int)}
+	 * @param outY receives the y values, length >= {@link #getMaxFillCount(int, int, int)}
+	 * @return number of values written to outX/outY
+	 */
+	int fill(double[] valuesX, int from, int to, int level, double[] outX, double[] outY) {
+		int size = 1 << level;
+		int firstBucket = (from + size - 1) >> level;
+		int lastBucket = Math.min(to >> level, minIndex[level-1].length);
+		if (firstBucket >= lastBucket) {
+			return writeValues(valuesX, from, to, outX, outY, 0);
+		}
+		int[] levelMinIndex = minIndex[level-1];
+		int[] levelMaxIndex = maxIndex[level-1];
+		int n = writeValues(valuesX, from, firstBucket << level, outX, outY, 0);
+		for (int bucket=firstBucket; bucket<lastBucket; bucket++) {
+			n = Decimation.writeGroup(valuesX, values, bucket << level, levelMinIndex[bucket], levelMaxIndex[bucket], ((bucket + 1) << level) - 1, outX, outY, n);
+		}
+		return writeValues(valuesX, lastBucket << level, to, outX, outY, n);
+	}
+
+	/**
+	 * aggregates values from .. to-1 to one group
+	 */
+	private int writeValues(double[] valuesX, int from, int to, double[] outX, double[] outY, int n) {
+		if (from >= to) {
+			return n;
+		}
+		int min = from;
+		int max = from;
+		for (int i=from+1; i<to; i++) {
+			if (values[i] < values[min]) {
+				min = i;
+			}
+			if (values[i] > values[max]) {
+				max = i;
+			}
+		}
+		return Decimation.writeGroup(valuesX, values, from, min, max, to - 1, outX, outY, n);
+	}
+
+	private void updateBucket(int level, int bucket) {
+		int min;
+		int max;
+		double bucketSum;
+		if (level == 1) {
+			int a = bucket * 2;
+			int b = a + 1;
+			min = values[b] < values[a] ? b : a;
+			max = values[b] > values[a] ? b : a;
+			bucketSum = values[a] + values[b];
+		} else {
+			int a = bucket * 2;
+			int b = a + 1;
+			int[] childMin = minIndex[level-2];
+			int[] childMax = maxIndex[level-2];
+			min = values[childMin[b]] < values[childMin[a]] ? childMin[b] : childMin[a];
+			max = values[childMax[b]] > values[childMax[a]] ? childMax[b] : childMax[a];
+			bucketSum = sum[level-2][a] + sum[level-2][b];
+		}
+		minIndex[level-1][bucket] = min;
+		maxIndex[level-1][bucket] = max;
+		sum[level-1][bucket] = bucketSum;
+	}
+}
@@ -0,0 +1,178 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * draws a series as line chart to a {@link RenderBackend}.
+ * Used by LineGraphView and {@link GraphRenderer}.
+ * The buffers grow if needed and are reused for every frame.
+ */
+final class LineSeriesRenderer {
+	static final int DOWNSAMPLING_NONE = 0;
+	static final int DOWNSAMPLING_LTTB = 1;
+	static final int DOWNSAMPLING_M4 = 2;
+
+	boolean drawBackground;
+	/**
+	 * rgb(20, 40, 60) with alpha 128
+	 */
+	int backgroundColor = 0x8014283c;
+	boolean drawDataPoints;
+	float dataPointsRadius = 10f;
+	int downsampling = DOWNSAMPLING_NONE;
+	/**
+	 * 0 = auto (2 values per pixel)
+	 */
+	int downsamplingTarget;
+	/**
+	 * number of values that were drawn for the last series
+	 */
+	int drawnPointsCount;
+
+	/**
+	 * start and end points of the line segments, for one {@link RenderBackend#drawLines(float[], int, int, float)} call.
+	 */
+	private float[] linePoints = new float[0];
+	private float[] backgroundPoints = new float[0];
+	private double[] downsampledX = new double[0];
+	private double[] downsampledY = new double[0];
+
+	/**
+	 * draws the values from (inclusive) to to (exclusive), downsampled if enabled
+	 */
+	void draw(RenderBackend backend, double[] valuesX, double[] valuesY, int from, int to, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, int color, int thickness) {
+		if (downsampling == DOWNSAMPLING_LTTB) {
+			int target = downsamplingTarget;
+			if (target == 0) {
+				target = (int) (graphwidth * 2);
+			}
+			// first, last and at least one value between
+			target = Math.max(target, 3);
+			if (to - from > target) {
+				ensureDownsampledCapacity(target);
+				int count = Decimation.lttb(valuesX, valuesY, from, to, target, downsampledX, downsampledY);
+				drawValues(backend, downsampledX, downsampledY, 0, count, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, color, thickness);
+				return;
+			}
+		} else if (downsampling == DOWNSAMPLING_M4) {
+			int columns = Math.max(1, (int) Math.ceil(graphwidth));
+			// up to 4 values per column, plus the values left and right of the graph
+			if (to - from > columns * 4) {
+				ensureDownsampledCapacity((columns + 2) * 4);
+				int count = Decimation.m4(valuesX, valuesY, from, to, minX, diffX, columns, downsampledX, downsampledY);
+				drawValues(backend, downsampledX, downsampledY, 0, count, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, color, thickness);
+				return;
+			}
+		}
+		drawValues(backend, valuesX, valuesY, from, to, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, color, thickness);
+	}
+
+	private void ensureDownsampledCapacity(int capacity) {
+		if (downsampledX.length < capacity) {
+			downsampledX = new double[capacity];
+			downsampledY = new double[capacity];
+		}
+	}
+
+	private void drawValues(RenderBackend backend, double[] valuesX, double[] valuesY, int from, int to, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, int color, int thickness) {
+		drawnPointsCount = to - from;
+
+		int segments = Math.max(0, to - from - 1);
+		if (linePoints.length < segments * 4) {
+			linePoints = new float[segments * 4];
+		}
+		float[] points = linePoints;
+		int pointsCount = 0;
+
+		// start point, end points of the segments and the two points at the bottom
+		float[] bgPoints = null;
+		int bgPointsCount = 0;
+		if (drawBackground) {
+			if (backgroundPoints.length < segments * 2 + 6) {
+				backgroundPoints = new float[segments * 2 + 6];
+			}
+			bgPoints = backgroundPoints;
+		}
+
+		double lastEndY = 0;
+		double lastEndX = 0;
+		float firstX = 0;
+		float lastX = 0;
+		for (int i = from; i < to; i++) {
+			double valY = valuesY[i] - minY;
+			double ratY = valY / diffY;
+			double y = graphheight * ratY;
+
+			double valX = valuesX[i] - minX;
+			double ratX = valX / diffX;
+			double x = graphwidth * ratX;
+
+			if (i > from) {
+				float startX = (float) lastEndX + (horstart + 1);
+				float startY = (float) (border - lastEndY) + graphheight;
+				float endX = (float) x + (horstart + 1);
+				float endY = (float) (border - y) + graphheight;
+
+				// draw data point
+				if (drawDataPoints) {
+					//fix: last value was not drawn. Draw here now the end values
+					backend.fillCircle(endX, endY, dataPointsRadius, color);
+				}
+
+				points[pointsCount++] = startX;
+				points[pointsCount++] = startY;
+				points[pointsCount++] = endX;
+				points[pointsCount++] = endY;
+				if (bgPoints != null) {
+					if (i==from+1) {
+						firstX = startX;
+						bgPoints[bgPointsCount++] = startX;
+						bgPoints[bgPointsCount++] = startY;
+					}
+					bgPoints[bgPointsCount++] = endX;
+					bgPoints[bgPointsCount++] = endY;
+					lastX = endX;
+				}
+			} else if (drawDataPoints) {
+				//fix: last value not drawn as datapoint. Draw first point here, and then on every step the end values (above)
+				float first_X = (float) x + (horstart + 1);
+				float first_Y = (float) (border - y) + graphheight;
+				backend.fillCircle(first_X, first_Y, dataPointsRadius, color);
+			}
+			lastEndY = y;
+			lastEndX = x;
+		}
+
+		// all segments with one call
+		if (pointsCount > 0) {
+			backend.drawLines(points, pointsCount, color, thickness);
+		}
+
+		if (bgPointsCount > 0) {
+			// end / close path
+			bgPoints[bgPointsCount++] = lastX;
+			bgPoints[bgPointsCount++] = graphheight + border;
+			bgPoints[bgPointsCount++] = firstX;
+			bgPoints[bgPointsCount++] = graphheight + border;
+			backend.fillPolygon(bgPoints, bgPointsCount, backgroundColor);
+		}
+	}
+}
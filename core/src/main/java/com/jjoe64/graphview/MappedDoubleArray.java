@@ -0,0 +1,185 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * a growable array of doubles in a memory mapped file.
+ * The file starts with a header of {@link #HEADER_SIZE} bytes with 3 longs
+ * for the user, then the doubles follow, big endian.
+ * The file is mapped in segments of 64 MB, so it can be larger than 2 GB.
+ * The last segment grows by doubling, so small arrays don't need large files.
+ * Only the pages that are read are loaded by the system, the heap use doesn't
+ * depend on the size of the file.
+ *
+ * {@link #get(long)} can be called from any thread, for indices that were
+ * written before the reading thread got them, e.g. with a volatile field.
+ * Writing has to be synchronized by the caller.
+ */
+final class MappedDoubleArray {
+	static final int HEADER_SIZE = 32;
+	/**
+	 * "GVMD"
+	 */
+	private static final int MAGIC = 0x47564d44;
+	private static final int VERSION = 1;
+	private static final int SEGMENT_SHIFT = 23;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+	/**
+	 * doubles of the first mapping of a segment, 64 KB
+	 */
+	private static final int MIN_MAPPING = 1 << 13;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	/**
+	 * all segments are complete, except the last. Replaced when the array grows.
+	 */
+	private volatile MappedByteBuffer[] segments;
+	private long capacity;
+
+	/**
+	 * opens the file or creates it, if it doesn't exist or is empty
+	 * @throws IOException if the file can't be mapped or is not an array file
+	 */
+	MappedDoubleArray(File f) throws IOException {
+		file = new RandomAccessFile(f, "rw");
+		channel = file.getChannel();
+		try {
+			boolean created = channel.size() < HEADER_SIZE;
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			if (created) {
+				header.putInt(0, MAGIC);
+				header.putInt(4, VERSION);
+			} else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("not a GraphView data file: " + f);
+			}
+			segments = new MappedByteBuffer[0];
+			ensureCapacity((channel.size() - HEADER_SIZE) >> 3);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param index 0 .. capacity-1
+	 */
+	double get(long index) {
+		MappedByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+		return segment.getDouble(((int) index & SEGMENT_MASK) << 3);
+	}
+
+	/**
+	 * writes a value, the file grows if needed
+	 */
+	void set(long index, double value) throws IOException {
+		if (index >= capacity) {
+			ensureCapacity(index + 1);
+		}
+		MappedByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+		segment.putDouble(((int) index & SEGMENT_MASK) << 3, value);
+	}
+
+	/**
+	 * @param i 0 .. 2
+	 */
+	long getHeader(int i) {
+		return header.getLong(8 + i * 8);
+	}
+
+	/**
+	 * @param i 0 .. 2
+	 */
+	void setHeader(int i, long value) {
+		header.putLong(8 + i * 8, value);
+	}
+
+	/**
+	 * shortens the file, so that it holds the first size doubles like a new file.
+	 * The old mapping must not be read anymore, so this may only be called while no other thread
+	 * reads the array, e.g. right after opening.
+	 */
+	void truncate(long size) throws IOException {
+		segments = new MappedByteBuffer[0];
+		capacity = 0;
+		ensureCapacity(size);
+		long length = HEADER_SIZE + (capacity << 3);
+		if (channel.size() > length) {
+			channel.truncate(length);
+		}
+	}
+
+	/**
+	 * maps the file, so that it holds at least minCapacity doubles
+	 */
+	private void ensureCapacity(long minCapacity) throws IOException {
+		if (minCapacity <= capacity) {
+			return;
+		}
+		MappedByteBuffer[] current = segments;
+		int count = (int) ((minCapacity + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+		MappedByteBuffer[] newSegments = new MappedByteBuffer[count];
+		// the complete segments stay
+		int complete = (int) (capacity >>> SEGMENT_SHIFT);
+		System.arraycopy(current, 0, newSegments, 0, complete);
+		for (int i=complete; i<count; i++) {
+			int size = SEGMENT_SIZE;
+			if (i == count - 1) {
+				// the last segment grows by doubling
+				long needed = minCapacity - ((long) i << SEGMENT_SHIFT);
+				long mapped = (capacity - ((long) i << SEGMENT_SHIFT)) * 2;
+				size = (int) Math.min(SEGMENT_SIZE, Math.max(Math.max(needed, mapped), MIN_MAPPING));
+			}
+			long position = HEADER_SIZE + ((long) i << (SEGMENT_SHIFT + 3));
+			// mapping beyond the end of the file makes the file larger
+			newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) size << 3);
+		}
+		capacity = ((long) (count - 1) << SEGMENT_SHIFT) + newSegments[count - 1].capacity() / 8;
+		segments = newSegments;
+	}
+
+	/**
+	 * writes the changes to the storage device
+	 */
+	void force() {
+		header.force();
+		MappedByteBuffer[] current = segments;
+		for (int i=0; i<current.length; i++) {
+			current[i].force();
+		}
+	}
+
+	/**
+	 * closes the file. The mapping stays valid until it is garbage collected
+	 */
+	void close() throws IOException {
+		channel.close();
+		file.close();
+	}
+}
@@ -0,0 +1,471 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * the data of a series in a memory mapped file of fixed width (x, y) records,
+ * for histories that are too large for the heap.
+ * A second file (name + ".pages") holds the smallest and largest y value of every
+ * page of {@link #PAGE_SIZE} records, so the y range and the values of a zoomed out
+ * viewport are read from the page summaries.
+ * The graph only reads the pages under the viewport, and never more than
+ * about 4 values per pixel column are copied to the heap, so the heap use doesn't depend
+ * on the number of values.
+ *
+ * Appending writes after the visible values and grows the mapping. Old values
+ * are never overwritten while appending, so the graph reads without locking. If values are lost
+ * because of maxDataCount, they stay in the file, it is not compacted.
+ * {@link #setValues(double[], double[])} writes from the start of the file, the unused
+ * end of the file is removed when it is opened again.
+ */
+final class MappedSeriesData extends SeriesStore {
+	/**
+	 * records per page, 4 KB
+	 */
+	static final int PAGE_SHIFT = 8;
+	static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	/**
+	 * header of the records file: index of the first visible record and end of the records
+	 */
+	private static final int HEADER_FIRST = 0;
+	private static final int HEADER_END = 1;
+	/**
+	 * header of the pages file: number of records that are summarized
+	 */
+	private static final int HEADER_RECORDS = 0;
+
+	/**
+	 * the visible records first .. end-1
+	 */
+	static final class Window {
+		final long first;
+		final long end;
+
+		Window(long first, long end) {
+			this.first = first;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * x and y of record i at 2*i and 2*i+1
+	 */
+	private final MappedDoubleArray records;
+	/**
+	 * min y, max y, index of min and index of max of page p at 4*p .. 4*p+3
+	 */
+	private final MappedDoubleArray pages;
+	/**
+	 * readers just read the field, writers replace it while holding the lock
+	 */
+	volatile Window window;
+
+	/**
+	 * opens the file or creates it, if it doesn't exist.
+	 * If the pages file doesn't match the records, it is rebuilt.
+	 * The records after the end, e.g. of values that were replaced, are removed from the files.
+	 */
+	MappedSeriesData(File file) throws IOException {
+		records = new MappedDoubleArray(file);
+		try {
+			pages = new MappedDoubleArray(new File(file.getPath() + ".pages"));
+		} catch (IOException e) {
+			records.close();
+			throw e;
+		}
+		long end = records.getHeader(HEADER_END);
+		if (pages.getHeader(HEADER_RECORDS) != end) {
+			// not closed properly
+			for (long i=0; i<end; i++) {
+				updatePage(i, records.get(i*2+1));
+			}
+			pages.setHeader(HEADER_RECORDS, end);
+		}
+		try {
+			// nothing reads the arrays yet
+			records.truncate(end * 2);
+			pages.truncate(((end + PAGE_SIZE - 1) >> PAGE_SHIFT) * 4);
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		window = new Window(records.getHeader(HEADER_FIRST), end);
+	}
+
+	@Override
+	int getSize() {
+		Window current = window;
+		return (int) (current.end - current.first);
+	}
+
+	@Override
+	double getX(int index) {
+		return records.get((window.first + index) * 2);
+	}
+
+	@Override
+	double getY(int index) {
+		return records.get((window.first + index) * 2 + 1);
+	}
+
+	@Override
+	double getFirstX() {
+		Window current = window;
+		return current.end == current.first ? Double.NaN : records.get(current.first * 2);
+	}
+
+	@Override
+	double getLastX() {
+		Window current = window;
+		return current.end == current.first ? Double.NaN : records.get((current.end - 1) * 2);
+	}
+
+	@Override
+	synchronized void append(double valueX, double valueY, int maxDataCount) {
+		Window current = window;
+		try {
+			write(current.end, valueX, valueY);
+		} catch (IOException e) {
+			throw new RuntimeException("could not grow the mapped file", e);
+		}
+		publish(current.end + 1, maxDataCount);
+	}
+
+	@Override
+	synchronized void append(double[] valuesX, double[] valuesY, int maxDataCount) {
+		Window current = window;
+		// only the values that stay visible
+		int count = Math.min(valuesX.length, maxDataCount);
+		long end = current.end;
+		try {
+			for (int i=valuesX.length-count; i<valuesX.length; i++) {
+				write(end++, valuesX[i], valuesY[i]);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("could not grow the mapped file", e);
+		}
+		publish(end, maxDataCount);
+	}
+
+	/**
+	 * the new values are written from the start of the file, so the file doesn't grow with every reset.
+	 * The series is empty while they are written, a frame that is drawn from the old values
+	 * meanwhile may show some of the new values, the graph is redrawn afterwards.
+	 */
+	@Override
+	synchronized void setValues(double[] valuesX, double[] valuesY) {
+		if (valuesX.length != valuesY.length) {
+			throw new IllegalArgumentException("valuesX and valuesY must have the same length");
+		}
+		// empty first, so that a file that is not closed properly doesn't mix the old and the new values
+		window = new Window(0, 0);
+		publish(0, Integer.MAX_VALUE);
+		try {
+			for (int i=0; i<valuesX.length; i++) {
+				write(i, valuesX[i], valuesY[i]);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("could not grow the mapped file", e);
+		}
+		publish(valuesX.length, Integer.MAX_VALUE);
+	}
+
+	private void write(long index, double valueX, double valueY) throws IOException {
+		records.set(index*2, valueX);
+		records.set(index*2+1, valueY);
+		updatePage(index, valueY);
+	}
+
+	/**
+	 * makes the records up to end visible, after they were written
+	 */
+	private void publish(long end, int maxDataCount) {
+		long first = Math.max(window.first, end - maxDataCount);
+		pages.setHeader(HEADER_RECORDS, end);
+		records.setHeader(HEADER_FIRST, first);
+		records.setHeader(HEADER_END, end);
+		window = new Window(first, end);
+	}
+
+	private void updatePage(long index, double valueY) throws IOException {
+		long page = (index >> PAGE_SHIFT) * 4;
+		if ((index & PAGE_MASK) == 0) {
+			// first record of the page
+			pages.set(page, valueY);
+			pages.set(page+1, valueY);
+			pages.set(page+2, index);
+			pages.set(page+3, index);
+			return;
+		}
+		if (valueY < pages.get(page)) {
+			pages.set(page, valueY);
+			pages.set(page+2, index);
+		}
+		if (valueY > pages.get(page+1)) {
+			pages.set(page+1, valueY);
+			pages.set(page+3, index);
+		}
+	}
+
+	/**
+	 * the values are always aggregated per column
+	 */
+	@Override
+	boolean isLevelOfDetailEnabled() {
+		return true;
+	}
+
+	@Override
+	void setLevelOfDetailEnabled(boolean enabled) {
+	}
+
+	@Override
+	void slice(ValuesRange range, double viewportStart, double viewportSize, int columns) {
+		Window current = window;
+		long from;
+		long to;
+		if (viewportStart == 0 && viewportSize == 0) {
+			// all data
+			from = current.first;
+			to = current.end;
+		} else {
+			// viewport
+			from = lowerBound(current.first, current.end, viewportStart);
+			if (from > current.first) {
+				from--; // one before, for nice scrolling
+			}
+			to = upperBound(from, current.end, viewportStart+viewportSize);
+			if (to < current.end) {
+				to++; // one more for nice scrolling
+			}
+		}
+		range.visited = (int) (to - from);
+		setMinMax(range, from, to);
+
+		range.ensureBuffers(columns > 0 ? (columns + 3) * 4 : 0);
+		range.valuesX = range.levelOfDetailX;
+		range.valuesY = range.levelOfDetailY;
+		range.from = 0;
+		if (columns <= 0) {
+			// only the y range is needed
+			range.to = 0;
+		} else if (to - from <= columns * 4) {
+			// every value
+			int n = 0;
+			for (long i=from; i<to; i++) {
+				range.valuesX[n] = records.get(i*2);
+				range.valuesY[n++] = records.get(i*2+1);
+			}
+			range.to = n;
+		} else {
+			range.to = aggregate(from, to, columns, range.valuesX, range.valuesY);
+		}
+	}
+
+	/**
+	 * smallest and largest y value of the records from .. to-1, the complete pages from the summaries
+	 */
+	private void setMinMax(ValuesRange range, long from, long to) {
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		long pageFrom = (from + PAGE_SIZE - 1) >> PAGE_SHIFT;
+		long pageTo = to >> PAGE_SHIFT;
+		if (pageFrom >= pageTo) {
+			// no complete page
+			pageFrom = pageTo = to;
+		}
+		for (long i=from; i<Math.min(to, pageFrom << PAGE_SHIFT); i++) {
+			double y = records.get(i*2+1);
+			if (y < smallest) smallest = y;
+			if (y > largest) largest = y;
+		}
+		for (long p=pageFrom; p<pageTo; p++) {
+			double min = pages.get(p*4);
+			double max = pages.get(p*4+1);
+			if (min < smallest) smallest = min;
+			if (max > largest) largest = max;
+		}
+		for (long i=Math.max(from, pageTo << PAGE_SHIFT); i<to; i++) {
+			double y = records.get(i*2+1);
+			if (y < smallest) smallest = y;
+			if (y > largest) largest = y;
+		}
+		range.minY = smallest;
+		range.maxY = largest;
+	}
+
+	/**
+	 * writes first, min, max and last value of groups of records, about 1 group per column.
+	 * Groups of complete pages are aggregated from the page summaries, without reading the records
+	 * between the first and the last record of the group.
+	 * @return number of values written, at most (columns + 3) * 4
+	 */
+	private int aggregate(long from, long to, int columns, double[] outX, double[] outY) {
+		long groupSize = (to - from + columns - 1) / columns;
+		int n = 0;
+		if (groupSize < PAGE_SIZE) {
+			for (long start=from; start<to; start+=groupSize) {
+				n = writeRecords(start, Math.min(to, start + groupSize), outX, outY, n);
+			}
+			return n;
+		}
+		// groups of complete pages, the incomplete pages at the borders are read
+		long pagesPerGroup = (groupSize + PAGE_SIZE - 1) >> PAGE_SHIFT;
+		long pageFrom = (from + PAGE_SIZE - 1) >> PAGE_SHIFT;
+		long pageTo = to >> PAGE_SHIFT;
+		n = writeRecords(from, pageFrom << PAGE_SHIFT, outX, outY, n);
+		for (long p=pageFrom; p<pageTo; p+=pagesPerGroup) {
+			n = writePages(p, Math.min(pageTo, p + pagesPerGroup), outX, outY, n);
+		}
+		return writeRecords(Math.max(from, pageTo << PAGE_SHIFT), to, outX, outY, n);
+	}
+
+	/**
+	 * aggregates the records from .. to-1 to one group
+	 */
+	private int writeRecords(long from, long to, double[] outX, double[] outY, int n) {
+		if (from >= to) {
+			return n;
+		}
+		long min = from;
+		long max = from;
+		double minY = records.get(from*2+1);
+		double maxY = minY;
+		for (long i=from+1; i<to; i++) {
+			double y = records.get(i*2+1);
+			if (y < minY) {
+				minY = y;
+				min = i;
+			}
+			if (y > maxY) {
+				maxY = y;
+				max = i;
+			}
+		}
+		return writeGroup(from, min, minY, records.get(min*2), max, maxY, records.get(max*2), to - 1, outX, outY, n);
+	}
+
+	/**
+	 * aggregates the complete pages pageFrom .. pageTo-1 to one group.
+	 * The x of the smallest and largest value are not read, they are drawn at the
+	 * x of the first and the last value, the group is not wider than a column.
+	 */
+	private int writePages(long pageFrom, long pageTo, double[] outX, double[] outY, int n) {
+		long min = 0;
+		long max = 0;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (long p=pageFrom; p<pageTo; p++) {
+			double y = pages.get(p*4);
+			if (y < minY) {
+				minY = y;
+				min = (long) pages.get(p*4+2);
+			}
+			y = pages.get(p*4+1);
+			if (y > maxY) {
+				maxY = y;
+				max = (long) pages.get(p*4+3);
+			}
+		}
+		long first = pageFrom << PAGE_SHIFT;
+		long last = (pageTo << PAGE_SHIFT) - 1;
+		double firstX = records.get(first*2);
+		double lastX = records.get(last*2);
+		return writeGroup(first, min, minY, min < max ? firstX : lastX, max, maxY, min < max ? lastX : firstX, last, outX, outY, n);
+	}
+
+	/**
+	 * writes the first, smallest, largest and last value of a group in their original order, without duplicates,
+	 * like {@link Decimation#writeGroup(double[], double[], int, int, int, int, double[], double[], int)}
+	 */
+	private int writeGroup(long first, long min, double minY, double minX, long max, double maxY, double maxX, long last, double[] outX, double[] outY, int n) {
+		outX[n] = records.get(first*2);
+		outY[n++] = records.get(first*2+1);
+		boolean minFirst = min <= max;
+		long low = minFirst ? min : max;
+		long high = minFirst ? max : min;
+		if (low != first && low != last) {
+			outX[n] = minFirst ? minX : maxX;
+			outY[n++] = minFirst ? minY : maxY;
+		}
+		if (high != low && high != last) {
+			outX[n] = minFirst ? maxX : minX;
+			outY[n++] = minFirst ? maxY : minY;
+		}
+		if (last != first) {
+			outX[n] = records.get(last*2);
+			outY[n++] = records.get(last*2+1);
+		}
+		return n;
+	}
+
+	/**
+	 * @return the first record in from..to-1 with x >= value, or to
+	 */
+	private long lowerBound(long from, long to, double value) {
+		long low = from;
+		long high = to;
+		while (low < high) {
+			long mid = (low + high) >>> 1;
+			if (records.get(mid*2) < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the first record in from..to-1 with x > value, or to
+	 */
+	private long upperBound(long from, long to, double value) {
+		long low = from;
+		long high = to;
+		while (low < high) {
+			long mid = (low + high) >>> 1;
+			if (records.get(mid*2) <= value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * writes the changes to the storage device
+	 */
+	synchronized void force() {
+		records.force();
+		pages.force();
+	}
+
+	@Override
+	synchronized void close() throws IOException {
+		records.close();
+		pages.close();
+	}
+}
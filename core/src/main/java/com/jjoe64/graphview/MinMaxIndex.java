@@ -0,0 +1,173 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+/**
+ * index to get the minimal and maximal y value of a part of a series
+ * in logarithmic time.
+ * The values are grouped in blocks of {@link #BLOCK_SIZE}. A segment tree
+ * holds the min/max of the blocks, the values at the borders of a range
+ * are compared directly.
+ */
+final class MinMaxIndex {
+	static final int BLOCK_SHIFT = 5;
+	static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	private double[] values;
+	private int blocks;
+	/**
+	 * segment trees, the leaves (blocks) are at blocks .. 2*blocks-1
+	 */
+	private double[] treeMin;
+	private double[] treeMax;
+
+	/**
+	 * @param values the array to index. It has to be rebuilt if the array changes, except for {@link #update(int)}.
+	 */
+	void rebuild(double[] values) {
+		this.values = values;
+		blocks = Math.max(1, (values.length + BLOCK_SIZE - 1) >> BLOCK_SHIFT);
+		if (treeMin == null || treeMin.length != blocks * 2) {
+			treeMin = new double[blocks * 2];
+			treeMax = new double[blocks * 2];
+		}
+		for (int b=0; b<blocks; b++) {
+			updateBlock(b);
+		}
+		for (int i=blocks-1; i>0; i--) {
+			updateNode(i);
+		}
+	}
+
+	/**
+	 * has to be called after values[index] was changed
+	 * @param index
+	 */
+	void update(int index) {
+		int i = (index >> BLOCK_SHIFT) + blocks;
+		updateBlock(index >> BLOCK_SHIFT);
+		for (i >>= 1; i > 0; i >>= 1) {
+			updateNode(i);
+		}
+	}
+
+	/**
+	 * has to be called after values[from] .. values[to-1] were changed.
+	 * Every block and node is updated only once.
+	 */
+	void update(int from, int to) {
+		if (from >= to) {
+			return;
+		}
+		int blockFrom = from >> BLOCK_SHIFT;
+		int blockTo = (to - 1) >> BLOCK_SHIFT;
+		for (int b=blockFrom; b<=blockTo; b++) {
+			updateBlock(b);
+		}
+		for (int l=(blockFrom+blocks) >> 1, r=(blockTo+blocks) >> 1; l > 0; l>>=1, r>>=1) {
+			for (int i=l; i<=r; i++) {
+				updateNode(i);
+			}
+		}
+	}
+
+	/**
+	 * @return the largest value of values[from] .. values[to-1], or -Infinity if the range is empty
+	 */
+	double getMax(int from, int to) {
+		double largest = Double.NEGATIVE_INFINITY;
+		if (from >= to) {
+			return largest;
+		}
+		int blockFrom = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+		int blockTo = to >> BLOCK_SHIFT;
+		if (blockFrom >= blockTo) {
+			// no complete block
+			for (int i=from; i<to; i++)
+				if (values[i] > largest)
+					largest = values[i];
+			return largest;
+		}
+		for (int i=from; i<blockFrom << BLOCK_SHIFT; i++)
+			if (values[i] > largest)
+				largest = values[i];
+		for (int i=blockTo << BLOCK_SHIFT; i<to; i++)
+			if (values[i] > largest)
+				largest = values[i];
+		for (int l=blockFrom+blocks, r=blockTo+blocks; l<r; l>>=1, r>>=1) {
+			if ((l & 1) == 1 && treeMax[l++] > largest)
+				largest = treeMax[l-1];
+			if ((r & 1) == 1 && treeMax[--r] > largest)
+				largest = treeMax[r];
+		}
+		return largest;
+	}
+
+	/**
+	 * @return the smallest value of values[from] .. values[to-1], or Infinity if the range is empty
+	 */
+	double getMin(int from, int to) {
+		double smallest = Double.POSITIVE_INFINITY;
+		if (from >= to) {
+			return smallest;
+		}
+		int blockFrom = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+		int blockTo = to >> BLOCK_SHIFT;
+		if (blockFrom >= blockTo) {
+			// no complete block
+			for (int i=from; i<to; i++)
+				if (values[i] < smallest)
+					smallest = values[i];
+			return smallest;
+		}
+		for (int i=from; i<blockFrom << BLOCK_SHIFT; i++)
+			if (values[i] < smallest)
+				smallest = values[i];
+		for (int i=blockTo << BLOCK_SHIFT; i<to; i++)
+			if (values[i] < smallest)
+				smallest = values[i];
+		for (int l=blockFrom+blocks, r=blockTo+blocks; l<r; l>>=1, r>>=1) {
+			if ((l & 1) == 1 && treeMin[l++] < smallest)
+				smallest = treeMin[l-1];
+			if ((r & 1) == 1 && treeMin[--r] < smallest)
+				smallest = treeMin[r];
+		}
+		return smallest;
+	}
+
+	private void updateBlock(int block) {
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		int end = Math.min(values.length, (block + 1) << BLOCK_SHIFT);
+		for (int i=block << BLOCK_SHIFT; i<end; i++) {
+			if (values[i] < smallest)
+				smallest = values[i];
+			if (values[i] > largest)
+				largest = values[i];
+		}
+		treeMin[block + blocks] = smallest;
+		treeMax[block + blocks] = largest;
+	}
+
+	private void updateNode(int i) {
+		treeMin[i] = Math.min(treeMin[2*i], treeMin[2*i+1]);
+		treeMax[i] = Math.max(treeMax[2*i], treeMax[2*i+1]);
+	}
+}
@@ -0,0 +1,581 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the data of a series that is loaded from a {@link GraphViewDataSource} when it is in the viewport.
+ * The x axis is split into pages. Their width is the power of 2 between half the viewport size
+ * and the viewport size, so the viewport shows at most 3 pages and every zoom level has its own pages.
+ * A page has about 4 values per pixel column, a page that was loaded with fewer values
+ * (e.g. before the view became wider) is loaded again. Pages with more values are kept, so graphs
+ * of different widths that show the same series don't load the pages again and again.
+ * Missing pages are loaded in the background, until then a coarser page is drawn if it was loaded
+ * before. The last {@link #CACHE_PAGES} pages are kept.
+ * If a visible page can't be loaded, the graph is redrawn after a delay that doubles with every
+ * failure, so the page is loaded again while it is visible.
+ *
+ * While the user scrolls or scales, the pages that will be visible next are loaded ahead
+ * (prefetched): the pages in scroll direction, or the pages of the next finer or coarser
+ * zoom level. Every prediction replaces the previous one, prefetches that are no longer
+ * predicted (e.g. the direction changed) are dropped before they are loaded.
+ */
+final class PagedSeriesData extends SeriesStore {
+	/**
+	 * number of pages that are kept
+	 */
+	static final int CACHE_PAGES = 64;
+	/**
+	 * how many zoom levels coarser pages are searched, if a page is missing
+	 */
+	private static final int FALLBACK_LEVELS = 16;
+	private static final int VALUES_PER_COLUMN = 4;
+	/**
+	 * how far ahead pages are prefetched while scrolling, in seconds at the current velocity
+	 */
+	private static final double PREFETCH_SECONDS = 0.5;
+	/**
+	 * at most this many pages are prefetched in scroll direction
+	 */
+	private static final int MAX_PREFETCH_PAGES = 4;
+	/**
+	 * delay after the first failed load of a page, doubled for every further failure
+	 */
+	private static final long RETRY_DELAY_MILLIS = 250;
+	private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+	/**
+	 * at most this many failed pages are remembered
+	 */
+	private static final int MAX_FAILURES = 64;
+
+	/**
+	 * redraws the graphs of the failed pages after the delay, shared by all series
+	 */
+	private static ScheduledExecutorService retryExecutor;
+
+	/**
+	 * page of a zoom level. The page covers index * 2^level .. (index+1) * 2^level
+	 */
+	static final class Key {
+		int level;
+		long index;
+
+		Key(int level, long index) {
+			this.level = level;
+			this.index = index;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return level == other.level && index == other.index;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * level + (int) (index ^ (index >>> 32));
+		}
+	}
+
+	static final class Page {
+		final double[] valuesX;
+		final double[] valuesY;
+		final int size;
+		/**
+		 * the maxValues the page was loaded with
+		 */
+		final int maxValues;
+
+		Page(double[] valuesX, double[] valuesY, int size, int maxValues) {
+			this.valuesX = valuesX;
+			this.valuesY = valuesY;
+			this.size = size;
+			this.maxValues = maxValues;
+		}
+	}
+
+	/**
+	 * a page that could not be loaded
+	 */
+	static final class Failure {
+		int count;
+		/**
+		 * System.nanoTime() when the page is loaded again
+		 */
+		long retryTime;
+	}
+
+	/**
+	 * loads one page in the background
+	 */
+	private final class Loader implements Runnable {
+		private final Key key;
+		// guarded by PagedSeriesData.this
+		/**
+		 * the values of the page, the columns of the last request
+		 */
+		int maxValues;
+		/**
+		 * the page is visible, it is loaded in any case
+		 */
+		boolean demanded;
+		/**
+		 * the prediction that prefetches the page
+		 */
+		int generation;
+
+		Loader(Key key) {
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			int maxValues;
+			synchronized (PagedSeriesData.this) {
+				if (!demanded && generation != prefetchGeneration) {
+					// outdated prefetch
+					pending.remove(key);
+					return;
+				}
+				maxValues = this.maxValues;
+			}
+			double width = getPageWidth(key.level);
+			double[] valuesX = new double[maxValues];
+			double[] valuesY = new double[maxValues];
+			Page page = null;
+			try {
+				int size = source.load(key.index * width, (key.index + 1) * width, maxValues, valuesX, valuesY);
+				page = new Page(valuesX, valuesY, Math.max(0, Math.min(size, maxValues)), maxValues);
+			} catch (RuntimeException e) {
+				// loaded again after the delay, if it is still visible
+			}
+			long retryDelay = 0;
+			synchronized (PagedSeriesData.this) {
+				pending.remove(key);
+				if (page != null) {
+					pages.put(key, page);
+					failures.remove(key);
+				} else if (demanded) {
+					retryDelay = fail(key);
+				}
+			}
+			Runnable listener = loadListener;
+			if (listener == null) {
+				return;
+			}
+			if (page != null) {
+				listener.run();
+			} else if (retryDelay > 0) {
+				// the redraw requests the page again, if it is still in the viewport
+				getRetryExecutor().schedule(listener, retryDelay, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	private final GraphViewDataSource source;
+	private final Executor executor;
+	/**
+	 * the executor that was created for this series, shut down by {@link #close()}
+	 */
+	private final ExecutorService ownExecutor;
+	private volatile Runnable loadListener;
+
+	// guarded by this
+	private final Map<Key, Page> pages = new LinkedHashMap<Key, Page>(CACHE_PAGES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Page> eldest) {
+			return size() > CACHE_PAGES;
+		}
+	};
+	private final Map<Key, Loader> pending = new HashMap<Key, Loader>();
+	/**
+	 * the pages that could not be loaded, removed when they are loaded
+	 */
+	private final Map<Key, Failure> failures = new HashMap<Key, Failure>();
+	/**
+	 * the current prediction, prefetches of older predictions are dropped
+	 */
+	private int prefetchGeneration;
+	private final Key lookup = new Key(0, 0);
+	/**
+	 * pixel columns of the last drawn graph, guarded by this
+	 */
+	private int columns = 256;
+
+	// used by slice, guarded by this. slice is called by the drawing thread and the UI thread (y range)
+	private Page[] parts = new Page[4];
+	private int[] partFrom = new int[4];
+	private int[] partTo = new int[4];
+
+	/**
+	 * @param source
+	 * @param executor loads the pages. null = one background thread for this series
+	 */
+	PagedSeriesData(GraphViewDataSource source, Executor executor) {
+		this.source = source;
+		if (executor == null) {
+			ownExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "GraphView data source");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+			this.executor = ownExecutor;
+		} else {
+			ownExecutor = null;
+			this.executor = executor;
+		}
+	}
+
+	/**
+	 * @param loadListener called on the loading thread when a page was loaded,
+	 * and on another thread when a page that could not be loaded should be loaded again
+	 */
+	void setLoadListener(Runnable loadListener) {
+		this.loadListener = loadListener;
+	}
+
+	/**
+	 * the values are loaded for the viewport only
+	 */
+	@Override
+	int getSize() {
+		return 0;
+	}
+
+	@Override
+	double getX(int index) {
+		throw new IndexOutOfBoundsException("the values of a data source are only loaded for the viewport");
+	}
+
+	@Override
+	double getY(int index) {
+		throw new IndexOutOfBoundsException("the values of a data source are only loaded for the viewport");
+	}
+
+	@Override
+	double getFirstX() {
+		return source.getMinX();
+	}
+
+	@Override
+	double getLastX() {
+		return source.getMaxX();
+	}
+
+	@Override
+	void append(double valueX, double valueY, int maxDataCount) {
+		throw new UnsupportedOperationException("the values come from the data source");
+	}
+
+	@Override
+	void append(double[] valuesX, double[] valuesY, int maxDataCount) {
+		throw new UnsupportedOperationException("the values come from the data source");
+	}
+
+	@Override
+	void setValues(double[] valuesX, double[] valuesY) {
+		throw new UnsupportedOperationException("the values come from the data source");
+	}
+
+	/**
+	 * the pages are always loaded with about 4 values per column
+	 */
+	@Override
+	boolean isLevelOfDetailEnabled() {
+		return true;
+	}
+
+	@Override
+	void setLevelOfDetailEnabled(boolean enabled) {
+	}
+
+	/**
+	 * @return the zoom level of the viewport, the page width is 2^level
+	 */
+	static int getLevel(double viewportSize) {
+		if (!(viewportSize > Double.MIN_NORMAL) || Double.isInfinite(viewportSize)) {
+			return 0;
+		}
+		// exponent of the double, not Math.getExponent (API 9)
+		return (int) ((Double.doubleToRawLongBits(viewportSize) >>> 52) & 0x7ff) - 1023;
+	}
+
+	static double getPageWidth(int level) {
+		return Double.longBitsToDouble((long) (level + 1023) << 52);
+	}
+
+	@Override
+	void requestViewport(double viewportStart, double viewportSize, ViewportMotion motion) {
+		if (viewportSize == 0) {
+			// all data
+			viewportStart = source.getMinX();
+			viewportSize = source.getMaxX() - viewportStart;
+		}
+		int level = getLevel(viewportSize);
+		double width = getPageWidth(level);
+		long first = (long) Math.floor(viewportStart / width);
+		long last = (long) Math.floor((viewportStart + viewportSize) / width);
+		synchronized (this) {
+			for (long index=first; index<=last; index++) {
+				Page page = get(level, index);
+				if (page == null || page.maxValues < getMaxValues()) {
+					request(level, index, false);
+				}
+			}
+
+			// a new prediction
+			prefetchGeneration++;
+			if (motion.velocity != 0) {
+				// the pages in scroll direction
+				int ahead = (int) Math.ceil(Math.abs(motion.velocity) * PREFETCH_SECONDS / width);
+				ahead = Math.max(1, Math.min(MAX_PREFETCH_PAGES, ahead));
+				for (int i=1; i<=ahead; i++) {
+					prefetch(level, motion.velocity > 0 ? last + i : first - i);
+				}
+			} else if (motion.zoom != ViewportMotion.ZOOM_NONE) {
+				// the viewport after scaling by 2, around the center
+				double center = viewportStart + viewportSize / 2;
+				double size = motion.zoom == ViewportMotion.ZOOM_IN ? viewportSize / 2 : viewportSize * 2;
+				int nextLevel = getLevel(size);
+				double nextWidth = getPageWidth(nextLevel);
+				long nextLast = (long) Math.floor((center + size / 2) / nextWidth);
+				for (long index=(long) Math.floor((center - size / 2) / nextWidth); index<=nextLast; index++) {
+					prefetch(nextLevel, index);
+				}
+			}
+		}
+	}
+
+	/**
+	 * must hold the lock
+	 */
+	private Page get(int level, long index) {
+		lookup.level = level;
+		lookup.index = index;
+		return pages.get(lookup);
+	}
+
+	/**
+	 * must hold the lock
+	 * @return the number of values of a page, for the columns of the last drawn graph
+	 */
+	private int getMaxValues() {
+		return columns * VALUES_PER_COLUMN;
+	}
+
+	/**
+	 * loads the page in the background, if it isn't loading yet and if it didn't fail
+	 * shortly before. must hold the lock
+	 * @param prefetch true if the page is not visible yet, it is dropped if the next prediction doesn't need it
+	 */
+	private void request(int level, long index, boolean prefetch) {
+		lookup.level = level;
+		lookup.index = index;
+		Loader loader = pending.get(lookup);
+		boolean created = loader == null;
+		if (created) {
+			Failure failure = failures.get(lookup);
+			if (failure != null && System.nanoTime() - failure.retryTime < 0) {
+				// the graph is redrawn when the delay is over
+				return;
+			}
+			loader = new Loader(new Key(level, index));
+			pending.put(loader.key, loader);
+		}
+		// a loader that didn't start yet loads with the current columns
+		loader.maxValues = getMaxValues();
+		if (prefetch) {
+			loader.generation = prefetchGeneration;
+		} else {
+			loader.demanded = true;
+		}
+		if (created) {
+			executor.execute(loader);
+		}
+	}
+
+	/**
+	 * counts a failed load of a visible page. must hold the lock
+	 * @return the delay until the page is loaded again, in milliseconds
+	 */
+	private long fail(Key key) {
+		Failure failure = failures.get(key);
+		if (failure == null) {
+			if (failures.size() >= MAX_FAILURES) {
+				failures.clear();
+			}
+			failure = new Failure();
+			failures.put(key, failure);
+		}
+		long delay = RETRY_DELAY_MILLIS << Math.min(failure.count, 7);
+		delay = Math.min(delay, MAX_RETRY_DELAY_MILLIS);
+		failure.count++;
+		failure.retryTime = System.nanoTime() + delay * 1000000L;
+		return delay;
+	}
+
+	private static synchronized ScheduledExecutorService getRetryExecutor() {
+		if (retryExecutor == null) {
+			retryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "GraphView data source retry");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return retryExecutor;
+	}
+
+	/**
+	 * loads the page ahead, if it isn't in the cache. must hold the lock
+	 */
+	private void prefetch(int level, long index) {
+		lookup.level = level;
+		lookup.index = index;
+		// doesn't count as use of the page
+		if (!pages.containsKey(lookup)) {
+			request(level, index, true);
+		}
+	}
+
+	@Override
+	void slice(ValuesRange range, double viewportStart, double viewportSize, int columns) {
+		if (viewportStart == 0 && viewportSize == 0) {
+			// all data
+			viewportStart = source.getMinX();
+			viewportSize = source.getMaxX() - viewportStart;
+		}
+		int level = getLevel(viewportSize);
+		double width = getPageWidth(level);
+		long first = (long) Math.floor(viewportStart / width);
+		long last = (long) Math.floor((viewportStart + viewportSize) / width);
+
+		// the values of every page, or of a coarser page for this part of the viewport
+		int count = 0;
+		int size = 0;
+		int n = 0;
+		synchronized (this) {
+			if (columns > 0) {
+				this.columns = columns;
+			}
+			for (long index=first; index<=last; index++) {
+				Page page = get(level, index);
+				if (page != null && page.maxValues < getMaxValues()) {
+					// loaded for a smaller graph, drawn until it is loaded again
+					request(level, index, false);
+				} else if (page == null) {
+					request(level, index, false);
+					for (int coarser=level+1; coarser<=level+FALLBACK_LEVELS && page == null; coarser++) {
+						page = get(coarser, index >> (coarser - level));
+					}
+				}
+				if (page == null) {
+					continue;
+				}
+				if (count == parts.length) {
+					growParts();
+				}
+				// a coarser page is larger than this part
+				parts[count] = page;
+				partFrom[count] = ValuesRange.lowerBound(page.valuesX, 0, page.size, index * width);
+				partTo[count] = ValuesRange.lowerBound(page.valuesX, partFrom[count], page.size, (index + 1) * width);
+				size += partTo[count] - partFrom[count];
+				count++;
+			}
+
+			// copied under the lock, the parts are shared by the threads that slice
+			range.ensureBuffers(size);
+			range.valuesX = range.levelOfDetailX;
+			range.valuesY = range.levelOfDetailY;
+			for (int i=0; i<count; i++) {
+				int length = partTo[i] - partFrom[i];
+				System.arraycopy(parts[i].valuesX, partFrom[i], range.valuesX, n, length);
+				System.arraycopy(parts[i].valuesY, partFrom[i], range.valuesY, n, length);
+				n += length;
+				parts[i] = null;
+			}
+		}
+
+		// one value before and after the viewport, for nice scrolling
+		int from = ValuesRange.lowerBound(range.valuesX, 0, n, viewportStart);
+		if (from > 0) {
+			from--;
+		}
+		int to = ValuesRange.upperBound(range.valuesX, from, n, viewportStart + viewportSize);
+		if (to < n) {
+			to++;
+		}
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		for (int i=from; i<to; i++) {
+			double y = range.valuesY[i];
+			if (y < smallest) smallest = y;
+			if (y > largest) largest = y;
+		}
+		range.from = from;
+		range.to = to;
+		range.visited = to - from;
+		range.minY = smallest;
+		range.maxY = largest;
+	}
+
+	private void growParts() {
+		Page[] newParts = new Page[parts.length * 2];
+		int[] newPartFrom = new int[parts.length * 2];
+		int[] newPartTo = new int[parts.length * 2];
+		System.arraycopy(parts, 0, newParts, 0, parts.length);
+		System.arraycopy(partFrom, 0, newPartFrom, 0, parts.length);
+		System.arraycopy(partTo, 0, newPartTo, 0, parts.length);
+		parts = newParts;
+		partFrom = newPartFrom;
+		partTo = newPartTo;
+	}
+
+	/**
+	 * stops the background thread, if it was created for this series
+	 */
+	@Override
+	void close() {
+		if (ownExecutor != null) {
+			ownExecutor.shutdownNow();
+		}
+	}
+}
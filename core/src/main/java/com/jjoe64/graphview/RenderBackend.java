@@ -0,0 +1,85 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * the drawing operations that are needed to draw a graph.
+ * The Android canvas is one implementation, a Java2D graphics is another one,
+ * see {@link GraphRenderer}.
+ * Colors are ARGB ints like android.graphics.Color, sizes are pixels.
+ * The methods are called for every frame, implementations should not create objects.
+ */
+public interface RenderBackend {
+	/**
+	 * horizontal alignment of a text relative to its x position
+	 */
+	public enum Align {
+		LEFT, CENTER, RIGHT
+	}
+
+	/**
+	 * @param width stroke width, 0 = hairline
+	 */
+	public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width);
+
+	/**
+	 * draws many line segments at once
+	 * @param points x/y of the start and end points of the segments, 4 values per segment
+	 * @param count number of values in points that are used
+	 * @param width stroke width, 0 = hairline
+	 */
+	public void drawLines(float[] points, int count, int color, float width);
+
+	public void fillCircle(float centerX, float centerY, float radius, int color);
+
+	public void fillRect(float left, float top, float right, float bottom, int color);
+
+	public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color);
+
+	/**
+	 * fills a closed polygon
+	 * @param points x/y of the corners, 2 values per corner
+	 * @param count number of values in points that are used
+	 */
+	public void fillPolygon(float[] points, int count, int color);
+
+	/**
+	 * @param y baseline of the text
+	 */
+	public void drawText(String text, float x, float y, Align align, int color);
+
+	/**
+	 * @param textSize text size for {@link #drawText(String, float, float, Align, int)} and the measurement
+	 */
+	public void setTextSize(float textSize);
+
+	public float getTextSize();
+
+	/**
+	 * @return width of the bounds of the text
+	 */
+	public int getTextWidth(String text);
+
+	/**
+	 * @return height of the bounds of the text
+	 */
+	public int getTextHeight(String text);
+}
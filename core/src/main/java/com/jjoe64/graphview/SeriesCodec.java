@@ -0,0 +1,274 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * compresses blocks of values like the Gorilla time series database.
+ * Integral x values (e.g. timestamps in milliseconds) are stored as delta of delta,
+ * with 1 bit for evenly spaced values. Other x values and the y values are stored
+ * as XOR of the previous value, so repeated and slowly changing values need few bits.
+ * Every block starts without state, so blocks can be decoded independently.
+ * The file format of {@code GraphViewSeriesWriter} is the header, then the blocks
+ * (count, byte length, bits) and a count of 0 at the end.
+ */
+final class SeriesCodec {
+	/**
+	 * values per block, small enough that one block decodes in a few microseconds
+	 */
+	static final int BLOCK_SIZE = 1024;
+
+	static final int MAGIC = 0x47565331; // GVS1
+	static final int VERSION = 1;
+
+	/**
+	 * most bits of one value: 2 + 6 + 6 + 64 for an x and a y value that don't fit the XOR window
+	 */
+	private static final int MAX_VALUE_BITS = 2 * 78;
+
+	/**
+	 * largest integral value that is stored as delta of delta, 2^53
+	 */
+	private static final double MAX_INTEGRAL = 9007199254740992d;
+
+	private SeriesCodec() {
+	}
+
+	/**
+	 * writes the values from .. from+count-1
+	 * @param count > 0
+	 */
+	static void encode(double[] valuesX, double[] valuesY, int from, int count, BitBuffer out) {
+		int to = from + count;
+		boolean integral = true;
+		for (int i=from; i<to && integral; i++) {
+			integral = isIntegral(valuesX[i]);
+		}
+		out.writeBit(integral);
+		if (integral) {
+			encodeDeltaOfDelta(valuesX, from, to, out);
+		} else {
+			encodeXor(valuesX, from, to, out);
+		}
+		encodeXor(valuesY, from, to, out);
+	}
+
+	/**
+	 * reads count values into offset .. offset+count-1
+	 */
+	static void decode(BitBuffer in, int count, double[] valuesX, double[] valuesY, int offset) {
+		int to = offset + count;
+		if (in.readBit()) {
+			decodeDeltaOfDelta(in, valuesX, offset, to);
+		} else {
+			decodeXor(in, valuesX, offset, to);
+		}
+		decodeXor(in, valuesY, offset, to);
+	}
+
+	/**
+	 * @return the largest number of bytes that count values can be encoded to
+	 */
+	static int maxByteLength(int count) {
+		return (1 + count * MAX_VALUE_BITS + 7) >>> 3;
+	}
+
+	static void writeHeader(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+	}
+
+	/**
+	 * @throws IOException if the input is not a series or has an other version
+	 */
+	static void readHeader(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a GraphView series");
+		}
+		int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("unsupported version " + version);
+		}
+	}
+
+	/**
+	 * encodes and writes the values 0 .. count-1 as one block
+	 * @param count 1 .. BLOCK_SIZE
+	 * @param bits buffer for the encoded values
+	 */
+	static void writeBlock(DataOutput out, double[] valuesX, double[] valuesY, int count, BitBuffer bits) throws IOException {
+		bits.clear();
+		encode(valuesX, valuesY, 0, count, bits);
+		out.writeInt(count);
+		out.writeInt(bits.getByteLength());
+		out.write(bits.bytes, 0, bits.getByteLength());
+	}
+
+	static void writeEnd(DataOutput out) throws IOException {
+		out.writeInt(0);
+	}
+
+	/**
+	 * reads the next block into bits, decode it with {@link #decodeBlock(BitBuffer, int, double[], double[])}
+	 * @return number of values of the block, 0 at the end
+	 * @throws IOException if the block is corrupt
+	 */
+	static int readBlock(DataInput in, BitBuffer bits) throws IOException {
+		int count = in.readInt();
+		if (count == 0) {
+			return 0;
+		}
+		int byteLength = in.readInt();
+		if (count < 0 || count > BLOCK_SIZE || byteLength <= 0 || byteLength > maxByteLength(count)) {
+			throw new IOException("corrupt block");
+		}
+		bits.ensureCapacity(byteLength);
+		in.readFully(bits.bytes, 0, byteLength);
+		bits.reset(byteLength);
+		return count;
+	}
+
+	/**
+	 * decodes a block that was read by {@link #readBlock(DataInput, BitBuffer)} into 0 .. count-1
+	 * @throws IOException if the bits don't match count
+	 */
+	static void decodeBlock(BitBuffer bits, int count, double[] valuesX, double[] valuesY) throws IOException {
+		try {
+			decode(bits, count, valuesX, valuesY, 0);
+		} catch (IllegalStateException e) {
+			throw new IOException("corrupt block");
+		}
+		if (bits.length - bits.position >= 8) {
+			// the writer pads only the last byte
+			throw new IOException("corrupt block");
+		}
+	}
+
+	/**
+	 * @return true if the value is stored exactly as long (also not -0)
+	 */
+	private static boolean isIntegral(double value) {
+		return Math.abs(value) <= MAX_INTEGRAL
+				&& Double.doubleToRawLongBits((double) (long) value) == Double.doubleToRawLongBits(value);
+	}
+
+	private static void encodeDeltaOfDelta(double[] values, int from, int to, BitBuffer out) {
+		long previous = (long) values[from];
+		out.write(previous, 64);
+		long previousDelta = 0;
+		for (int i=from+1; i<to; i++) {
+			long value = (long) values[i];
+			long delta = value - previous;
+			long deltaOfDelta = delta - previousDelta;
+			if (deltaOfDelta == 0) {
+				out.write(0, 1);
+			} else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+				out.write(2, 2);
+				out.write(deltaOfDelta + 63, 7);
+			} else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+				out.write(6, 3);
+				out.write(deltaOfDelta + 255, 9);
+			} else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+				out.write(14, 4);
+				out.write(deltaOfDelta + 2047, 12);
+			} else {
+				out.write(15, 4);
+				out.write(deltaOfDelta, 64);
+			}
+			previous = value;
+			previousDelta = delta;
+		}
+	}
+
+	private static void decodeDeltaOfDelta(BitBuffer in, double[] values, int from, int to) {
+		long previous = in.read(64);
+		values[from] = previous;
+		long delta = 0;
+		for (int i=from+1; i<to; i++) {
+			if (in.readBit()) {
+				if (!in.readBit()) {
+					delta += in.read(7) - 63;
+				} else if (!in.readBit()) {
+					delta += in.read(9) - 255;
+				} else if (!in.readBit()) {
+					delta += in.read(12) - 2047;
+				} else {
+					delta += in.read(64);
+				}
+			}
+			previous += delta;
+			values[i] = previous;
+		}
+	}
+
+	private static void encodeXor(double[] values, int from, int to, BitBuffer out) {
+		long previous = Double.doubleToRawLongBits(values[from]);
+		out.write(previous, 64);
+		// no window yet
+		int previousLeading = -1;
+		int previousTrailing = 0;
+		for (int i=from+1; i<to; i++) {
+			long bits = Double.doubleToRawLongBits(values[i]);
+			long xor = bits ^ previous;
+			if (xor == 0) {
+				out.write(0, 1);
+			} else {
+				int leading = Long.numberOfLeadingZeros(xor);
+				int trailing = Long.numberOfTrailingZeros(xor);
+				if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+					// fits into the window of the previous value
+					out.write(2, 2);
+					out.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+				} else {
+					int significant = 64 - leading - trailing;
+					out.write(3, 2);
+					out.write(leading, 6);
+					out.write(significant - 1, 6);
+					out.write(xor >>> trailing, significant);
+					previousLeading = leading;
+					previousTrailing = trailing;
+				}
+			}
+			previous = bits;
+		}
+	}
+
+	private static void decodeXor(BitBuffer in, double[] values, int from, int to) {
+		long previous = in.read(64);
+		values[from] = Double.longBitsToDouble(previous);
+		int leading = 0;
+		int trailing = 0;
+		for (int i=from+1; i<to; i++) {
+			if (in.readBit()) {
+				if (in.readBit()) {
+					leading = (int) in.read(6);
+					int significant = (int) in.read(6) + 1;
+					trailing = 64 - leading - significant;
+				}
+				previous ^= in.read(64 - leading - trailing) << trailing;
+			}
+			values[i] = Double.longBitsToDouble(previous);
+		}
+	}
+}
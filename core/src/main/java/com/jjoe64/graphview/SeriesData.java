@@ -0,0 +1,374 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * the data of a series: sorted primitive x/y arrays, with the indices for
+ * fast min/max and zoomed out drawing.
+ * Writers hold the lock of this object. Readers {@link #acquire(Snapshot)} the
+ * current values without locking, and {@link #release(Snapshot)} them when they are drawn.
+ * Appending to a sliding window alternates between two buffers and doesn't create objects.
+ * No Android classes are used, so the data structures can be used and
+ * benchmarked on a plain JVM.
+ */
+final class SeriesData extends SeriesStore {
+	/**
+	 * arrays and indices of the values.
+	 * Values are only written behind the visible values, so the values that a reader
+	 * has seen never change, until the buffer is refilled. A buffer is only refilled
+	 * if no reader acquired it.
+	 */
+	static final class Buffer {
+		final double[] valuesX;
+		final double[] valuesY;
+		final MinMaxIndex minMaxIndex = new MinMaxIndex();
+		/**
+		 * pre-aggregated values for zoomed out drawing, null if disabled.
+		 * replaced by a new object if it is enabled, readers may still use the old one.
+		 */
+		volatile LevelOfDetail levelOfDetail;
+		/**
+		 * offset in the high 32 bits, size in the low 32 bits, so both are published at once
+		 */
+		volatile long window;
+		/**
+		 * false if the arrays were passed to {@link SeriesData#setValues(double[], double[])}
+		 */
+		final boolean reusable;
+		/**
+		 * number of readers that acquired this buffer
+		 */
+		final AtomicInteger readers = new AtomicInteger();
+
+		Buffer(double[] valuesX, double[] valuesY, boolean reusable) {
+			this.valuesX = valuesX;
+			this.valuesY = valuesY;
+			this.reusable = reusable;
+		}
+
+		int getOffset() {
+			return (int) (window >>> 32);
+		}
+
+		int getSize() {
+			return (int) window;
+		}
+
+		void setWindow(int offset, int size) {
+			window = ((long) offset << 32) | (size & 0xffffffffL);
+		}
+	}
+
+	/**
+	 * the values of a series at one point in time, filled by {@link SeriesData#acquire(Snapshot)}.
+	 * The values offset .. offset+size-1 of the arrays, and the parts of the indices
+	 * that cover them, don't change until the snapshot is released.
+	 * Readers reuse their instance for every frame.
+	 */
+	static final class Snapshot {
+		/**
+		 * x values, sorted ascending. only the entries offset .. offset+size-1 are valid.
+		 */
+		double[] valuesX;
+		/**
+		 * y values, parallel to {@link #valuesX}
+		 */
+		double[] valuesY;
+		int offset;
+		int size;
+		/**
+		 * min/max of the y values, to get the y range of the viewport fast
+		 */
+		MinMaxIndex minMaxIndex;
+		/**
+		 * pre-aggregated values for zoomed out drawing, null if disabled
+		 */
+		LevelOfDetail levelOfDetail;
+		/**
+		 * the acquired buffer, null if released
+		 */
+		Buffer buffer;
+	}
+
+	/**
+	 * the buffer with the current values. writers replace it while holding the lock,
+	 * readers just read the field.
+	 */
+	private volatile Buffer current;
+	/**
+	 * the buffer that was replaced by the last copy, refilled by the next copy. guarded by this
+	 */
+	private Buffer spare;
+
+	/**
+	 * @param valuesX x values, sorted ascending. used directly, not copied
+	 * @param valuesY y values, same length as valuesX
+	 */
+	SeriesData(double[] valuesX, double[] valuesY) {
+		setValues(valuesX, valuesY);
+	}
+
+	/**
+	 * fills snapshot with the current values. Their arrays are not refilled
+	 * until {@link #release(Snapshot)} is called, so the snapshot can be read while
+	 * values are appended. Doesn't lock and doesn't create objects.
+	 * @param snapshot released
+	 */
+	void acquire(Snapshot snapshot) {
+		while (true) {
+			Buffer buffer = current;
+			buffer.readers.incrementAndGet();
+			// if the buffer is still current after the reader was counted,
+			// the writer sees the reader before it can refill the buffer
+			if (current == buffer) {
+				long window = buffer.window;
+				snapshot.buffer = buffer;
+				snapshot.valuesX = buffer.valuesX;
+				snapshot.valuesY = buffer.valuesY;
+				snapshot.offset = (int) (window >>> 32);
+				snapshot.size = (int) window;
+				snapshot.minMaxIndex = buffer.minMaxIndex;
+				snapshot.levelOfDetail = buffer.levelOfDetail;
+				return;
+			}
+			buffer.readers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * the arrays of the snapshot may be refilled afterwards. Does nothing if the snapshot is released.
+	 */
+	static void release(Snapshot snapshot) {
+		if (snapshot.buffer != null) {
+			snapshot.buffer.readers.decrementAndGet();
+			snapshot.buffer = null;
+		}
+	}
+
+	@Override
+	int getSize() {
+		return current.getSize();
+	}
+
+	@Override
+	double getX(int index) {
+		Buffer buffer = acquireBuffer();
+		double value = buffer.valuesX[buffer.getOffset()+index];
+		buffer.readers.decrementAndGet();
+		return value;
+	}
+
+	@Override
+	double getY(int index) {
+		Buffer buffer = acquireBuffer();
+		double value = buffer.valuesY[buffer.getOffset()+index];
+		buffer.readers.decrementAndGet();
+		return value;
+	}
+
+	@Override
+	double getFirstX() {
+		Buffer buffer = acquireBuffer();
+		long window = buffer.window;
+		int offset = (int) (window >>> 32);
+		double value = (int) window == 0 ? Double.NaN : buffer.valuesX[offset];
+		buffer.readers.decrementAndGet();
+		return value;
+	}
+
+	@Override
+	double getLastX() {
+		Buffer buffer = acquireBuffer();
+		long window = buffer.window;
+		int offset = (int) (window >>> 32);
+		int size = (int) window;
+		double value = size == 0 ? Double.NaN : buffer.valuesX[offset+size-1];
+		buffer.readers.decrementAndGet();
+		return value;
+	}
+
+	/**
+	 * @return the current buffer, with the reader counted
+	 */
+	private Buffer acquireBuffer() {
+		while (true) {
+			Buffer buffer = current;
+			buffer.readers.incrementAndGet();
+			if (current == buffer) {
+				return buffer;
+			}
+			buffer.readers.decrementAndGet();
+		}
+	}
+
+	@Override
+	void slice(ValuesRange range, double viewportStart, double viewportSize, int columns) {
+		// the acquired values don't change while they are used, no lock needed
+		Snapshot snapshot = range.snapshot;
+		release(snapshot);
+		acquire(snapshot);
+		range.set(snapshot, viewportStart, viewportSize, columns);
+		if (range.valuesX != snapshot.valuesX) {
+			// the aggregated values were copied to the range
+			release(snapshot);
+		}
+	}
+
+	/**
+	 * appends one value.
+	 * The arrays have free space at the end, the new value is written there, so the
+	 * values that readers have acquired are never changed.
+	 * If the end of the arrays is reached, the newest values are copied to a buffer
+	 * twice as large as needed, so appending costs constant time on average.
+	 * With a constant max data count, the same two buffers are used alternately.
+	 * @param maxDataCount > 0. if max data count is reached, the oldest data value will be lost
+	 */
+	@Override
+	synchronized void append(double valueX, double valueY, int maxDataCount) {
+		Buffer buffer = current;
+		int size = buffer.getSize();
+		// values that stay visible
+		int keep = Math.min(size, maxDataCount - 1);
+		int offset = buffer.getOffset() + size - keep;
+		if (offset + keep == buffer.valuesX.length) {
+			// no free space
+			buffer = copy(offset, keep, Math.max((keep + 1) * 2, 16));
+			offset = 0;
+		}
+		int index = offset + keep;
+		buffer.valuesX[index] = valueX;
+		buffer.valuesY[index] = valueY;
+		// only the parts of the indices that contain the new index change
+		buffer.minMaxIndex.update(index);
+		LevelOfDetail levelOfDetail = buffer.levelOfDetail;
+		if (levelOfDetail != null) {
+			levelOfDetail.update(index);
+		}
+		buffer.setWindow(offset, keep + 1);
+		current = buffer;
+	}
+
+	/**
+	 * appends many values at once, the storage grows at most once.
+	 * @param valuesX sorted ascending, not smaller than the last x value
+	 * @param valuesY same length as valuesX
+	 * @param maxDataCount > 0. if max data count is reached, the oldest data values will be lost
+	 */
+	@Override
+	synchronized void append(double[] valuesX, double[] valuesY, int maxDataCount) {
+		Buffer buffer = current;
+		int size = buffer.getSize();
+		// new values that stay visible
+		int count = Math.min(valuesX.length, maxDataCount);
+		// old values that stay visible
+		int keep = Math.min(size, maxDataCount - count);
+		int offset = buffer.getOffset() + size - keep;
+		if (offset + keep + count > buffer.valuesX.length) {
+			// not enough free space
+			buffer = copy(offset, keep, Math.max((keep + count) * 2, 16));
+			offset = 0;
+		}
+		int index = offset + keep;
+		System.arraycopy(valuesX, valuesX.length - count, buffer.valuesX, index, count);
+		System.arraycopy(valuesY, valuesY.length - count, buffer.valuesY, index, count);
+		buffer.minMaxIndex.update(index, index + count);
+		LevelOfDetail levelOfDetail = buffer.levelOfDetail;
+		if (levelOfDetail != null) {
+			levelOfDetail.update(index, index + count);
+		}
+		buffer.setWindow(offset, keep + count);
+		current = buffer;
+	}
+
+	/**
+	 * copies the values that stay visible to the start of the spare buffer and
+	 * rebuilds its indices. The current buffer becomes the spare buffer.
+	 * A new buffer is only created if the spare buffer has another capacity, or
+	 * if a reader still uses it: a reader that acquired the values before the last
+	 * copy may still draw them.
+	 * @param offset index of the first value that stays visible
+	 * @param keep number of values that stay visible
+	 * @return buffer with the values at 0 .. keep-1, not published yet
+	 */
+	private Buffer copy(int offset, int keep, int capacity) {
+		Buffer buffer = spare;
+		if (buffer == null || buffer.valuesX.length != capacity || buffer.readers.get() != 0) {
+			buffer = new Buffer(new double[capacity], new double[capacity], true);
+		}
+		Buffer replaced = current;
+		spare = replaced.reusable ? replaced : null;
+		System.arraycopy(replaced.valuesX, offset, buffer.valuesX, 0, keep);
+		System.arraycopy(replaced.valuesY, offset, buffer.valuesY, 0, keep);
+		buffer.minMaxIndex.rebuild(buffer.valuesY);
+		if (replaced.levelOfDetail == null) {
+			buffer.levelOfDetail = null;
+		} else {
+			LevelOfDetail levelOfDetail = buffer.levelOfDetail;
+			if (levelOfDetail == null) {
+				levelOfDetail = new LevelOfDetail();
+			}
+			levelOfDetail.rebuild(buffer.valuesY);
+			buffer.levelOfDetail = levelOfDetail;
+		}
+		return buffer;
+	}
+
+	@Override
+	boolean isLevelOfDetailEnabled() {
+		return current.levelOfDetail != null;
+	}
+
+	@Override
+	synchronized void setLevelOfDetailEnabled(boolean enabled) {
+		Buffer buffer = current;
+		if (enabled != (buffer.levelOfDetail != null)) {
+			buffer.levelOfDetail = enabled ? createLevelOfDetail(buffer.valuesY) : null;
+		}
+	}
+
+	/**
+	 * replaces the data
+	 * @param valuesX x values, sorted ascending. used directly, not copied
+	 * @param valuesY y values, same length as valuesX
+	 */
+	@Override
+	synchronized void setValues(double[] valuesX, double[] valuesY) {
+		if (valuesX.length != valuesY.length) {
+			throw new IllegalArgumentException("valuesX and valuesY must have the same length");
+		}
+		// the arrays belong to the caller, they are never refilled
+		Buffer buffer = new Buffer(valuesX, valuesY, false);
+		buffer.minMaxIndex.rebuild(valuesY);
+		if (current != null && current.levelOfDetail != null) {
+			buffer.levelOfDetail = createLevelOfDetail(valuesY);
+		}
+		buffer.setWindow(0, valuesX.length);
+		current = buffer;
+	}
+
+	private static LevelOfDetail createLevelOfDetail(double[] valuesY) {
+		LevelOfDetail levelOfDetail = new LevelOfDetail();
+		levelOfDetail.rebuild(valuesY);
+		return levelOfDetail;
+	}
+}
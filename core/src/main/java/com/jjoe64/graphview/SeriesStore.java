@@ -0,0 +1,111 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.io.IOException;
+
+/**
+ * storage of the values of a series, sorted by x.
+ * The graph reads the values without locking, so implementations have to allow
+ * reading from any thread while values are appended.
+ * @see SeriesData
+ * @see MappedSeriesData
+ * @see CompressedSeriesData
+ * @see PagedSeriesData
+ */
+abstract class SeriesStore {
+	/**
+	 * @return number of values
+	 */
+	abstract int getSize();
+
+	/**
+	 * @param index 0 .. size-1
+	 */
+	abstract double getX(int index);
+
+	/**
+	 * @param index 0 .. size-1
+	 */
+	abstract double getY(int index);
+
+	/**
+	 * @return the smallest x value, or NaN if there are no values
+	 */
+	abstract double getFirstX();
+
+	/**
+	 * @return the largest x value, or NaN if there are no values
+	 */
+	abstract double getLastX();
+
+	/**
+	 * sets the range to the values of the viewport
+	 * @param viewportStart
+	 * @param viewportSize 0 and viewportStart 0 = all data
+	 * @param columns pixel columns of the graph. If 0, only the y range is used,
+	 * and stores that would have to copy the values may leave the values empty.
+	 * @see ValuesRange#set(SeriesData.Snapshot, double, double, int)
+	 */
+	abstract void slice(ValuesRange range, double viewportStart, double viewportSize, int columns);
+
+	/**
+	 * appends one value
+	 * @param maxDataCount > 0. if max data count is reached, the oldest data value will be lost
+	 */
+	abstract void append(double valueX, double valueY, int maxDataCount);
+
+	/**
+	 * appends many values at once
+	 * @param valuesX sorted ascending, not smaller than the last x value
+	 * @param valuesY same length as valuesX
+	 * @param maxDataCount > 0. if max data count is reached, the oldest data values will be lost
+	 */
+	abstract void append(double[] valuesX, double[] valuesY, int maxDataCount);
+
+	/**
+	 * replaces the data
+	 * @param valuesX x values, sorted ascending
+	 * @param valuesY y values, same length as valuesX
+	 */
+	abstract void setValues(double[] valuesX, double[] valuesY);
+
+	abstract boolean isLevelOfDetailEnabled();
+
+	abstract void setLevelOfDetailEnabled(boolean enabled);
+
+	/**
+	 * called when the viewport changed, before the graph is drawn.
+	 * Stores that load their values can start loading here, and load the
+	 * values that will be visible next.
+	 * @param viewportStart
+	 * @param viewportSize 0 = all data
+	 * @param motion how the viewport moves. only valid during the call
+	 */
+	void requestViewport(double viewportStart, double viewportSize, ViewportMotion motion) {
+	}
+
+	/**
+	 * frees the resources, e.g. files. The store can't be used afterwards.
+	 */
+	void close() throws IOException {
+	}
+}
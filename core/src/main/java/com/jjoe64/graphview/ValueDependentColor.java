@@ -21,7 +21,7 @@ package com.jjoe64.graphview;
 
 /**
  * you can change the color depending on the value.
- * takes only effect in BarGraphView
+ * takes only effect in bar graphs
  */
 public interface ValueDependentColor {
 	public int get(GraphViewDataInterface data);
@@ -0,0 +1,153 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * the visible part of a series: the indices from (inclusive) to to (exclusive)
+ * of the series' primitive arrays.
+ * This is a view on the series data, nothing is copied. The instances are
+ * reused for every frame, and {@link #release()}d when the values are drawn.
+ */
+final class ValuesRange {
+	double[] valuesX;
+	double[] valuesY;
+	int from;
+	int to;
+	/**
+	 * number of values in the viewport, before the level of detail reduced them
+	 */
+	int visited;
+	/**
+	 * smallest and largest y value of the range
+	 */
+	double minY;
+	double maxY;
+	/**
+	 * reused buffers for the pre-aggregated values, see {@link SeriesData#setLevelOfDetailEnabled(boolean)}
+	 */
+	double[] levelOfDetailX;
+	double[] levelOfDetailY;
+	/**
+	 * the values of a {@link SeriesData} that valuesX/valuesY point to, acquired until {@link #release()}
+	 */
+	final SeriesData.Snapshot snapshot = new SeriesData.Snapshot();
+
+	/**
+	 * sets the range to the values of the viewport
+	 * @param viewportStart
+	 * @param viewportSize 0 and viewportStart 0 = all data
+	 * @param columns if > 0 and the series has a level of detail pyramid,
+	 * the range is reduced to about 1 to 2 buckets per column
+	 */
+	void set(SeriesData.Snapshot snapshot, double viewportStart, double viewportSize, int columns) {
+		double[] valuesX = snapshot.valuesX;
+		int offset = snapshot.offset;
+		int end = offset + snapshot.size;
+		this.valuesX = valuesX;
+		this.valuesY = snapshot.valuesY;
+		if (viewportStart == 0 && viewportSize == 0) {
+			// all data
+			from = offset;
+			to = end;
+		} else {
+			// viewport
+			// values are sorted by x, so the bounds can be found by binary search
+			from = lowerBound(valuesX, offset, end, viewportStart);
+			if (from > offset) {
+				from--; // one before, for nice scrolling
+			}
+			to = upperBound(valuesX, from, end, viewportStart+viewportSize);
+			if (to < end) {
+				to++; // one more for nice scrolling
+			}
+		}
+		visited = to - from;
+		minY = snapshot.minMaxIndex.getMin(from, to);
+		maxY = snapshot.minMaxIndex.getMax(from, to);
+
+		LevelOfDetail levelOfDetail = snapshot.levelOfDetail;
+		int level = 0;
+		if (columns > 0 && levelOfDetail != null) {
+			level = levelOfDetail.getLevel(to - from, columns);
+		}
+		if (level > 0) {
+			ensureBuffers(LevelOfDetail.getMaxFillCount(from, to, level));
+			int count = levelOfDetail.fill(valuesX, from, to, level, levelOfDetailX, levelOfDetailY);
+			this.valuesX = levelOfDetailX;
+			this.valuesY = levelOfDetailY;
+			from = 0;
+			to = count;
+		}
+	}
+
+	/**
+	 * the series may reuse the arrays of the range afterwards, see {@link SeriesData#acquire(SeriesData.Snapshot)}.
+	 * Has to be called when the range was drawn.
+	 */
+	void release() {
+		SeriesData.release(snapshot);
+	}
+
+	/**
+	 * makes sure that the reused buffers can hold capacity values.
+	 * Stores that don't keep their values in arrays read or aggregate them into the buffers.
+	 */
+	void ensureBuffers(int capacity) {
+		if (levelOfDetailX == null || levelOfDetailX.length < capacity) {
+			levelOfDetailX = new double[capacity];
+			levelOfDetailY = new double[capacity];
+		}
+	}
+
+	/**
+	 * @return the first index in from..to-1 with values[index] >= value, or to
+	 */
+	static int lowerBound(double[] values, int from, int to, double value) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the first index in from..to-1 with values[index] > value, or to
+	 */
+	static int upperBound(double[] values, int from, int to, double value) {
+		int low = from;
+		int high = to;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] <= value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
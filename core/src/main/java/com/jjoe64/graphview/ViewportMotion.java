@@ -0,0 +1,78 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * how the user moves the viewport: the velocity of scrolling and the direction of scaling.
+ * Updated by the touch handling of the graph, used to load the data of the next viewport
+ * before it is visible, see {@link PagedSeriesData}.
+ */
+final class ViewportMotion {
+	static final int ZOOM_NONE = 0;
+	static final int ZOOM_IN = 1;
+	static final int ZOOM_OUT = -1;
+
+	/**
+	 * x units per second, > 0 if the viewport moves to larger x values
+	 */
+	double velocity;
+	/**
+	 * {@link #ZOOM_IN}, {@link #ZOOM_OUT} or {@link #ZOOM_NONE}
+	 */
+	int zoom;
+	private double lastViewportStart;
+	private long lastTime = -1;
+
+	/**
+	 * the viewport was scrolled
+	 * @param viewportStart the new start of the viewport
+	 * @param timeMillis time of the touch event
+	 */
+	void onMove(double viewportStart, long timeMillis) {
+		if (lastTime >= 0 && timeMillis > lastTime) {
+			double current = (viewportStart - lastViewportStart) * 1000 / (timeMillis - lastTime);
+			// smoothed, touch events are not evenly spaced
+			velocity = velocity == 0 ? current : (velocity + current) / 2;
+		}
+		lastViewportStart = viewportStart;
+		lastTime = timeMillis;
+		zoom = ZOOM_NONE;
+	}
+
+	/**
+	 * the viewport was scaled
+	 * @param scaleFactor > 1 zooms in
+	 */
+	void onScale(double scaleFactor) {
+		zoom = scaleFactor > 1 ? ZOOM_IN : scaleFactor < 1 ? ZOOM_OUT : ZOOM_NONE;
+		velocity = 0;
+		lastTime = -1;
+	}
+
+	/**
+	 * the viewport doesn't move, e.g. a new gesture begins or the viewport was set
+	 */
+	void reset() {
+		velocity = 0;
+		zoom = ZOOM_NONE;
+		lastTime = -1;
+	}
+}
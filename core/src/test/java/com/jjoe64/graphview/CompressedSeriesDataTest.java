@@ -0,0 +1,156 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import static com.jjoe64.graphview.SeriesStoreAssert.assertSameSlices;
+import static com.jjoe64.graphview.SeriesStoreAssert.assertSameValues;
+import static com.jjoe64.graphview.SeriesStoreAssert.fill;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * compares {@link CompressedSeriesData} with {@link SeriesData} that has the same values,
+ * around the boundaries of the blocks and the uncompressed tail.
+ */
+public class CompressedSeriesDataTest {
+	private static final int BLOCK_SIZE = SeriesCodec.BLOCK_SIZE;
+
+	private final Random random = new Random(1);
+
+	@Test
+	public void blockAndTailBoundaries() {
+		int[] sizes = {1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 2 * BLOCK_SIZE, 2 * BLOCK_SIZE + 1, 5 * BLOCK_SIZE + 17};
+		for (int size : sizes) {
+			double[] valuesX = new double[size];
+			double[] valuesY = new double[size];
+			fill(random, valuesX, valuesY);
+			SeriesData expected = new SeriesData(valuesX, valuesY);
+			CompressedSeriesData actual = new CompressedSeriesData(valuesX, valuesY);
+			assertSameValues("size " + size, expected, actual);
+			assertSameSlices("size " + size, expected, actual, random, BLOCK_SIZE, true);
+		}
+	}
+
+	@Test
+	public void appendAcrossBlocks() {
+		SeriesData expected = new SeriesData(new double[0], new double[0]);
+		CompressedSeriesData actual = new CompressedSeriesData(new double[0], new double[0]);
+		double x = 0;
+		for (int i=0; i<3 * BLOCK_SIZE + 5; i++) {
+			// single values and batches, so that batches end in the blocks and in the tail
+			if (i % 5 == 0) {
+				double[] batchX = new double[1 + random.nextInt(700)];
+				double[] batchY = new double[batchX.length];
+				for (int j=0; j<batchX.length; j++) {
+					batchX[j] = x += 1 + random.nextInt(3);
+					batchY[j] = random.nextGaussian();
+				}
+				expected.append(batchX, batchY, Integer.MAX_VALUE);
+				actual.append(batchX, batchY, Integer.MAX_VALUE);
+			} else {
+				double y = random.nextGaussian();
+				expected.append(x += 0.5, y, Integer.MAX_VALUE);
+				actual.append(x, y, Integer.MAX_VALUE);
+			}
+			if (i % 97 == 0) {
+				assertSameValues("append " + i, expected, actual);
+			}
+		}
+		assertSameValues("appended", expected, actual);
+		assertSameSlices("appended", expected, actual, random, BLOCK_SIZE, true);
+	}
+
+	@Test
+	public void evictionWithPartlyVisibleFirstBlock() {
+		int maxDataCount = 2 * BLOCK_SIZE + 300;
+		SeriesData expected = new SeriesData(new double[0], new double[0]);
+		CompressedSeriesData actual = new CompressedSeriesData(new double[0], new double[0]);
+		for (int i=0; i<8 * BLOCK_SIZE; i++) {
+			// the extremes are at the start of the blocks, so the summary of a partly visible block is wrong
+			double y = i % BLOCK_SIZE < 10 ? (i % 2 == 0 ? -1e6 - i : 1e6 + i) : Math.sin(i / 50.0);
+			expected.append(i, y, maxDataCount);
+			actual.append(i, y, maxDataCount);
+			if (i > maxDataCount && i % 173 == 0) {
+				assertSameValues("evicted " + i, expected, actual);
+				assertSameSlices("evicted " + i, expected, actual, random, BLOCK_SIZE, true);
+			}
+		}
+		assertEquals(maxDataCount, actual.getSize());
+		assertTrue(actual.getFirstX() % BLOCK_SIZE != 0);
+		assertSameValues("evicted", expected, actual);
+		assertSameSlices("evicted", expected, actual, random, BLOCK_SIZE, true);
+	}
+
+	@Test
+	public void cacheIsNotStaleAfterChanges() throws Exception {
+		int size = 4 * BLOCK_SIZE;
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		fill(random, valuesX, valuesY);
+		final CompressedSeriesData actual = new CompressedSeriesData(valuesX, valuesY);
+		// every block is in the cache of this thread
+		assertSameValues("initial", new SeriesData(valuesX, valuesY), actual);
+
+		// new values with the same x, in new blocks
+		fill(random, valuesX, valuesY);
+		actual.setValues(valuesX.clone(), valuesY.clone());
+		assertSameValues("reset", new SeriesData(valuesX, valuesY), actual);
+
+		// the tail that was read becomes a block
+		SeriesData expected = new SeriesData(valuesX, valuesY);
+		double x = valuesX[size - 1];
+		for (int i=0; i<BLOCK_SIZE + 3; i++) {
+			double y = random.nextGaussian();
+			expected.append(++x, y, size);
+			actual.append(x, y, size);
+			if (i % 100 == 0) {
+				assertSameValues("append " + i, expected, actual);
+			}
+		}
+		assertSameValues("appended", expected, actual);
+		assertSameSlices("appended", expected, actual, random, BLOCK_SIZE, true);
+
+		// an other thread with its own cache
+		final SeriesData last = expected;
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread reader = new Thread("reader") {
+			@Override
+			public void run() {
+				try {
+					assertSameValues("other thread", last, actual);
+					assertSameSlices("other thread", last, actual, random, BLOCK_SIZE, true);
+				} catch (Throwable e) {
+					failure.set(e);
+				}
+			}
+		};
+		reader.start();
+		reader.join();
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+}
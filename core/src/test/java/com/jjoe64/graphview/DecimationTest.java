@@ -0,0 +1,152 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * checks the values that {@link Decimation} keeps against the original values
+ */
+public class DecimationTest {
+	private final Random random = new Random(1);
+
+	@Test
+	public void lttbKeepsThresholdValuesInOrder() {
+		for (int round=0; round<200; round++) {
+			int length = 1 + random.nextInt(2000);
+			double[] valuesX = new double[length];
+			double[] valuesY = new double[length];
+			fill(valuesX, valuesY);
+			int from = random.nextInt(length);
+			int to = from + 1 + random.nextInt(length - from);
+			int threshold = random.nextInt(to - from + 10);
+			double[] outX = new double[Math.max(threshold, to - from)];
+			double[] outY = new double[outX.length];
+			int n = Decimation.lttb(valuesX, valuesY, from, to, threshold, outX, outY);
+
+			String message = "round " + round;
+			if (threshold >= to - from || threshold < 3) {
+				// all values
+				assertEquals(message, to - from, n);
+			} else {
+				assertEquals(message, threshold, n);
+			}
+			int[] indices = assertOriginalInOrder(message, valuesX, valuesY, from, to, outX, outY, n);
+			assertEquals(message, from, indices[0]);
+			assertEquals(message, to - 1, indices[n-1]);
+			if (n == threshold && n < to - from) {
+				// one value of every bucket between the first and the last value
+				double every = (double) (to - from - 2) / (threshold - 2);
+				for (int k=1; k<n-1; k++) {
+					assertTrue(message + " value " + k, indices[k] >= from + (int) ((k - 1) * every) + 1);
+					assertTrue(message + " value " + k, indices[k] < from + (int) (k * every) + 1);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void m4KeepsTheExtremesOfEveryColumn() {
+		for (int round=0; round<200; round++) {
+			int length = 1 + random.nextInt(5000);
+			double[] valuesX = new double[length];
+			double[] valuesY = new double[length];
+			fill(valuesX, valuesY);
+			int from = random.nextInt(length);
+			int to = from + 1 + random.nextInt(length - from);
+			int columns = 1 + random.nextInt(300);
+			// some values left and right of the graph
+			double minX = valuesX[from] + (valuesX[to-1] - valuesX[from]) * (random.nextDouble() * 0.4 - 0.1);
+			double diffX = (valuesX[to-1] - valuesX[from]) * (0.3 + random.nextDouble()) + 1e-9;
+			double[] outX = new double[4 * (columns + 2)];
+			double[] outY = new double[outX.length];
+			int n = Decimation.m4(valuesX, valuesY, from, to, minX, diffX, columns, outX, outY);
+
+			// the first, smallest, largest and last value of every column, found by scanning
+			String message = "round " + round;
+			int k = 0;
+			int i = from;
+			while (i < to) {
+				int column = column(valuesX[i], minX, diffX, columns);
+				int first = i;
+				int min = i;
+				int max = i;
+				for (; i<to && column(valuesX[i], minX, diffX, columns) == column; i++) {
+					if (valuesY[i] < valuesY[min]) min = i;
+					if (valuesY[i] > valuesY[max]) max = i;
+				}
+				int last = i - 1;
+				int[] kept = {first, Math.min(min, max), Math.max(min, max), last};
+				for (int j=0; j<kept.length; j++) {
+					if (j > 0 && kept[j] == kept[j-1]) {
+						continue;
+					}
+					assertTrue(message + " column " + column + " is missing values", k < n);
+					assertEquals(message + " value " + k, valuesX[kept[j]], outX[k], 0);
+					assertEquals(message + " value " + k, valuesY[kept[j]], outY[k], 0);
+					k++;
+				}
+			}
+			assertEquals(message, k, n);
+		}
+	}
+
+	/**
+	 * @return pixel column of the x value, -1 left of the graph, columns right of the graph
+	 */
+	private static int column(double valueX, double minX, double diffX, int columns) {
+		double column = Math.floor((valueX - minX) / diffX * columns);
+		return (int) Math.max(-1, Math.min(columns, column));
+	}
+
+	/**
+	 * x values strictly ascending, so that every value can be found by its x value
+	 */
+	private void fill(double[] valuesX, double[] valuesY) {
+		double x = random.nextGaussian() * 100;
+		for (int i=0; i<valuesX.length; i++) {
+			x += 0.01 + random.nextDouble() * (i % 100 < 50 ? 1 : 10);
+			valuesX[i] = x;
+			valuesY[i] = i % 5 == 0 ? random.nextInt(3) : random.nextGaussian() * 100;
+		}
+	}
+
+	/**
+	 * @return the index of every kept value, strictly ascending
+	 */
+	private static int[] assertOriginalInOrder(String message, double[] valuesX, double[] valuesY, int from, int to,
+			double[] outX, double[] outY, int n) {
+		int[] indices = new int[n];
+		for (int k=0; k<n; k++) {
+			int i = ValuesRange.lowerBound(valuesX, from, to, outX[k]);
+			assertTrue(message + " value " + k + " is not an original value", i < to && valuesX[i] == outX[k]);
+			assertEquals(message + " value " + k, valuesY[i], outY[k], 0);
+			assertTrue(message + " value " + k + " is not in order", k == 0 || i > indices[k-1]);
+			indices[k] = i;
+		}
+		return indices;
+	}
+}
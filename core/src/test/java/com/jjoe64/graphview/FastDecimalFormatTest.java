@@ -0,0 +1,85 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.NumberFormat;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * compares the labels of {@link FastDecimalFormat} with {@link NumberFormat#getNumberInstance()}
+ */
+public class FastDecimalFormatTest {
+	private static final double[] SPECIAL = {
+		0.0, -0.0, -0.0286, 0.0286, -0.04, -0.05, -0.06, -0.5, 0.5, 1.5, 2.5, -2.5, 0.125, -0.125,
+		999.5, -999.5, 1e12, -1e12, 1e13, 1e20, -1e20, Double.MAX_VALUE, Double.MIN_VALUE, -Double.MIN_VALUE,
+		Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+	};
+
+	private final FastDecimalFormat fast = new FastDecimalFormat();
+	private final NumberFormat reference = NumberFormat.getNumberInstance();
+
+	@Test
+	public void specialValues() {
+		for (double value : SPECIAL) {
+			for (int digits=0; digits<=FastDecimalFormat.MAX_FRACTION_DIGITS; digits++) {
+				assertSameLabel(value, digits);
+			}
+		}
+	}
+
+	@Test
+	public void negativeValuesRoundedToZero() {
+		assertEquals(format(-0.0286, 1), fast.format(-0.0286, 1));
+		assertEquals(format(-0.0, 0), fast.format(-0.0, 0));
+		assertEquals(format(-0.4, 0), fast.format(-0.4, 0));
+	}
+
+	@Test
+	public void randomValues() {
+		Random random = new Random(1);
+		for (int i=0; i<200000; i++) {
+			double value;
+			switch (i % 4) {
+				case 0: value = random.nextGaussian(); break;
+				case 1: value = random.nextGaussian() * Math.pow(10, random.nextInt(16) - 6); break;
+				// labels of a grid, with the error of the steps
+				case 2: value = (random.nextInt(2001) - 1000) * 0.1 * Math.pow(10, random.nextInt(7) - 3); break;
+				default: value = (random.nextInt(200001) - 100000) / 1000.0;
+			}
+			assertSameLabel(value, random.nextInt(FastDecimalFormat.MAX_FRACTION_DIGITS + 1));
+		}
+	}
+
+	private void assertSameLabel(double value, int digits) {
+		// twice, the second label comes from the cache
+		assertEquals(value + " with " + digits + " digits", format(value, digits), fast.format(value, digits));
+		assertEquals(value + " with " + digits + " digits", format(value, digits), fast.format(value, digits));
+	}
+
+	private String format(double value, int digits) {
+		reference.setMaximumFractionDigits(digits);
+		return reference.format(value);
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+/**
+ * renders many frames of a line and a bar graph, with labels and legend, to a
+ * backend that draws nothing. After the warm-up no frame may create objects.
+ */
+public class GraphRendererAllocationTest {
+	private static final int LINE_VALUES = 5000;
+	/**
+	 * every bar gets a label with its value, a few bars fit into the cache of the labels
+	 */
+	private static final int BAR_VALUES = 100;
+	private static final int WARM_UP_FRAMES = 200;
+	private static final int FRAMES = 300;
+	/**
+	 * the frames pan over these viewports, so that the labels change
+	 */
+	private static final int VIEWPORTS = 10;
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 480;
+
+	/**
+	 * measures fixed sizes, so that the layout is the same on every JVM
+	 */
+	private static final class NoOpBackend implements RenderBackend {
+		private float textSize;
+
+		@Override
+		public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width) {
+		}
+
+		@Override
+		public void drawLines(float[] points, int count, int color, float width) {
+		}
+
+		@Override
+		public void fillCircle(float centerX, float centerY, float radius, int color) {
+		}
+
+		@Override
+		public void fillRect(float left, float top, float right, float bottom, int color) {
+		}
+
+		@Override
+		public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color) {
+		}
+
+		@Override
+		public void fillPolygon(float[] points, int count, int color) {
+		}
+
+		@Override
+		public void drawText(String text, float x, float y, Align align, int color) {
+		}
+
+		@Override
+		public void setTextSize(float textSize) {
+			this.textSize = textSize;
+		}
+
+		@Override
+		public float getTextSize() {
+			return textSize;
+		}
+
+		@Override
+		public int getTextWidth(String text) {
+			return (int) (text.length() * textSize / 2);
+		}
+
+		@Override
+		public int getTextHeight(String text) {
+			return (int) textSize;
+		}
+	}
+
+	private static int getValueCount(GraphRenderer.GraphType type) {
+		return type == GraphRenderer.GraphType.LINE ? LINE_VALUES : BAR_VALUES;
+	}
+
+	private static GraphRenderer createRenderer(GraphRenderer.GraphType type) {
+		int count = getValueCount(type);
+		double[] valuesX = new double[count];
+		double[] valuesY = new double[count];
+		double[] otherY = new double[count];
+		for (int i=0; i<count; i++) {
+			valuesX[i] = i;
+			valuesY[i] = Math.sin(i * 0.01) * 100;
+			otherY[i] = Math.cos(i * 0.03) * 50 + 20;
+		}
+		GraphRenderer renderer = new GraphRenderer(type);
+		renderer.setTitle("allocations");
+		renderer.setShowLegend(true);
+		renderer.setBackgroundColor(0xff000000);
+		renderer.addSeries("sin", valuesX, valuesY, 0xff0077cc, 3);
+		renderer.addSeries("cos", valuesX, otherY, 0xffcc7700, 2);
+		if (type == GraphRenderer.GraphType.LINE) {
+			renderer.setDrawBackground(true, 0x440077cc);
+			renderer.setDownsamplingEnabled(true);
+		} else {
+			renderer.setDrawValuesOnTop(true, 0xffffffff);
+		}
+		return renderer;
+	}
+
+	private static void renderFrames(GraphRenderer renderer, RenderBackend backend, int frames) {
+		double size = getValueCount(renderer.getGraphType()) / 4;
+		for (int i=0; i<frames; i++) {
+			renderer.setViewPort((i % VIEWPORTS) * size / VIEWPORTS, size);
+			renderer.render(backend, WIDTH, HEIGHT);
+		}
+	}
+
+	private static void assertNoAllocations(GraphRenderer.GraphType type) {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		GraphRenderer renderer = createRenderer(type);
+		RenderBackend backend = new NoOpBackend();
+		renderFrames(renderer, backend, WARM_UP_FRAMES);
+
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		renderFrames(renderer, backend, FRAMES);
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		assertEquals(type + " graph, bytes allocated by " + FRAMES + " frames", 0, allocated);
+	}
+
+	@Test
+	public void lineGraphDoesNotAllocate() {
+		assertNoAllocations(GraphRenderer.GraphType.LINE);
+	}
+
+	@Test
+	public void barGraphDoesNotAllocate() {
+		assertNoAllocations(GraphRenderer.GraphType.BAR);
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import static com.jjoe64.graphview.SeriesStoreAssert.assertSameSlices;
+import static com.jjoe64.graphview.SeriesStoreAssert.assertSameValues;
+import static com.jjoe64.graphview.SeriesStoreAssert.fill;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * compares {@link MappedSeriesData} with {@link SeriesData} that has the same values,
+ * before and after the files are opened again.
+ */
+public class MappedSeriesDataTest {
+	private static final int PAGE_SIZE = MappedSeriesData.PAGE_SIZE;
+
+	private final Random random = new Random(1);
+	private File file;
+	private File pagesFile;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("series", ".data");
+		pagesFile = new File(file.getPath() + ".pages");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+		pagesFile.delete();
+	}
+
+	@Test
+	public void reopen() throws IOException {
+		int maxDataCount = 30 * PAGE_SIZE + 77;
+		SeriesData expected = new SeriesData(new double[0], new double[0]);
+		MappedSeriesData actual = new MappedSeriesData(file);
+		double x = 0;
+		for (int i=0; i<200; i++) {
+			double[] batchX = new double[1 + random.nextInt(3 * PAGE_SIZE)];
+			double[] batchY = new double[batchX.length];
+			for (int j=0; j<batchX.length; j++) {
+				batchX[j] = x += 0.5 + random.nextInt(3);
+				batchY[j] = random.nextGaussian();
+			}
+			expected.append(batchX, batchY, maxDataCount);
+			actual.append(batchX, batchY, maxDataCount);
+		}
+		// the oldest values were evicted
+		assertEquals(maxDataCount, actual.getSize());
+		assertSameValues("written", expected, actual);
+		assertSameSlices("written", expected, actual, random, PAGE_SIZE, false);
+		actual.close();
+
+		actual = new MappedSeriesData(file);
+		assertSameValues("reopened", expected, actual);
+		assertSameSlices("reopened", expected, actual, random, PAGE_SIZE, false);
+
+		// appending after the reopened values
+		for (int i=0; i<PAGE_SIZE + 5; i++) {
+			double y = random.nextGaussian();
+			expected.append(++x, y, maxDataCount);
+			actual.append(x, y, maxDataCount);
+		}
+		assertSameValues("appended", expected, actual);
+		assertSameSlices("appended", expected, actual, random, PAGE_SIZE, false);
+		actual.close();
+	}
+
+	@Test
+	public void reopenRebuildsThePages() throws IOException {
+		int size = 10 * PAGE_SIZE + 3;
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		fill(random, valuesX, valuesY);
+		MappedSeriesData actual = new MappedSeriesData(file);
+		actual.setValues(valuesX, valuesY);
+		actual.close();
+
+		// the pages don't match the records, like after a crash
+		RandomAccessFile pages = new RandomAccessFile(pagesFile, "rw");
+		try {
+			pages.seek(8);
+			pages.writeLong(1);
+			pages.seek(MappedDoubleArray.HEADER_SIZE);
+			for (long i=MappedDoubleArray.HEADER_SIZE; i<pages.length(); i+=8) {
+				pages.writeDouble(0);
+			}
+		} finally {
+			pages.close();
+		}
+
+		actual = new MappedSeriesData(file);
+		SeriesData expected = new SeriesData(valuesX, valuesY);
+		assertSameValues("rebuilt", expected, actual);
+		assertSameSlices("rebuilt", expected, actual, random, PAGE_SIZE, false);
+		actual.close();
+	}
+
+	@Test
+	public void setValuesReusesTheFiles() throws IOException {
+		// more pages than the smallest mapping of the pages file
+		int size = 3000 * PAGE_SIZE;
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		fill(random, valuesX, valuesY);
+		MappedSeriesData actual = new MappedSeriesData(file);
+		actual.setValues(valuesX, valuesY);
+		long length = file.length();
+		long pagesLength = pagesFile.length();
+
+		// the file doesn't grow with every reset
+		for (int i=0; i<3; i++) {
+			fill(random, valuesX, valuesY);
+			actual.setValues(valuesX, valuesY);
+		}
+		assertEquals(length, file.length());
+		assertEquals(pagesLength, pagesFile.length());
+		assertSameValues("reset", new SeriesData(valuesX, valuesY), actual);
+
+		double[] smallX = new double[3 * PAGE_SIZE + 1];
+		double[] smallY = new double[smallX.length];
+		fill(random, smallX, smallY);
+		actual.setValues(smallX, smallY);
+		SeriesData expected = new SeriesData(smallX, smallY);
+		assertSameValues("smaller", expected, actual);
+		assertSameSlices("smaller", expected, actual, random, PAGE_SIZE, false);
+		actual.close();
+
+		// the unused end of the files is removed
+		actual = new MappedSeriesData(file);
+		assertTrue(file.length() < length / 10);
+		assertTrue(pagesFile.length() < pagesLength);
+		assertSameValues("truncated", expected, actual);
+		assertSameSlices("truncated", expected, actual, random, PAGE_SIZE, false);
+
+		actual.setValues(new double[0], new double[0]);
+		assertEquals(0, actual.getSize());
+		actual.close();
+		actual = new MappedSeriesData(file);
+		assertEquals(0, actual.getSize());
+		actual.close();
+	}
+}
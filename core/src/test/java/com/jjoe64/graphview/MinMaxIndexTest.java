@@ -0,0 +1,103 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * compares {@link MinMaxIndex} with the smallest and largest value found by scanning the range
+ */
+public class MinMaxIndexTest {
+	private final Random random = new Random(1);
+
+	@Test
+	public void randomRanges() {
+		int[] lengths = {0, 1, MinMaxIndex.BLOCK_SIZE - 1, MinMaxIndex.BLOCK_SIZE, MinMaxIndex.BLOCK_SIZE + 1, 100, 1000, 4099};
+		MinMaxIndex index = new MinMaxIndex();
+		for (int length : lengths) {
+			double[] values = randomValues(length);
+			index.rebuild(values);
+			assertRanges("length " + length, index, values);
+		}
+	}
+
+	@Test
+	public void randomRangesAfterUpdates() {
+		MinMaxIndex index = new MinMaxIndex();
+		double[] values = randomValues(3000);
+		index.rebuild(values);
+		for (int round=0; round<50; round++) {
+			if (round % 2 == 0) {
+				int i = random.nextInt(values.length);
+				values[i] = randomValue();
+				index.update(i);
+			} else {
+				int from = random.nextInt(values.length);
+				int to = from + random.nextInt(Math.min(200, values.length - from + 1));
+				for (int i=from; i<to; i++) {
+					values[i] = randomValue();
+				}
+				index.update(from, to);
+			}
+			assertRanges("round " + round, index, values);
+		}
+	}
+
+	private void assertRanges(String message, MinMaxIndex index, double[] values) {
+		assertRange(message, index, values, 0, values.length);
+		assertRange(message, index, values, 0, 0);
+		for (int k=0; k<300; k++) {
+			int from = random.nextInt(values.length + 1);
+			int to = from + random.nextInt(values.length - from + 1);
+			assertRange(message, index, values, from, to);
+		}
+	}
+
+	private static void assertRange(String message, MinMaxIndex index, double[] values, int from, int to) {
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		for (int i=from; i<to; i++) {
+			smallest = Math.min(smallest, values[i]);
+			largest = Math.max(largest, values[i]);
+		}
+		assertEquals(message + " min " + from + ".." + to, smallest, index.getMin(from, to), 0);
+		assertEquals(message + " max " + from + ".." + to, largest, index.getMax(from, to), 0);
+	}
+
+	private double[] randomValues(int length) {
+		double[] values = new double[length];
+		for (int i=0; i<length; i++) {
+			values[i] = randomValue();
+		}
+		return values;
+	}
+
+	/**
+	 * some values repeat, so that equal extremes are in several blocks
+	 */
+	private double randomValue() {
+		return random.nextInt(4) == 0 ? random.nextInt(5) : random.nextGaussian() * 1000;
+	}
+}
@@ -0,0 +1,301 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * encodes and decodes values with {@link SeriesCodec} and {@link BitBuffer},
+ * and reads the file format like GraphViewSeriesReader does.
+ */
+public class SeriesCodecTest {
+	private static final double[] SPECIAL_Y = {
+		Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+		Double.MIN_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, 1.5, 1.5, 1.5, -1e-300
+	};
+
+	@Test
+	public void bitBufferReadsWhatWasWritten() {
+		Random random = new Random(1);
+		BitBuffer buffer = new BitBuffer(1);
+		int[] widths = new int[5000];
+		long[] values = new long[widths.length];
+		for (int i=0; i<widths.length; i++) {
+			widths[i] = 1 + random.nextInt(64);
+			values[i] = random.nextLong();
+			buffer.write(values[i], widths[i]);
+		}
+		int bits = buffer.length;
+		buffer.reset(buffer.getByteLength());
+		for (int i=0; i<widths.length; i++) {
+			long mask = widths[i] == 64 ? -1L : (1L << widths[i]) - 1;
+			assertEquals("value " + i, values[i] & mask, buffer.read(widths[i]));
+		}
+		assertEquals(bits, buffer.position);
+		// padding of the last byte
+		buffer.read(buffer.length - buffer.position);
+		try {
+			buffer.read(1);
+			fail("read after the end");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void integralX() {
+		Random random = new Random(2);
+		double[] valuesX = new double[SeriesCodec.BLOCK_SIZE];
+		double[] valuesY = new double[SeriesCodec.BLOCK_SIZE];
+		// timestamps: evenly spaced, jitter, gaps and the largest exact value
+		long x = 1400000000000L;
+		for (int i=0; i<valuesX.length; i++) {
+			switch (i % 7) {
+				case 0: x += 1000; break;
+				case 1: x += 1000 + random.nextInt(100) - 50; break;
+				case 2: x += random.nextInt(5000); break;
+				case 3: x += random.nextInt(Integer.MAX_VALUE); break;
+				default: x += 1000;
+			}
+			valuesX[i] = x;
+			valuesY[i] = random.nextGaussian();
+		}
+		valuesX[valuesX.length-1] = 9007199254740992d;
+		assertRoundTrip(valuesX, valuesY, valuesX.length);
+		assertRoundTrip(valuesX, valuesY, 1);
+		assertRoundTrip(valuesX, valuesY, 2);
+	}
+
+	@Test
+	public void fractionalXAndSpecialY() {
+		Random random = new Random(3);
+		double[] valuesX = new double[SeriesCodec.BLOCK_SIZE];
+		double[] valuesY = new double[SeriesCodec.BLOCK_SIZE];
+		double x = -1000;
+		for (int i=0; i<valuesX.length; i++) {
+			x += random.nextDouble() * 10;
+			valuesX[i] = x;
+			valuesY[i] = i < 3 * SPECIAL_Y.length ? SPECIAL_Y[i % SPECIAL_Y.length] : Double.longBitsToDouble(random.nextLong());
+		}
+		assertRoundTrip(valuesX, valuesY, valuesX.length);
+		assertRoundTrip(valuesX, valuesY, 37);
+	}
+
+	@Test
+	public void negativeZeroX() {
+		// -0 is not stored as integral, the sign has to survive
+		double[] valuesX = {-0.0, 0.0, 1, 2, 3};
+		double[] valuesY = {-0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.0};
+		assertRoundTrip(valuesX, valuesY, valuesX.length);
+	}
+
+	@Test
+	public void maxByteLengthIsNeverExceeded() {
+		Random random = new Random(4);
+		double[] valuesX = new double[SeriesCodec.BLOCK_SIZE];
+		double[] valuesY = new double[SeriesCodec.BLOCK_SIZE];
+		BitBuffer bits = new BitBuffer(16);
+		for (int round=0; round<20; round++) {
+			for (int i=0; i<valuesX.length; i++) {
+				valuesX[i] = Double.longBitsToDouble(random.nextLong());
+				valuesY[i] = Double.longBitsToDouble(random.nextLong());
+			}
+			for (int count=1; count<=valuesX.length; count*=2) {
+				bits.clear();
+				SeriesCodec.encode(valuesX, valuesY, 0, count, bits);
+				assertTrue(bits.getByteLength() <= SeriesCodec.maxByteLength(count));
+			}
+		}
+	}
+
+	@Test
+	public void fileWithFlushedAndPartialBlocks() throws IOException {
+		int size = 2 * SeriesCodec.BLOCK_SIZE + 100;
+		double[] valuesX = new double[size];
+		double[] valuesY = new double[size];
+		for (int i=0; i<size; i++) {
+			valuesX[i] = i < size / 2 ? i * 10 : i * 10.5;
+			valuesY[i] = i % 50 == 0 ? Double.NaN : Math.sin(i / 10.0);
+		}
+		// full block, a block ended by flush(), a block of 1 value, full block, partial last block
+		int[] blocks = {SeriesCodec.BLOCK_SIZE, 7, 1, SeriesCodec.BLOCK_SIZE, size - 2 * SeriesCodec.BLOCK_SIZE - 8};
+		byte[] file = write(valuesX, valuesY, blocks);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(file));
+		SeriesCodec.readHeader(in);
+		BitBuffer bits = new BitBuffer(16);
+		double[] blockX = new double[SeriesCodec.BLOCK_SIZE];
+		double[] blockY = new double[SeriesCodec.BLOCK_SIZE];
+		int offset = 0;
+		for (int b=0; b<blocks.length; b++) {
+			int count = SeriesCodec.readBlock(in, bits);
+			assertEquals("block " + b, blocks[b], count);
+			SeriesCodec.decodeBlock(bits, count, blockX, blockY);
+			for (int i=0; i<count; i++) {
+				assertBits(valuesX[offset+i], blockX[i]);
+				assertBits(valuesY[offset+i], blockY[i]);
+			}
+			offset += count;
+		}
+		assertEquals(size, offset);
+		assertEquals(0, SeriesCodec.readBlock(in, bits));
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void corruptHeader() throws IOException {
+		byte[] file = write(new double[] {1, 2}, new double[] {3, 4}, new int[] {2});
+		// truncated
+		for (int length=0; length<5; length++) {
+			assertHeaderFails(Arrays.copyOf(file, length));
+		}
+		// magic
+		byte[] corrupt = file.clone();
+		corrupt[0] ^= 1;
+		assertHeaderFails(corrupt);
+		// version
+		corrupt = file.clone();
+		corrupt[4] = SeriesCodec.VERSION + 1;
+		assertHeaderFails(corrupt);
+	}
+
+	@Test
+	public void corruptBlock() throws IOException {
+		double[] valuesX = {1, 2, 3, 4.5};
+		double[] valuesY = {5, 6, 7, 8};
+		byte[] file = write(valuesX, valuesY, new int[] {4});
+		int header = 5;
+		// count, byteLength, bits, end
+		int byteLength = file.length - header - 12;
+
+		// truncated count, byte length and bits
+		for (int length=header+1; length<file.length-4; length++) {
+			assertBlockFails(Arrays.copyOf(file, length));
+		}
+		// negative and too large count
+		assertBlockFails(withInt(file, header, -1));
+		assertBlockFails(withInt(file, header, SeriesCodec.BLOCK_SIZE + 1));
+		// byte length larger than the block can be, no buffer of that size is allocated
+		assertBlockFails(withInt(file, header + 4, SeriesCodec.maxByteLength(4) + 1));
+		assertBlockFails(withInt(file, header + 4, Integer.MAX_VALUE));
+		assertBlockFails(withInt(file, header + 4, -1));
+		assertBlockFails(withInt(file, header + 4, 0));
+		// more values than bits
+		assertBlockFails(withInt(file, header, 1000));
+		// less values than bits
+		assertBlockFails(withInt(file, header, 1));
+
+		// still readable
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(file));
+		SeriesCodec.readHeader(in);
+		BitBuffer bits = new BitBuffer(16);
+		assertEquals(4, SeriesCodec.readBlock(in, bits));
+		assertEquals(byteLength, bits.getByteLength());
+	}
+
+	private static void assertRoundTrip(double[] valuesX, double[] valuesY, int count) {
+		BitBuffer bits = new BitBuffer(16);
+		SeriesCodec.encode(valuesX, valuesY, 0, count, bits);
+		int length = bits.length;
+		bits.reset(bits.getByteLength());
+		double[] decodedX = new double[count + 2];
+		double[] decodedY = new double[count + 2];
+		SeriesCodec.decode(bits, count, decodedX, decodedY, 1);
+		assertEquals(length, bits.position);
+		for (int i=0; i<count; i++) {
+			assertBits(valuesX[i], decodedX[i+1]);
+			assertBits(valuesY[i], decodedY[i+1]);
+		}
+		assertBits(0, decodedX[count+1]);
+	}
+
+	private static void assertBits(double expected, double actual) {
+		if (Double.doubleToRawLongBits(expected) != Double.doubleToRawLongBits(actual)) {
+			fail("expected " + expected + " but was " + actual);
+		}
+	}
+
+	/**
+	 * writes the blocks like GraphViewSeriesWriter does, a block smaller than BLOCK_SIZE is written by flush()
+	 */
+	private static byte[] write(double[] valuesX, double[] valuesY, int[] blocks) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		SeriesCodec.writeHeader(out);
+		BitBuffer bits = new BitBuffer(16);
+		double[] blockX = new double[SeriesCodec.BLOCK_SIZE];
+		double[] blockY = new double[SeriesCodec.BLOCK_SIZE];
+		int offset = 0;
+		for (int count : blocks) {
+			System.arraycopy(valuesX, offset, blockX, 0, count);
+			System.arraycopy(valuesY, offset, blockY, 0, count);
+			SeriesCodec.writeBlock(out, blockX, blockY, count, bits);
+			offset += count;
+		}
+		SeriesCodec.writeEnd(out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static byte[] withInt(byte[] file, int offset, int value) {
+		byte[] copy = file.clone();
+		copy[offset] = (byte) (value >>> 24);
+		copy[offset+1] = (byte) (value >>> 16);
+		copy[offset+2] = (byte) (value >>> 8);
+		copy[offset+3] = (byte) value;
+		return copy;
+	}
+
+	private static void assertHeaderFails(byte[] file) {
+		try {
+			SeriesCodec.readHeader(new DataInputStream(new ByteArrayInputStream(file)));
+			fail("header of " + file.length + " bytes was read");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static void assertBlockFails(byte[] file) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(file));
+		SeriesCodec.readHeader(in);
+		BitBuffer bits = new BitBuffer(16);
+		try {
+			int count = SeriesCodec.readBlock(in, bits);
+			SeriesCodec.decodeBlock(bits, count, new double[SeriesCodec.BLOCK_SIZE], new double[SeriesCodec.BLOCK_SIZE]);
+			fail("corrupt block was read");
+		} catch (IOException e) {
+			// expected
+		}
+		assertTrue(bits.bytes.length <= SeriesCodec.maxByteLength(SeriesCodec.BLOCK_SIZE));
+	}
+}
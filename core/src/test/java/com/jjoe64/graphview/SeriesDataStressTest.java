@@ -0,0 +1,204 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * appends from several threads while a reader slices the series, like the
+ * render thread does. Every snapshot the reader sees has to be consistent.
+ */
+public class SeriesDataStressTest {
+	/**
+	 * small, so that the buffers are copied and refilled very often
+	 */
+	private static final int MAX_DATA_COUNT = 300;
+	private static final int WRITERS = 3;
+	private static final int APPENDS_PER_WRITER = 200000;
+	private static final int BATCH = 13;
+	private static final int COLUMNS = 8;
+
+	private long nextX;
+
+	/**
+	 * y depends only on x, so values of a refilled buffer are detected
+	 */
+	private static double valueY(double x) {
+		return ((long) x * 7919 % 1000) - 500;
+	}
+
+	@Test(timeout = 120000)
+	public void readersSeeConsistentSnapshots() throws Exception {
+		final SeriesData data = new SeriesData(new double[0], new double[0]);
+		data.setLevelOfDetailEnabled(true);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Thread[] writers = new Thread[WRITERS];
+		for (int w=0; w<WRITERS; w++) {
+			final boolean batches = w % 2 == 1;
+			writers[w] = new Thread("writer " + w) {
+				@Override
+				public void run() {
+					double[] batchX = new double[BATCH];
+					double[] batchY = new double[BATCH];
+					for (int i=0; i<APPENDS_PER_WRITER && failure.get() == null; i++) {
+						// the lock of the series, so that the x values stay sorted across the writers
+						synchronized (data) {
+							if (batches) {
+								for (int j=0; j<BATCH; j++) {
+									double x = nextX++;
+									batchX[j] = x;
+									batchY[j] = valueY(x);
+								}
+								data.append(batchX, batchY, MAX_DATA_COUNT);
+							} else {
+								double x = nextX++;
+								data.append(x, valueY(x), MAX_DATA_COUNT);
+							}
+						}
+					}
+				}
+			};
+		}
+
+		final Thread[] running = writers;
+		Thread reader = new Thread("reader") {
+			@Override
+			public void run() {
+				try {
+					read(data, running);
+				} catch (Throwable e) {
+					failure.set(e);
+				}
+			}
+		};
+		reader.start();
+		for (Thread writer : writers) {
+			writer.start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		reader.join();
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		assertEquals(MAX_DATA_COUNT, data.getSize());
+	}
+
+	private static boolean isAlive(Thread[] threads) {
+		for (Thread thread : threads) {
+			if (thread.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void read(SeriesData data, Thread[] writers) {
+		Random random = new Random(42);
+		ValuesRange sliced = new ValuesRange();
+		ValuesRange aggregated = new ValuesRange();
+		SeriesData.Snapshot snapshot = new SeriesData.Snapshot();
+		int checks = 0;
+		while (isAlive(writers) || checks == 0) {
+			data.acquire(snapshot);
+			if (snapshot.size > 0) {
+				checkSnapshot(snapshot);
+				double first = snapshot.valuesX[snapshot.offset];
+				double last = snapshot.valuesX[snapshot.offset+snapshot.size-1];
+				double viewportSize = 1 + random.nextDouble() * (last - first);
+				double viewportStart = first + random.nextDouble() * (last - first - viewportSize + 1);
+
+				// the y range, without level of detail
+				data.slice(sliced, viewportStart, viewportSize, 0);
+				checkMinMax(sliced);
+				sliced.release();
+
+				// zoomed out, the aggregated buckets have to keep the extremes of the values
+				aggregated.set(snapshot, viewportStart, viewportSize, COLUMNS);
+				checkLevelOfDetail(snapshot, aggregated, viewportStart, viewportSize);
+				checks++;
+			}
+			SeriesData.release(snapshot);
+		}
+		assertTrue(checks > 0);
+	}
+
+	private static void checkSnapshot(SeriesData.Snapshot snapshot) {
+		int end = snapshot.offset + snapshot.size;
+		assertTrue(snapshot.size <= MAX_DATA_COUNT);
+		for (int i=snapshot.offset; i<end; i++) {
+			if (i > snapshot.offset) {
+				assertTrue("x not sorted at " + i, snapshot.valuesX[i-1] < snapshot.valuesX[i]);
+			}
+			assertEquals("y doesn't belong to x at " + i, valueY(snapshot.valuesX[i]), snapshot.valuesY[i], 0);
+		}
+	}
+
+	private static void checkMinMax(ValuesRange range) {
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		for (int i=range.from; i<range.to; i++) {
+			assertEquals(valueY(range.valuesX[i]), range.valuesY[i], 0);
+			smallest = Math.min(smallest, range.valuesY[i]);
+			largest = Math.max(largest, range.valuesY[i]);
+		}
+		assertEquals(smallest, range.minY, 0);
+		assertEquals(largest, range.maxY, 0);
+	}
+
+	private static void checkLevelOfDetail(SeriesData.Snapshot snapshot, ValuesRange range, double viewportStart, double viewportSize) {
+		// the same indices as ValuesRange.set
+		int end = snapshot.offset + snapshot.size;
+		int from = ValuesRange.lowerBound(snapshot.valuesX, snapshot.offset, end, viewportStart);
+		if (from > snapshot.offset) {
+			from--;
+		}
+		int to = ValuesRange.upperBound(snapshot.valuesX, from, end, viewportStart + viewportSize);
+		if (to < end) {
+			to++;
+		}
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		for (int i=from; i<to; i++) {
+			smallest = Math.min(smallest, snapshot.valuesY[i]);
+			largest = Math.max(largest, snapshot.valuesY[i]);
+		}
+		double drawnSmallest = Double.POSITIVE_INFINITY;
+		double drawnLargest = Double.NEGATIVE_INFINITY;
+		for (int i=range.from; i<range.to; i++) {
+			assertEquals(valueY(range.valuesX[i]), range.valuesY[i], 0);
+			drawnSmallest = Math.min(drawnSmallest, range.valuesY[i]);
+			drawnLargest = Math.max(drawnLargest, range.valuesY[i]);
+		}
+		assertEquals(smallest, drawnSmallest, 0);
+		assertEquals(largest, drawnLargest, 0);
+		assertEquals(smallest, range.minY, 0);
+		assertEquals(largest, range.maxY, 0);
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+/**
+ * compares a {@link SeriesStore} with a {@link SeriesData} that has the same values
+ */
+final class SeriesStoreAssert {
+	private SeriesStoreAssert() {
+	}
+
+	/**
+	 * x values with evenly spaced, irregular and fractional parts, y values with repeats and specials
+	 */
+	static void fill(Random random, double[] valuesX, double[] valuesY) {
+		double x = 0;
+		for (int i=0; i<valuesX.length; i++) {
+			x += i % 300 < 200 ? 1 : 0.25 + random.nextInt(4);
+			valuesX[i] = x;
+			valuesY[i] = i % 7 == 0 ? valuesY[Math.max(0, i-1)] : random.nextGaussian() * 100;
+		}
+		if (valuesY.length > 5) {
+			valuesY[3] = -0.0;
+			valuesY[5] = Double.MAX_VALUE;
+		}
+	}
+
+	static void assertSameValues(String message, SeriesData expected, SeriesStore actual) {
+		int size = expected.getSize();
+		assertEquals(message, size, actual.getSize());
+		assertEquals(message, expected.getFirstX(), actual.getFirstX(), 0);
+		assertEquals(message, expected.getLastX(), actual.getLastX(), 0);
+		for (int i=0; i<size; i++) {
+			assertEquals(message + " x " + i, expected.getX(i), actual.getX(i), 0);
+			assertEquals(message + " y " + i, expected.getY(i), actual.getY(i), 0);
+		}
+	}
+
+	/**
+	 * slices all values, random viewports, viewports that start and end at the boundaries of the
+	 * blocks or pages of the store, and viewports outside of the values
+	 * @param boundary values per block or page of the store
+	 * @param originalValues false if the store draws the smallest and largest value of a group at other x values
+	 */
+	static void assertSameSlices(String message, SeriesData expected, SeriesStore actual, Random random, int boundary, boolean originalValues) {
+		int size = expected.getSize();
+		assertSameSlice(message + " all", expected, actual, 0, 0, originalValues);
+		int first = (int) Math.ceil(expected.getFirstX());
+		for (int k=0; k<12; k++) {
+			int from = random.nextInt(size);
+			int to = from + random.nextInt(size - from);
+			if (k < 4) {
+				// boundaries relative to the first value
+				from = Math.min(size - 1, (k + 1) * boundary - (k % 2));
+				to = Math.min(size - 1, from + boundary * (1 + k % 2));
+			}
+			double viewportStart = expected.getX(from);
+			double viewportSize = expected.getX(to) - viewportStart;
+			if (viewportSize == 0) {
+				viewportSize = 0.1;
+			}
+			assertSameSlice(message + " " + from + ".." + to, expected, actual, viewportStart, viewportSize, originalValues);
+		}
+		// outside of the values
+		assertSameSlice(message + " before", expected, actual, first - 100, 10, originalValues);
+		assertSameSlice(message + " after", expected, actual, expected.getLastX() + 1, 10, originalValues);
+	}
+
+	private static void assertSameSlice(String message, SeriesData expected, SeriesStore actual,
+			double viewportStart, double viewportSize, boolean originalValues) {
+		ValuesRange raw = new ValuesRange();
+		expected.slice(raw, viewportStart, viewportSize, 0);
+		ValuesRange range = new ValuesRange();
+
+		// y range only
+		actual.slice(range, viewportStart, viewportSize, 0);
+		assertEquals(message, raw.visited, range.visited);
+		assertEquals(message, raw.minY, range.minY, 0);
+		assertEquals(message, raw.maxY, range.maxY, 0);
+		assertEquals(message, 0, range.to - range.from);
+
+		// every value
+		actual.slice(range, viewportStart, viewportSize, raw.to - raw.from + 1);
+		assertEquals(message, raw.to - raw.from, range.to - range.from);
+		for (int i=0; i<raw.to-raw.from; i++) {
+			assertEquals(message + " x " + i, raw.valuesX[raw.from+i], range.valuesX[range.from+i], 0);
+			assertEquals(message + " y " + i, raw.valuesY[raw.from+i], range.valuesY[range.from+i], 0);
+		}
+
+		// aggregated, from the values and from the summaries
+		int[] columns = {1, 3, 40, 300};
+		for (int c : columns) {
+			actual.slice(range, viewportStart, viewportSize, c);
+			assertEquals(message, raw.minY, range.minY, 0);
+			assertEquals(message, raw.maxY, range.maxY, 0);
+			assertAggregated(message + " columns " + c, raw, range, c, originalValues);
+		}
+		raw.release();
+	}
+
+	/**
+	 * the aggregated values are original values in their order, with the first, last, smallest and largest value.
+	 * If not originalValues, only the x values have to be in order.
+	 */
+	private static void assertAggregated(String message, ValuesRange raw, ValuesRange range, int columns, boolean originalValues) {
+		int count = range.to - range.from;
+		if (raw.to == raw.from) {
+			assertEquals(message, 0, count);
+			return;
+		}
+		assertTrue(message, count <= (columns + 4) * 4);
+		int j = raw.from;
+		double smallest = Double.POSITIVE_INFINITY;
+		double largest = Double.NEGATIVE_INFINITY;
+		for (int i=range.from; i<range.to; i++) {
+			if (originalValues) {
+				while (j < raw.to && (raw.valuesX[j] != range.valuesX[i] || !sameY(raw.valuesY[j], range.valuesY[i]))) {
+					j++;
+				}
+				assertTrue(message + " value " + i + " is not an original value in order", j < raw.to);
+				j++;
+			} else if (i > range.from) {
+				assertTrue(message + " value " + i + " is not in order", range.valuesX[i-1] <= range.valuesX[i]);
+			}
+			smallest = Math.min(smallest, range.valuesY[i]);
+			largest = Math.max(largest, range.valuesY[i]);
+		}
+		assertEquals(message, raw.valuesX[raw.from], range.valuesX[range.from], 0);
+		assertEquals(message, raw.valuesX[raw.to-1], range.valuesX[range.to-1], 0);
+		assertEquals(message, raw.minY, smallest, 0);
+		assertEquals(message, raw.maxY, largest, 0);
+	}
+
+	private static boolean sameY(double a, double b) {
+		return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+
+/**
+ * {@link RenderBackend} that draws to a java.awt.Graphics2D, e.g. of a BufferedImage.
+ * {@code
+ * 		BufferedImage image = new BufferedImage(800, 480, BufferedImage.TYPE_INT_ARGB);
+ * 		Graphics2D graphics = image.createGraphics();
+ * 		renderer.render(new Java2DRenderBackend(graphics), 800, 480);
+ * 		graphics.dispose();
+ * 		ImageIO.write(image, "png", file);
+ * }
+ * The shapes, the color and the stroke are reused, so drawing doesn't create objects
+ * except for measuring texts.
+ */
+public class Java2DRenderBackend implements RenderBackend {
+	private final Path2D.Float path = new Path2D.Float();
+	private final Rectangle2D.Float rect = new Rectangle2D.Float();
+	private final RoundRectangle2D.Float roundRect = new RoundRectangle2D.Float();
+	private final Ellipse2D.Float ellipse = new Ellipse2D.Float();
+	private Graphics2D graphics;
+	private Font font;
+	private FontMetrics fontMetrics;
+	private float textSize;
+	private int color;
+	private float strokeWidth = -1;
+
+	/**
+	 * @param graphics anti aliasing is enabled
+	 */
+	public Java2DRenderBackend(Graphics2D graphics) {
+		setGraphics(graphics);
+	}
+
+	/**
+	 * draws to another graphics, so that the backend can be reused for the next graph
+	 * @param graphics anti aliasing is enabled
+	 */
+	public void setGraphics(Graphics2D graphics) {
+		this.graphics = graphics;
+		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		color = 0;
+		graphics.setColor(new Color(0, true));
+		strokeWidth = -1;
+		font = graphics.getFont();
+		textSize = font.getSize2D();
+		fontMetrics = graphics.getFontMetrics(font);
+	}
+
+	private void setColor(int color) {
+		if (this.color != color) {
+			this.color = color;
+			graphics.setColor(new Color(color, true));
+		}
+	}
+
+	private void setStrokeWidth(float width) {
+		if (strokeWidth != width) {
+			strokeWidth = width;
+			graphics.setStroke(new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+		}
+	}
+
+	@Override
+	public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width) {
+		path.reset();
+		path.moveTo(startX, startY);
+		path.lineTo(stopX, stopY);
+		setColor(color);
+		setStrokeWidth(width);
+		graphics.draw(path);
+	}
+
+	/**
+	 * connected segments are drawn as one path
+	 */
+	@Override
+	public void drawLines(float[] points, int count, int color, float width) {
+		path.reset();
+		float lastX = Float.NaN;
+		float lastY = Float.NaN;
+		for (int i = 0; i + 3 < count; i += 4) {
+			if (points[i] != lastX || points[i+1] != lastY) {
+				path.moveTo(points[i], points[i+1]);
+			}
+			lastX = points[i+2];
+			lastY = points[i+3];
+			path.lineTo(lastX, lastY);
+		}
+		setColor(color);
+		setStrokeWidth(width);
+		graphics.draw(path);
+	}
+
+	@Override
+	public void fillCircle(float centerX, float centerY, float radius, int color) {
+		ellipse.setFrame(centerX - radius, centerY - radius, radius * 2, radius * 2);
+		setColor(color);
+		graphics.fill(ellipse);
+	}
+
+	@Override
+	public void fillRect(float left, float top, float right, float bottom, int color) {
+		rect.setRect(left, top, right - left, bottom - top);
+		setColor(color);
+		graphics.fill(rect);
+	}
+
+	@Override
+	public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color) {
+		roundRect.setRoundRect(left, top, right - left, bottom - top, radius * 2, radius * 2);
+		setColor(color);
+		graphics.fill(roundRect);
+	}
+
+	@Override
+	public void fillPolygon(float[] points, int count, int color) {
+		path.reset();
+		path.moveTo(points[0], points[1]);
+		for (int i = 2; i + 1 < count; i += 2) {
+			path.lineTo(points[i], points[i+1]);
+		}
+		path.closePath();
+		setColor(color);
+		graphics.fill(path);
+	}
+
+	@Override
+	public void drawText(String text, float x, float y, Align align, int color) {
+		if (align == Align.CENTER) {
+			x -= fontMetrics.stringWidth(text) / 2f;
+		} else if (align == Align.RIGHT) {
+			x -= fontMetrics.stringWidth(text);
+		}
+		setColor(color);
+		graphics.drawString(text, x, y);
+	}
+
+	@Override
+	public void setTextSize(float textSize) {
+		if (this.textSize != textSize) {
+			this.textSize = textSize;
+			font = font.deriveFont(textSize);
+			graphics.setFont(font);
+			fontMetrics = graphics.getFontMetrics(font);
+		}
+	}
+
+	@Override
+	public float getTextSize() {
+		return textSize;
+	}
+
+	@Override
+	public int getTextWidth(String text) {
+		return (int) Math.ceil(getTextBounds(text).getWidth());
+	}
+
+	@Override
+	public int getTextHeight(String text) {
+		return (int) Math.ceil(getTextBounds(text).getHeight());
+	}
+
+	private Rectangle2D getTextBounds(String text) {
+		return font.createGlyphVector(graphics.getFontRenderContext(), text).getVisualBounds();
+	}
+}
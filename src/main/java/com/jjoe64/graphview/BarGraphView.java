@@ -21,8 +21,6 @@ package com.jjoe64.graphview;
 
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint.Align;
 import android.util.AttributeSet;
 
 import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
@@ -32,8 +30,7 @@ import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
  * @author Muhammad Shahab Hameed
  */
 public class BarGraphView extends GraphView {
-	private boolean drawValuesOnTop;
-	private int valuesOnTopColor = Color.WHITE;
+	private final BarSeriesRenderer renderer = new BarSeriesRenderer();
 
 	public BarGraphView(Context context, AttributeSet attrs) {
 		super(context, attrs);
@@ -46,73 +43,31 @@ public class BarGraphView extends GraphView {
 	@Override
 	protected void drawHorizontalLabels(Canvas canvas, float border,
 			float horstart, float height, String[] horlabels, float graphwidth) {
-		// horizontal labels + lines
-		paint.setTextAlign(Align.CENTER);
-
-		int hors = horlabels.length;
-		float barwidth = graphwidth/horlabels.length;
-		float textOffset = barwidth/2;
-		for (int i = 0; i < horlabels.length; i++) {
-			// lines
-			float x = ((graphwidth / hors) * i) + horstart;
-			paint.setColor(graphViewStyle.getGridColor());
-			canvas.drawLine(x, height - border, x, border, paint);
-
-            if(getShowHorizontalLabels()) {
-                // text
-                x = barwidth*i + textOffset + horstart;
-                paint.setColor(graphViewStyle.getHorizontalLabelsColor());
-                canvas.drawText(horlabels[i], x, height - 4, paint);
-            }
-		}
+		frameLayout.drawBarHorizontalLabels(canvasBackend.setCanvas(canvas), border, horstart, height, horlabels, graphwidth);
 	}
 
-	@SuppressWarnings("deprecation")
 	@Override
-	public void drawSeries(Canvas canvas, GraphViewDataInterface[] values, float graphwidth, float graphheight,
+	public void drawSeries(Canvas canvas, double[] valuesX, double[] valuesY, int from, int to, float graphwidth, float graphheight,
 			float border, double minX, double minY, double diffX, double diffY,
 			float horstart, GraphViewSeriesStyle style) {
-		float colwidth = graphwidth / (values.length);
-
-		paint.setStrokeWidth(style.thickness);
-
-		float offset = 0;
-
-		// draw data
-		for (int i = 0; i < values.length; i++) {
-			float valY = (float) (values[i].getY() - minY);
-			float ratY = (float) (valY / diffY);
-			float y = graphheight * ratY;
-
-			// hook for value dependent color
-			if (style.getValueDependentColor() != null) {
-				paint.setColor(style.getValueDependentColor().get(values[i]));
-			} else {
-				paint.setColor(style.color);
-			}
-
-			float left = (i * colwidth) + horstart -offset;
-			float top = (border - y) + graphheight;
-			float right = ((i * colwidth) + horstart) + (colwidth - 1) -offset;
-			canvas.drawRect(left, top, right, graphheight + border - 1, paint);
+		renderer.draw(canvasBackend.setCanvas(canvas), valuesX, valuesY, from, to, graphwidth, graphheight,
+				border, minY, diffY, horstart, style.color, style.getValueDependentColor(), frameLayout.labelFormatter);
+	}
 
-			// -----Set values on top of graph---------
-			if (drawValuesOnTop) {
-				top -= 4;
-				if (top<=border) top+=border+4;
-				paint.setTextAlign(Align.CENTER);
-				paint.setColor(valuesOnTopColor );
-				canvas.drawText(formatLabel(values[i].getY(), false), (left+right)/2, top, paint);
-			}
-		}
+	/**
+	 * one bar per value, so the bars are never drawn from level of detail values
+	 */
+	@Override
+	protected boolean supportsAggregation() {
+		return false;
 	}
 
 	public boolean getDrawValuesOnTop() {
-		return drawValuesOnTop;
+		return renderer.drawValuesOnTop;
 	}
 
 	public int getValuesOnTopColor() {
-		return valuesOnTopColor;
+		return renderer.valuesOnTopColor;
 	}
 
 	/**
@@ -120,10 +75,10 @@ public class BarGraphView extends GraphView {
 	 * @param drawValuesOnTop
 	 */
 	public void setDrawValuesOnTop(boolean drawValuesOnTop) {
-		this.drawValuesOnTop = drawValuesOnTop;
+		renderer.drawValuesOnTop = drawValuesOnTop;
 	}
 
 	public void setValuesOnTopColor(int valuesOnTopColor) {
-		this.valuesOnTopColor = valuesOnTopColor;
+		renderer.valuesOnTopColor = valuesOnTopColor;
 	}
 }
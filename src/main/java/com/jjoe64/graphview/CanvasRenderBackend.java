@@ -0,0 +1,136 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * {@link RenderBackend} that draws to an Android canvas.
+ * The paint of the graph view is used, so that anti alias, stroke cap and
+ * text size are the same as for the grid and the labels.
+ */
+final class CanvasRenderBackend implements RenderBackend {
+	private final Paint paint;
+	private final Paint fillPaint = new Paint();
+	private final Path path = new Path();
+	private final RectF rect = new RectF();
+	private final Rect textBounds = new Rect();
+	private Canvas canvas;
+
+	CanvasRenderBackend(Paint paint) {
+		this.paint = paint;
+	}
+
+	/**
+	 * @return this, with the canvas to draw to
+	 */
+	CanvasRenderBackend setCanvas(Canvas canvas) {
+		this.canvas = canvas;
+		return this;
+	}
+
+	@Override
+	public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width) {
+		paint.setColor(color);
+		paint.setStrokeWidth(width);
+		canvas.drawLine(startX, startY, stopX, stopY, paint);
+	}
+
+	@Override
+	public void drawLines(float[] points, int count, int color, float width) {
+		paint.setColor(color);
+		paint.setStrokeWidth(width);
+		canvas.drawLines(points, 0, count, paint);
+	}
+
+	@Override
+	public void fillCircle(float centerX, float centerY, float radius, int color) {
+		paint.setColor(color);
+		canvas.drawCircle(centerX, centerY, radius, paint);
+	}
+
+	@Override
+	public void fillRect(float left, float top, float right, float bottom, int color) {
+		paint.setColor(color);
+		canvas.drawRect(left, top, right, bottom, paint);
+	}
+
+	@Override
+	public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color) {
+		paint.setColor(color);
+		rect.set(left, top, right, bottom);
+		canvas.drawRoundRect(rect, radius, radius, paint);
+	}
+
+	@Override
+	public void fillPolygon(float[] points, int count, int color) {
+		path.rewind();
+		path.moveTo(points[0], points[1]);
+		for (int i = 2; i < count; i += 2) {
+			path.lineTo(points[i], points[i+1]);
+		}
+		path.close();
+		fillPaint.setColor(color);
+		canvas.drawPath(path, fillPaint);
+	}
+
+	@Override
+	public void drawText(String text, float x, float y, Align align, int color) {
+		switch (align) {
+		case LEFT:
+			paint.setTextAlign(Paint.Align.LEFT);
+			break;
+		case CENTER:
+			paint.setTextAlign(Paint.Align.CENTER);
+			break;
+		default:
+			paint.setTextAlign(Paint.Align.RIGHT);
+		}
+		paint.setColor(color);
+		canvas.drawText(text, x, y, paint);
+	}
+
+	@Override
+	public void setTextSize(float textSize) {
+		paint.setTextSize(textSize);
+	}
+
+	@Override
+	public float getTextSize() {
+		return paint.getTextSize();
+	}
+
+	@Override
+	public int getTextWidth(String text) {
+		paint.getTextBounds(text, 0, text.length(), textBounds);
+		return textBounds.width();
+	}
+
+	@Override
+	public int getTextHeight(String text) {
+		paint.getTextBounds(text, 0, text.length(), textBounds);
+		return textBounds.height();
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+/**
+ * timing of the drawing phases of a GraphView, see {@link GraphView#setDrawStatisticsEnabled(boolean)}.
+ * This is a snapshot, it doesn't change after it was created.
+ * Times are nanoseconds. Every call of a phase is one sample, phases can contain
+ * other phases, e.g. {@link Phase#CONTENT} contains the series and the legend.
+ */
+public class DrawStatistics {
+	public enum Phase {
+		/**
+		 * drawing the graph area: grid, horizontal labels, series and legend
+		 */
+		CONTENT,
+		/**
+		 * drawing the vertical labels view
+		 */
+		VERTICAL_LABELS,
+		/**
+		 * generating the horizontal or the vertical labels
+		 */
+		LABELS,
+		/**
+		 * min or max y value of the visible data, {@link GraphView#getMinY()} and {@link GraphView#getMaxY()}
+		 */
+		Y_RANGE,
+		/**
+		 * drawing one series
+		 */
+		SERIES,
+		/**
+		 * drawing the legend
+		 */
+		LEGEND
+	}
+
+	private final long[] lastNanos;
+	private final long[] meanNanos;
+	private final long[] p99Nanos;
+	private final long[] counts;
+	private final int[] pointsVisited;
+	private final int[] pointsDrawn;
+	private final long[] seriesNanos;
+
+	DrawStatistics(long[] lastNanos, long[] meanNanos, long[] p99Nanos, long[] counts, int[] pointsVisited, int[] pointsDrawn, long[] seriesNanos) {
+		this.lastNanos = lastNanos;
+		this.meanNanos = meanNanos;
+		this.p99Nanos = p99Nanos;
+		this.counts = counts;
+		this.pointsVisited = pointsVisited;
+		this.pointsDrawn = pointsDrawn;
+		this.seriesNanos = seriesNanos;
+	}
+
+	/**
+	 * @return number of samples of the phase since the statistics were enabled
+	 */
+	public long getCount(Phase phase) {
+		return counts[phase.ordinal()];
+	}
+
+	/**
+	 * @return time of the last sample, 0 if there is none
+	 */
+	public long getLastNanos(Phase phase) {
+		return lastNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return mean time of all samples since the statistics were enabled
+	 */
+	public long getMeanNanos(Phase phase) {
+		return meanNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return 99th percentile of the last 256 samples
+	 */
+	public long getP99Nanos(Phase phase) {
+		return p99Nanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return number of series of the last frame
+	 */
+	public int getSeriesCount() {
+		return pointsVisited.length;
+	}
+
+	/**
+	 * @param series index of the series
+	 * @return number of values in the viewport in the last frame
+	 */
+	public int getPointsVisited(int series) {
+		return pointsVisited[series];
+	}
+
+	/**
+	 * @param series index of the series
+	 * @return number of values that were drawn in the last frame,
+	 * smaller than the visited values if level of detail or downsampling is used
+	 */
+	public int getPointsDrawn(int series) {
+		return pointsDrawn[series];
+	}
+
+	/**
+	 * @param series index of the series
+	 * @return time to draw the series in the last frame
+	 */
+	public long getSeriesNanos(int series) {
+		return seriesNanos[series];
+	}
+
+	/**
+	 * e.g. for the log: last/mean/p99 in microseconds per phase and the points per series
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("DrawStatistics");
+		for (Phase phase : Phase.values()) {
+			int i = phase.ordinal();
+			sb.append(' ').append(phase).append('=')
+					.append(lastNanos[i] / 1000).append('/')
+					.append(meanNanos[i] / 1000).append('/')
+					.append(p99Nanos[i] / 1000).append("us");
+		}
+		for (int i = 0; i < pointsVisited.length; i++) {
+			sb.append(" series").append(i).append('=')
+					.append(pointsDrawn[i]).append('/')
+					.append(pointsVisited[i]).append("pts");
+		}
+		return sb.toString();
+	}
+}
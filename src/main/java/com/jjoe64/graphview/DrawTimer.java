@@ -0,0 +1,107 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.util.Arrays;
+
+import com.jjoe64.graphview.DrawStatistics.Phase;
+
+/**
+ * records the samples for {@link DrawStatistics}.
+ * The vertical labels are timed on the UI thread while the render thread draws a frame,
+ * so all methods are synchronized. Recording doesn't create objects.
+ */
+final class DrawTimer {
+	/**
+	 * number of recent samples per phase for the percentile
+	 */
+	static final int SAMPLES = 256;
+	private static final int PHASES = Phase.values().length;
+
+	private final long[][] samples = new long[PHASES][SAMPLES];
+	private final long[] counts = new long[PHASES];
+	private final long[] sums = new long[PHASES];
+	private int seriesCount;
+	private int[] pointsVisited = new int[0];
+	private int[] pointsDrawn = new int[0];
+	private long[] seriesNanos = new long[0];
+
+	synchronized void add(Phase phase, long nanos) {
+		int i = phase.ordinal();
+		samples[i][(int) (counts[i] % SAMPLES)] = nanos;
+		counts[i]++;
+		sums[i] += nanos;
+	}
+
+	/**
+	 * starts a frame with the series
+	 */
+	synchronized void beginSeries(int count) {
+		if (pointsVisited.length < count) {
+			pointsVisited = new int[count];
+			pointsDrawn = new int[count];
+			seriesNanos = new long[count];
+		} else {
+			Arrays.fill(pointsVisited, 0);
+			Arrays.fill(pointsDrawn, 0);
+			Arrays.fill(seriesNanos, 0);
+		}
+		seriesCount = count;
+	}
+
+	/**
+	 * adds a drawSeries call to the series of the frame and to {@link Phase#SERIES}
+	 */
+	synchronized void addSeries(int index, int visited, int drawn, long nanos) {
+		if (index < seriesCount) {
+			pointsVisited[index] += visited;
+			pointsDrawn[index] += drawn;
+			seriesNanos[index] += nanos;
+		}
+		add(Phase.SERIES, nanos);
+	}
+
+	synchronized DrawStatistics snapshot() {
+		long[] last = new long[PHASES];
+		long[] mean = new long[PHASES];
+		long[] p99 = new long[PHASES];
+		long[] sorted = new long[SAMPLES];
+		for (int i = 0; i < PHASES; i++) {
+			long count = counts[i];
+			if (count == 0) {
+				continue;
+			}
+			last[i] = samples[i][(int) ((count - 1) % SAMPLES)];
+			mean[i] = sums[i] / count;
+			int n = (int) Math.min(count, SAMPLES);
+			System.arraycopy(samples[i], 0, sorted, 0, n);
+			Arrays.sort(sorted, 0, n);
+			p99[i] = sorted[(int) Math.ceil(n * 0.99) - 1];
+		}
+		int[] visited = new int[seriesCount];
+		int[] drawn = new int[seriesCount];
+		long[] nanos = new long[seriesCount];
+		System.arraycopy(pointsVisited, 0, visited, 0, seriesCount);
+		System.arraycopy(pointsDrawn, 0, drawn, 0, seriesCount);
+		System.arraycopy(seriesNanos, 0, nanos, 0, seriesCount);
+		return new DrawStatistics(last, mean, p99, counts.clone(), visited, drawn, nanos);
+	}
+}
@@ -19,7 +19,6 @@
 
 package com.jjoe64.graphview;
 
-import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,21 +27,24 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
-import android.graphics.Rect;
-import android.graphics.RectF;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
 import android.view.View;
 import android.widget.LinearLayout;
 
+import com.jjoe64.graphview.DrawStatistics.Phase;
 import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
 import com.jjoe64.graphview.GraphViewStyle.GridStyle;
 import com.jjoe64.graphview.compatible.ScaleGestureDetector;
+import com.jjoe64.graphview.compatible.SystemTrace;
 
 /**
  * GraphView is a Android View for creating zoomable and scrollable graphs.
- * This is the abstract base class for all graphs. Extend this class and implement {@link #drawSeries(Canvas, GraphViewDataInterface[], float, float, float, double, double, double, double, float)} to display a custom graph.
+ * This is the abstract base class for all graphs. Extend this class and implement {@link #drawSeries(Canvas, double[], double[], int, int, float, float, float, double, double, double, double, float, GraphViewSeriesStyle)} to display a custom graph.
  * Use {@link LineGraphView} for creating a line chart.
  *
  * @author jjoe64 - jonas gehring - http://www.jjoe64.com
@@ -52,15 +54,21 @@ import com.jjoe64.graphview.compatible.ScaleGestureDetector;
  * http://www.gnu.org/licenses/lgpl.html
  */
 abstract public class GraphView extends LinearLayout {
-	static final private class GraphViewConfig {
-		static final float BORDER = 20;
+	/**
+	 * indices of the trace section names, see {@link GraphView#setTraceEnabled(boolean)}
+	 */
+	static final private class TraceSection {
+		static final int CONTENT = 0;
+		static final int VERTICAL_LABELS = 1;
+		static final int MEASURE_LABELS = 2;
+		static final int GENERATE_LABELS = 3;
+		static final int VIEWPORT = 4;
+		static final int Y_RANGE = 5;
+		static final int LEGEND = 6;
+		static final String[] NAMES = {"content", "vertical labels", "measure labels", "generate labels", "viewport", "y range", "legend"};
 	}
 
 	private class GraphViewContentView extends View {
-		private float lastTouchEventX;
-		private float graphwidth;
-		private boolean scrollingStarted;
-
 		/**
 		 * @param context
 		 */
@@ -74,102 +82,70 @@ abstract public class GraphView extends LinearLayout {
 		 */
 		@Override
 		protected void onDraw(Canvas canvas) {
+			drawFrame(canvas, getWidth(), getHeight());
+		}
 
-			paint.setAntiAlias(true);
-
-			// normal
-			paint.setStrokeWidth(0);
-
-			float border = GraphViewConfig.BORDER;
-			float horstart = 0;
-			float height = getHeight();
-			float width = getWidth() - 1;
-			double maxY = getMaxY();
-			double minY = getMinY();
-			double maxX = getMaxX(false);
-			double minX = getMinX(false);
-			double diffX = maxX - minX;
-
-			 // measure bottom text
-			if (labelTextHeight == null || horLabelTextWidth == null) {
-				paint.setTextSize(getGraphViewStyle().getTextSize());
-				double testX = ((getMaxX(true)-getMinX(true))*0.783)+getMinX(true);
-				String testLabel = formatLabel(testX, true);
-				paint.getTextBounds(testLabel, 0, testLabel.length(), textBounds);
-				labelTextHeight = (textBounds.height());
-				horLabelTextWidth = (textBounds.width());
-			}
-            border += labelTextHeight;
-
-			float graphheight = height - (2 * border);
-			graphwidth = width;
-
-			if (horlabels == null) {
-				horlabels = generateHorlabels(graphwidth);
-			}
-			if (verlabels == null) {
-				verlabels = generateVerlabels(graphheight);
+		@Override
+		protected void onDetachedFromWindow() {
+			super.onDetachedFromWindow();
+			synchronized (frameLock) {
+				releaseContentLayers();
 			}
+		}
 
-			// vertical lines
-			if(graphViewStyle.getGridStyle() != GridStyle.HORIZONTAL) {
-				paint.setTextAlign(Align.LEFT);
-				int vers = verlabels.length - 1;
-				for (int i = 0; i < verlabels.length; i++) {
-					paint.setColor(graphViewStyle.getGridColor());
-					float y = ((graphheight / vers) * i) + border;
-					canvas.drawLine(horstart, y, width, y, paint);
-				}
+		/**
+		 * @param event
+		 */
+		@Override
+		public boolean onTouchEvent(MotionEvent event) {
+			if (!isScrollable() || isDisableTouch()) {
+				return super.onTouchEvent(event);
 			}
+			return onContentTouchEvent(event);
+		}
+	}
 
-			drawHorizontalLabels(canvas, border, horstart, height, horlabels, graphwidth);
-
-            paint.setColor(graphViewStyle.getHorizontalLabelsColor());
-			paint.setTextAlign(Align.CENTER);
-			canvas.drawText(title, (graphwidth / 2) + horstart, border - 4, paint);
-
-			if (maxY == minY) {
-				// if min/max is the same, fake it so that we can render a line
-				if(maxY == 0) {
-					// if both are zero, change the values to prevent division by zero
-					maxY = 1.0d;
-					minY = 0.0d;
-				} else {
-					maxY = maxY*1.05d;
-					minY = minY*0.95d;
-				}
-			}
+	/**
+	 * content view that is drawn by a render thread, see {@link GraphView#setRenderThreadEnabled(boolean)}
+	 */
+	private class GraphViewSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+		private RenderThread renderThread;
 
-			double diffY = maxY - minY;
-			paint.setStrokeCap(Paint.Cap.ROUND);
+		/**
+		 * @param context
+		 */
+		public GraphViewSurfaceView(Context context) {
+			super(context);
+			setLayoutParams(new LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT));
+			getHolder().addCallback(this);
+		}
 
-			for (int i=0; i<graphSeries.size(); i++) {
-				drawSeries(canvas, _values(i), graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, graphSeries.get(i).style);
+		/**
+		 * draw a new frame
+		 */
+		void requestRender() {
+			RenderThread thread = renderThread;
+			if (thread != null) {
+				thread.requestRender();
 			}
-
-			if (showLegend) drawLegend(canvas, height, width);
 		}
 
-		private void onMoveGesture(float f) {
-			// view port update
-			if (viewportSize != 0) {
-				viewportStart -= f*viewportSize/graphwidth;
+		@Override
+		public void surfaceCreated(SurfaceHolder holder) {
+			renderThread = new RenderThread(holder);
+			renderThread.start();
+		}
 
-				// minimal and maximal view limit
-				double minX = getMinX(true);
-				double maxX = getMaxX(true);
-				if (viewportStart < minX) {
-					viewportStart = minX;
-				} else if (viewportStart+viewportSize > maxX) {
-					viewportStart = maxX - viewportSize;
-				}
+		@Override
+		public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+			renderThread.setSize(width, height);
+		}
 
-				// labels have to be regenerated
-				if (!staticHorizontalLabels) horlabels = null;
-				if (!staticVerticalLabels) verlabels = null;
-				viewVerLabels.invalidate();
-			}
-			invalidate();
+		@Override
+		public void surfaceDestroyed(SurfaceHolder holder) {
+			// the surface must not be used after this method returned
+			renderThread.quit();
+			renderThread = null;
 		}
 
 		/**
@@ -180,43 +156,96 @@ abstract public class GraphView extends LinearLayout {
 			if (!isScrollable() || isDisableTouch()) {
 				return super.onTouchEvent(event);
 			}
+			return onContentTouchEvent(event);
+		}
+	}
+
+	/**
+	 * draws the content of a {@link GraphViewSurfaceView} when a frame was requested.
+	 * The graph state is copied under the draw lock and the frame is drawn
+	 * from the copy and from snapshots of the series data, see {@link GraphView#drawFrame(Canvas, int, int)}.
+	 * So the UI thread only waits for the copy, not for the whole frame.
+	 */
+	private class RenderThread extends Thread {
+		private final SurfaceHolder holder;
+		private boolean running = true;
+		private boolean dirty = true;
+		private int width;
+		private int height;
+
+		RenderThread(SurfaceHolder holder) {
+			super("GraphView RenderThread");
+			this.holder = holder;
+		}
+
+		synchronized void requestRender() {
+			dirty = true;
+			notify();
+		}
+
+		synchronized void setSize(int width, int height) {
+			this.width = width;
+			this.height = height;
+			dirty = true;
+			notify();
+		}
 
-			boolean handled = false;
-			// first scale
-			if (scalable && scaleDetector != null) {
-				scaleDetector.onTouchEvent(event);
-				handled = scaleDetector.isInProgress();
+		/**
+		 * stops the thread and waits until the current frame is finished
+		 */
+		void quit() {
+			synchronized (this) {
+				running = false;
+				notify();
 			}
-			if (!handled) {
-				//Log.d("GraphView", "on touch event scale not handled+"+lastTouchEventX);
-				// if not scaled, scroll
-				if ((event.getAction() & MotionEvent.ACTION_DOWN) == MotionEvent.ACTION_DOWN &&
-						(event.getAction() & MotionEvent.ACTION_MOVE) == 0) {
-					scrollingStarted = true;
-					handled = true;
+			boolean interrupted = false;
+			while (isAlive()) {
+				try {
+					join();
+				} catch (InterruptedException e) {
+					interrupted = true;
 				}
-				if ((event.getAction() & MotionEvent.ACTION_UP) == MotionEvent.ACTION_UP) {
-					scrollingStarted = false;
-					lastTouchEventX = 0;
-					handled = true;
-				}
-				if ((event.getAction() & MotionEvent.ACTION_MOVE) == MotionEvent.ACTION_MOVE) {
-					if (scrollingStarted) {
-						if (lastTouchEventX != 0) {
-							onMoveGesture(event.getX() - lastTouchEventX);
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (frameLock) {
+				releaseContentLayers();
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				int frameWidth;
+				int frameHeight;
+				synchronized (this) {
+					while (running && (!dirty || width == 0 || height == 0)) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							running = false;
 						}
-						lastTouchEventX = event.getX();
-						handled = true;
 					}
+					if (!running) {
+						return;
+					}
+					dirty = false;
+					frameWidth = width;
+					frameHeight = height;
+				}
+
+				Canvas canvas = holder.lockCanvas();
+				if (canvas == null) {
+					continue;
+				}
+				try {
+					canvas.drawColor(renderThreadBackgroundColor);
+					drawFrame(canvas, frameWidth, frameHeight);
+				} finally {
+					holder.unlockCanvasAndPost(canvas);
 				}
-				if (handled)
-					invalidate();
-			} else {
-				// currently scaling
-				scrollingStarted = false;
-				lastTouchEventX = 0;
 			}
-			return handled;
 		}
 	}
 
@@ -246,6 +275,8 @@ abstract public class GraphView extends LinearLayout {
 	}
 
 	private class VerLabelsView extends View {
+		private final LayerCache layerCache = new LayerCache();
+
 		/**
 		 * @param context
 		 */
@@ -261,87 +292,166 @@ abstract public class GraphView extends LinearLayout {
 		 */
 		@Override
 		protected void onDraw(Canvas canvas) {
-			// normal
-			paint.setStrokeWidth(0);
-
-			 // measure bottom text
-			if (labelTextHeight == null || verLabelTextWidth == null) {
-				paint.setTextSize(getGraphViewStyle().getTextSize());
-				double testY = ((getMaxY()-getMinY())*0.783)+getMinY();
-				String testLabel = formatLabel(testY, false);
-				paint.getTextBounds(testLabel, 0, testLabel.length(), textBounds);
-				labelTextHeight = (textBounds.height());
-				verLabelTextWidth = (textBounds.width());
+			synchronized (drawLock) {
+				drawVerLabels(canvas);
 			}
-			if (getGraphViewStyle().getVerticalLabelsWidth()==0 && getLayoutParams().width != verLabelTextWidth+GraphViewConfig.BORDER) {
-				setLayoutParams(new LayoutParams(
-						(int) (verLabelTextWidth+GraphViewConfig.BORDER), LayoutParams.FILL_PARENT));
-			} else if (getGraphViewStyle().getVerticalLabelsWidth()!=0 && getGraphViewStyle().getVerticalLabelsWidth() != getLayoutParams().width) {
-				setLayoutParams(new LayoutParams(
-						getGraphViewStyle().getVerticalLabelsWidth(), LayoutParams.FILL_PARENT));
+		}
+
+		private void drawVerLabels(Canvas canvas) {
+			DrawTimer timer = drawTimer;
+			long start = timer != null ? System.nanoTime() : 0;
+			boolean traced = beginTrace(TraceSection.VERTICAL_LABELS);
+
+			applyStyle();
+			labelsBackend.setTextSize(layout.textSize);
+			prepareLabels(labelsBackend);
+			int labelsWidth = layout.getVerticalLabelsWidth();
+			if (getLayoutParams().width != labelsWidth) {
+				setLayoutParams(new LayoutParams(labelsWidth, LayoutParams.FILL_PARENT));
 			}
 
-			float border = GraphViewConfig.BORDER;
-			border += labelTextHeight;
-			float height = getHeight();
-			float graphheight = height - (2 * border);
+			float border = layout.getBorder();
+			float graphheight = getHeight() - (2 * border);
+			String[] verlabels = getVerticalLabels(graphheight);
 
-			if (verlabels == null) {
-				verlabels = generateVerlabels(graphheight);
+			if (layerCacheEnabled && getWidth() > 0 && getHeight() > 0) {
+				// labels from the bitmap
+				if (layerCache.needsUpdate(getWidth(), getHeight(), verlabels, null)) {
+					Canvas layerCanvas = layerCache.beginUpdate(getWidth(), getHeight(), verlabels, null);
+					drawLabels(layerCanvas, verlabels, border, graphheight);
+				}
+				layerCache.draw(canvas);
+			} else {
+				drawLabels(canvas, verlabels, border, graphheight);
 			}
 
-			// vertical labels
-			paint.setTextAlign(getGraphViewStyle().getVerticalLabelsAlign());
+			endTrace(traced);
+			if (timer != null) timer.add(Phase.VERTICAL_LABELS, System.nanoTime() - start);
+		}
+
+		private void drawLabels(Canvas canvas, String[] verlabels, float border, float graphheight) {
 			int labelsWidth = getWidth();
 			int labelsOffset = 0;
+			RenderBackend.Align align = RenderBackend.Align.LEFT;
 			if (getGraphViewStyle().getVerticalLabelsAlign() == Align.RIGHT) {
 				labelsOffset = labelsWidth;
+				align = RenderBackend.Align.RIGHT;
 			} else if (getGraphViewStyle().getVerticalLabelsAlign() == Align.CENTER) {
 				labelsOffset = labelsWidth / 2;
+				align = RenderBackend.Align.CENTER;
 			}
-			int vers = verlabels.length - 1;
-			for (int i = 0; i < verlabels.length; i++) {
-				float y = ((graphheight / vers) * i) + border;
-				paint.setColor(graphViewStyle.getVerticalLabelsColor());
-				canvas.drawText(verlabels[i], labelsOffset, y, paint);
-			}
+			layout.drawVerticalLabels(labelsBackend.setCanvas(canvas), verlabels, labelsOffset, align, border, graphheight);
+		}
 
-			// reset
-			paint.setTextAlign(Align.LEFT);
+		@Override
+		protected void onDetachedFromWindow() {
+			super.onDetachedFromWindow();
+			layerCache.release();
 		}
 	}
 
 	protected final Paint paint;
-	private String[] horlabels;
-	private String[] verlabels;
-	private String title;
+	/**
+	 * draws with {@link #paint} to the canvas of the current frame, for the series renderers of the core
+	 */
+	final CanvasRenderBackend canvasBackend;
+	/**
+	 * draws the vertical labels on the UI thread, with its own paint
+	 */
+	private final CanvasRenderBackend labelsBackend = new CanvasRenderBackend(new Paint(Paint.ANTI_ALIAS_FLAG));
 	private boolean scrollable;
 	private boolean disableTouch;
-	private double viewportStart;
-	private double viewportSize;
-	private final View viewVerLabels;
+	private final VerLabelsView viewVerLabels;
 	private ScaleGestureDetector scaleDetector;
 	private boolean scalable;
-	private final NumberFormat[] numberformatter = new NumberFormat[2];
+	/**
+	 * formats the labels of a layout with the layout, or with {@link #formatLabel(double, boolean)} if it is overridden
+	 */
+	private final class LayoutLabelFormatter implements CustomLabelFormatter {
+		private final GraphLayout layout;
+
+		LayoutLabelFormatter(GraphLayout layout) {
+			this.layout = layout;
+		}
+
+		@SuppressWarnings("deprecation")
+		@Override
+		public String formatLabel(double value, boolean isValueX) {
+			if (formatLabelOverridden) {
+				return GraphView.this.formatLabel(value, isValueX);
+			}
+			return layout.formatLabel(value, isValueX);
+		}
+	}
+
+	private final boolean formatLabelOverridden;
 	private final List<GraphViewSeries> graphSeries;
-	private boolean showLegend = false;
+	/**
+	 * viewport, y range, labels, title and legend. The same as for {@link GraphRenderer}.
+	 */
+	final GraphLayout layout;
+	/**
+	 * copies of {@link #layout} and of the series for the frame that is drawn,
+	 * see {@link #drawFrame(Canvas, int, int)}. Only used under the frame lock.
+	 */
+	final GraphLayout frameLayout;
+	private final List<GraphViewSeries> frameSeries = new ArrayList<GraphViewSeries>();
+	private ValuesRange[] valuesRanges = new ValuesRange[0];
 	private LegendAlign legendAlign = LegendAlign.MIDDLE;
-	private boolean manualYAxis;
-	private boolean manualMaxY;
-    	private boolean manualMinY;
-	private double manualMaxYValue;
-	private double manualMinYValue;
 	protected GraphViewStyle graphViewStyle;
 	private final GraphViewContentView graphViewContentView;
-	private CustomLabelFormatter customLabelFormatter;
-	private Integer labelTextHeight;
-	private Integer horLabelTextWidth;
-	private Integer verLabelTextWidth;
-	private final Rect textBounds = new Rect();
-	private boolean staticHorizontalLabels;
-	private boolean staticVerticalLabels;
-    private boolean showHorizontalLabels = true;
+	private GraphViewSurfaceView graphViewSurfaceView;
+	/**
+	 * guards the graph state that is used for drawing, see {@link #setRenderThreadEnabled(boolean)}
+	 */
+	private final Object drawLock = new Object();
+	/**
+	 * held while a frame of the content is drawn. Guards what only the drawing uses:
+	 * {@link #paint}, the frame copies and the layers, so that the layers are not
+	 * released while they are drawn. Can be held when the draw lock is taken, not the other way round.
+	 */
+	private final Object frameLock = new Object();
+	/**
+	 * the layers of the content are invalidated before the next frame is drawn. Guarded by the draw lock.
+	 */
+	private boolean contentLayersInvalid;
+	private boolean renderThreadEnabled;
+	private volatile int renderThreadBackgroundColor = Color.BLACK;
+	private final LayerCache contentLayerCache = new LayerCache();
+	private final StreamingLayer streamingLayer = new StreamingLayer();
+	/**
+	 * reused for the values that are drawn to the shifted streaming layer
+	 */
+	private final SeriesData.Snapshot streamingSnapshot = new SeriesData.Snapshot();
+	/**
+	 * scroll velocity and scale direction, to load the data of the next viewport ahead
+	 */
+	private final ViewportMotion viewportMotion = new ViewportMotion();
+	private final Runnable redrawAllRunnable = new Runnable() {
+		@Override
+		public void run() {
+			redrawAll();
+		}
+	};
+	private float lastTouchEventX;
+	private boolean scrollingStarted;
+	/**
+	 * null if the redraws are not coalesced
+	 */
+	private RedrawScheduler redrawScheduler;
+	private float maxFrameRate;
+	/**
+	 * null if the statistics are disabled
+	 */
+	private volatile DrawTimer drawTimer;
+	/**
+	 * names of the trace sections with the title, null if tracing is disabled
+	 */
+	private volatile String[] traceSections;
+	private int drawnPointsCount;
     private boolean showVerticalLabels = true;
+	private volatile boolean layerCacheEnabled;
+	private volatile boolean streamingRenderEnabled;
 
 	public GraphView(Context context, AttributeSet attrs) {
 		this(context, attrs.getAttributeValue(null, "title"));
@@ -359,16 +469,61 @@ abstract public class GraphView extends LinearLayout {
 		super(context);
 		setLayoutParams(new LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT));
 
-		if (title == null)
-			this.title = "";
-		else
-			this.title = title;
+		graphSeries = new ArrayList<GraphViewSeries>();
+		layout = new GraphLayout(new GraphLayout.SeriesSource() {
+			@Override
+			public int getSeriesCount() {
+				return graphSeries.size();
+			}
+
+			@Override
+			public SeriesStore getSeriesData(int index) {
+				return graphSeries.get(index).data;
+			}
+
+			@Override
+			public int getSeriesColor(int index) {
+				return graphSeries.get(index).style.color;
+			}
+
+			@Override
+			public String getSeriesDescription(int index) {
+				return graphSeries.get(index).description;
+			}
+		});
+		// the generated labels are formatted by formatLabel, that can be overridden
+		formatLabelOverridden = isFormatLabelOverridden();
+		layout.labelFormatter = new LayoutLabelFormatter(layout);
+		frameLayout = new GraphLayout(new GraphLayout.SeriesSource() {
+			@Override
+			public int getSeriesCount() {
+				return frameSeries.size();
+			}
+
+			@Override
+			public SeriesStore getSeriesData(int index) {
+				return frameSeries.get(index).data;
+			}
+
+			@Override
+			public int getSeriesColor(int index) {
+				return frameSeries.get(index).style.color;
+			}
+
+			@Override
+			public String getSeriesDescription(int index) {
+				return frameSeries.get(index).description;
+			}
+		});
+		frameLayout.labelFormatter = new LayoutLabelFormatter(frameLayout);
+		if (title != null)
+			layout.title = title;
 
 		graphViewStyle = new GraphViewStyle();
 		graphViewStyle.useTextColorFromTheme(context);
 
 		paint = new Paint();
-		graphSeries = new ArrayList<GraphViewSeries>();
+		canvasBackend = new CanvasRenderBackend(paint);
 
 		viewVerLabels = new VerLabelsView(context);
 		addView(viewVerLabels);
@@ -376,33 +531,464 @@ abstract public class GraphView extends LinearLayout {
 		addView(graphViewContentView, new LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT, 1));
 	}
 
-	private GraphViewDataInterface[] _values(int idxSeries) {
-		GraphViewDataInterface[] values = graphSeries.get(idxSeries).values;
-		synchronized (values) {
-			if (viewportStart == 0 && viewportSize == 0) {
-				// all data
-				return values;
+	/**
+	 * @return the pixel columns for {@link #_values(int, int)},
+	 * 0 if this graph type can't draw level of detail values
+	 */
+	private int columns(float graphwidth) {
+		return supportsAggregation() ? (int) Math.ceil(graphwidth) : 0;
+	}
+
+	/**
+	 * @param columns if > 0 and the series has a level of detail pyramid,
+	 * the range is reduced to about 1 to 2 buckets per column
+	 */
+	private ValuesRange _values(int idxSeries, int columns) {
+		boolean traced = beginTrace(TraceSection.VIEWPORT);
+		ValuesRange range = getValuesRange(idxSeries);
+		// the stores are read without lock
+		frameSeries.get(idxSeries).data.slice(range, frameLayout.viewportStart, frameLayout.viewportSize, columns);
+		endTrace(traced);
+		return range;
+	}
+
+	private ValuesRange getValuesRange(int idxSeries) {
+		if (valuesRanges.length <= idxSeries) {
+			ValuesRange[] newValuesRanges = new ValuesRange[frameSeries.size()];
+			System.arraycopy(valuesRanges, 0, newValuesRanges, 0, valuesRanges.length);
+			valuesRanges = newValuesRanges;
+		}
+		ValuesRange range = valuesRanges[idxSeries];
+		if (range == null) {
+			range = new ValuesRange();
+			valuesRanges[idxSeries] = range;
+		}
+		return range;
+	}
+
+	/**
+	 * @return the smallest x value of the series, or NaN if it is empty
+	 */
+	private static double getLowestX(GraphViewSeries series) {
+		return series.data.getFirstX();
+	}
+
+
+	/**
+	 * copies the style to the layout
+	 */
+	private void applyStyle() {
+		GraphViewStyle style = graphViewStyle;
+		layout.textSize = style.getTextSize();
+		layout.gridColor = style.getGridColor();
+		layout.horizontalGridLines = style.getGridStyle() != GridStyle.HORIZONTAL;
+		layout.verticalGridLines = style.getGridStyle() != GridStyle.VERTICAL;
+		layout.horizontalLabelsColor = style.getHorizontalLabelsColor();
+		layout.verticalLabelsColor = style.getVerticalLabelsColor();
+		layout.verticalLabelsWidth = style.getVerticalLabelsWidth();
+		layout.numHorizontalLabels = style.getNumHorizontalLabels();
+		layout.numVerticalLabels = style.getNumVerticalLabels();
+		layout.legendWidth = style.getLegendWidth();
+		layout.legendBorder = style.getLegendBorder();
+		layout.legendSpacing = style.getLegendSpacing();
+		layout.legendMarginBottom = style.getLegendMarginBottom();
+		switch (legendAlign) {
+		case TOP:
+			layout.legendAlign = GraphLayout.LEGEND_TOP;
+			break;
+		case MIDDLE:
+			layout.legendAlign = GraphLayout.LEGEND_MIDDLE;
+			break;
+		default:
+			layout.legendAlign = GraphLayout.LEGEND_BOTTOM;
+		}
+	}
+
+	/**
+	 * sets the x and y range of the layout and measures the labels, if needed
+	 */
+	private void prepareLabels(RenderBackend backend) {
+		layout.setRange(getMinX(false), getMaxX(false), getMinY(), getMaxY());
+		if (!layout.isMeasured()) {
+			boolean traced = beginTrace(TraceSection.MEASURE_LABELS);
+			layout.measureLabels(backend, getMinX(true), getMaxX(true));
+			endTrace(traced);
+		}
+	}
+
+	private String[] getHorizontalLabels(float graphwidth) {
+		if (layout.hasHorizontalLabels()) {
+			return layout.getHorizontalLabels(graphwidth);
+		}
+		DrawTimer timer = drawTimer;
+		long start = timer != null ? System.nanoTime() : 0;
+		boolean traced = beginTrace(TraceSection.GENERATE_LABELS);
+		String[] labels = layout.getHorizontalLabels(graphwidth);
+		endTrace(traced);
+		if (timer != null) timer.add(Phase.LABELS, System.nanoTime() - start);
+		return labels;
+	}
+
+	private String[] getVerticalLabels(float graphheight) {
+		if (layout.hasVerticalLabels()) {
+			return layout.getVerticalLabels(graphheight);
+		}
+		DrawTimer timer = drawTimer;
+		long start = timer != null ? System.nanoTime() : 0;
+		boolean traced = beginTrace(TraceSection.GENERATE_LABELS);
+		String[] labels = layout.getVerticalLabels(graphheight);
+		if (labels.length == 1 && layout.numVerticalLabels == 0) {
+			Log.w("GraphView", "Height of Graph is smaller than the label text height, so no vertical labels were shown!");
+		}
+		endTrace(traced);
+		if (timer != null) timer.add(Phase.LABELS, System.nanoTime() - start);
+		return labels;
+	}
+
+	/**
+	 * draws a frame of the content view. The range, the layout and the labels are
+	 * calculated under the draw lock and copied to {@link #frameLayout} and {@link #frameSeries}.
+	 * Then the frame is drawn from the copies without the draw lock, the series data is read from snapshots.
+	 * @param viewWidth width of the content view
+	 * @param viewHeight height of the content view
+	 */
+	private void drawFrame(Canvas canvas, int viewWidth, int viewHeight) {
+		DrawTimer timer = drawTimer;
+		long start = timer != null ? System.nanoTime() : 0;
+		boolean traced = beginTrace(TraceSection.CONTENT);
+		synchronized (frameLock) {
+			synchronized (drawLock) {
+				prepareFrame(viewWidth, viewHeight);
+			}
+			drawContent(canvas, viewWidth, viewHeight);
+		}
+		endTrace(traced);
+		if (timer != null) timer.add(Phase.CONTENT, System.nanoTime() - start);
+	}
+
+	/**
+	 * calculates the range, the layout and the labels and copies them for the frame.
+	 * Called under the frame lock and the draw lock.
+	 */
+	private void prepareFrame(int viewWidth, int viewHeight) {
+		applyStyle();
+		paint.setTextSize(layout.textSize);
+		prepareLabels(canvasBackend);
+		layout.layout(viewWidth, viewHeight, 0);
+		getHorizontalLabels(layout.graphwidth);
+		getVerticalLabels(layout.graphheight);
+
+		frameLayout.copyFrom(layout);
+		frameSeries.clear();
+		for (int i=0; i<graphSeries.size(); i++) {
+			frameSeries.add(graphSeries.get(i));
+		}
+		if (contentLayersInvalid) {
+			contentLayerCache.invalidate();
+			streamingLayer.invalidate();
+			contentLayersInvalid = false;
+		}
+	}
+
+	/**
+	 * draws grid, labels, series and legend of the content view from the frame copies.
+	 * Called under the frame lock.
+	 * @param viewWidth width of the content view
+	 * @param viewHeight height of the content view
+	 */
+	private void drawContent(Canvas canvas, int viewWidth, int viewHeight) {
+		DrawTimer timer = drawTimer;
+		GraphLayout layout = frameLayout;
+
+		paint.setAntiAlias(true);
+
+		// normal
+		paint.setStrokeWidth(0);
+
+		float border = layout.border;
+		float horstart = layout.horstart;
+		float graphwidth = layout.graphwidth;
+		float graphheight = layout.graphheight;
+		// copied labels, nothing is generated
+		String[] horlabels = layout.getHorizontalLabels(graphwidth);
+		String[] verlabels = layout.getVerticalLabels(graphheight);
+
+		if (layerCacheEnabled && viewWidth > 0 && viewHeight > 0) {
+			// grid, labels and title from the bitmap
+			if (contentLayerCache.needsUpdate(viewWidth, viewHeight, horlabels, verlabels)) {
+				Canvas layerCanvas = contentLayerCache.beginUpdate(viewWidth, viewHeight, horlabels, verlabels);
+				drawStaticLayer(layerCanvas, horlabels, verlabels);
+			}
+			contentLayerCache.draw(canvas);
+		} else {
+			drawStaticLayer(canvas, horlabels, verlabels);
+		}
+
+		double minX = layout.minX;
+		double minY = layout.rangeMinY;
+		double diffX = layout.maxX - minX;
+		double diffY = layout.rangeMaxY - minY;
+		paint.setStrokeCap(Paint.Cap.ROUND);
+
+		if (timer != null) timer.beginSeries(frameSeries.size());
+		if (streamingRenderEnabled && isIncrementalDrawingSupported() && viewWidth > 0 && viewHeight > 0) {
+			drawSeriesStreaming(canvas, viewWidth, viewHeight, graphheight, border, minX, minY, diffX, diffY, horstart);
+		} else {
+			for (int i=0; i<frameSeries.size(); i++) {
+				ValuesRange range = _values(i, columns(graphwidth));
+				timedDrawSeries(canvas, i, range.valuesX, range.valuesY, range.from, range.to, range.visited, graphheight, border, minX, minY, diffX, diffY, horstart);
+				range.release();
+			}
+		}
+
+		if (layout.showLegend) {
+			long legendStart = timer != null ? System.nanoTime() : 0;
+			boolean traced = beginTrace(TraceSection.LEGEND);
+			drawLegend(canvas, layout.height, layout.width);
+			endTrace(traced);
+			if (timer != null) timer.add(Phase.LEGEND, System.nanoTime() - legendStart);
+		}
+	}
+
+	/**
+	 * calls {@link #drawSeries(Canvas, double[], double[], int, int, float, float, float, double, double, double, double, float, GraphViewSeriesStyle)}
+	 * and records the time and the points, if the statistics are enabled
+	 * @param index index of the series
+	 * @param visited number of values in the viewport
+	 */
+	private void timedDrawSeries(Canvas canvas, int index, double[] valuesX, double[] valuesY, int from, int to, int visited, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart) {
+		drawnPointsCount = to - from;
+		GraphViewSeries series = frameSeries.get(index);
+		boolean traced = traceSections != null;
+		if (traced) {
+			SystemTrace.beginSection(series.getTraceSectionName());
+		}
+		DrawTimer timer = drawTimer;
+		if (timer == null) {
+			drawSeries(canvas, valuesX, valuesY, from, to, frameLayout.graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, series.style);
+		} else {
+			long start = System.nanoTime();
+			drawSeries(canvas, valuesX, valuesY, from, to, frameLayout.graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, series.style);
+			timer.addSeries(index, visited, getDrawnPointsCount(), System.nanoTime() - start);
+		}
+		endTrace(traced);
+	}
+
+	/**
+	 * begins a section in the system trace, if tracing is enabled
+	 * @param section index of {@link TraceSection}
+	 * @return true if the section was begun, pass it to {@link #endTrace(boolean)}, so that the sections
+	 * stay balanced when tracing is enabled or disabled meanwhile
+	 */
+	private boolean beginTrace(int section) {
+		String[] sections = traceSections;
+		if (sections != null) {
+			SystemTrace.beginSection(sections[section]);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * ends the last section of {@link #beginTrace(int)}
+	 * @param traced the result of beginTrace
+	 */
+	private static void endTrace(boolean traced) {
+		if (traced) {
+			SystemTrace.endSection();
+		}
+	}
+
+	/**
+	 * @return names of the trace sections, with the title so that the graph can be found in the trace
+	 */
+	private String[] createTraceSections() {
+		String[] sections = new String[TraceSection.NAMES.length];
+		for (int i=0; i<sections.length; i++) {
+			sections[i] = "GraphView " + layout.title + ": " + TraceSection.NAMES[i];
+		}
+		return sections;
+	}
+
+	/**
+	 * draws grid, horizontal labels and title
+	 */
+	private void drawStaticLayer(Canvas canvas, String[] horlabels, String[] verlabels) {
+		GraphLayout layout = frameLayout;
+		layout.drawGrid(canvasBackend.setCanvas(canvas), verlabels);
+		drawHorizontalLabels(canvas, layout.border, layout.horstart, layout.height, horlabels, layout.graphwidth);
+		layout.drawTitle(canvasBackend.setCanvas(canvas));
+	}
+
+	/**
+	 * draws the series with the streaming layer.
+	 * If only the viewport moved to the right since the last frame, the layer is
+	 * shifted and only the new values are drawn. Otherwise the series are redrawn.
+	 * Series that are not on the heap are always redrawn, only the viewport is read from them.
+	 */
+	private void drawSeriesStreaming(Canvas canvas, int viewWidth, int viewHeight, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart) {
+		StreamingLayer layer = streamingLayer;
+		int seriesCount = frameSeries.size();
+		float graphwidth = frameLayout.graphwidth;
+		boolean full = !layer.isValid(viewWidth, viewHeight, seriesCount)
+				|| layer.graphwidth != graphwidth || layer.graphheight != graphheight || layer.border != border
+				|| layer.minY != minY || layer.diffY != diffY || layer.diffX != diffX
+				|| minX < layer.minX;
+		int shift = 0;
+		if (!full) {
+			double pixels = (minX - layer.minX) / diffX * graphwidth;
+			if (pixels >= viewWidth) {
+				full = true;
 			} else {
-				// viewport
-				List<GraphViewDataInterface> listData = new ArrayList<GraphViewDataInterface>();
-				for (int i=0; i<values.length; i++) {
-					if (values[i].getX() >= viewportStart) {
-						if (values[i].getX() > viewportStart+viewportSize) {
-							listData.add(values[i]); // one more for nice scrolling
-							break;
-						} else {
-							listData.add(values[i]);
-						}
-					} else {
-						if (listData.isEmpty()) {
-							listData.add(values[i]);
-						}
-						listData.set(0, values[i]); // one before, for nice scrolling
+				shift = (int) Math.round(pixels);
+			}
+		}
+		for (int i=0; i<seriesCount && !full; i++) {
+			GraphViewSeries series = frameSeries.get(i);
+			// values were removed (maxDataCount) that are still drawn in the layer
+			double firstX = getLowestX(series);
+			full = !(series.data instanceof SeriesData) || firstX != layer.firstX[i] && firstX > minX;
+		}
+
+		if (full) {
+			Canvas layerCanvas = layer.beginFull(viewWidth, viewHeight, seriesCount);
+			for (int i=0; i<seriesCount; i++) {
+				ValuesRange range = _values(i, columns(graphwidth));
+				timedDrawSeries(layerCanvas, i, range.valuesX, range.valuesY, range.from, range.to, range.visited, graphheight, border, minX, minY, diffX, diffY, horstart);
+				layer.lastDrawnX[i] = range.to > range.from ? range.valuesX[range.to-1] : Double.NEGATIVE_INFINITY;
+				range.release();
+				layer.firstX[i] = getLowestX(frameSeries.get(i));
+			}
+			layer.minX = minX;
+			layer.diffX = diffX;
+			layer.minY = minY;
+			layer.diffY = diffY;
+			layer.graphwidth = graphwidth;
+			layer.graphheight = graphheight;
+			layer.border = border;
+		} else {
+			Canvas layerCanvas = layer.beginShift(shift);
+			// x value at the left border of the shifted layer, differs less than half a pixel from minX
+			layer.minX += shift * diffX / graphwidth;
+			double maxX = layer.minX + diffX;
+			for (int i=0; i<seriesCount; i++) {
+				GraphViewSeries series = frameSeries.get(i);
+				SeriesData.Snapshot snapshot = streamingSnapshot;
+				((SeriesData) series.data).acquire(snapshot);
+				double[] valuesX = snapshot.valuesX;
+				int end = snapshot.offset + snapshot.size;
+				// the last drawn value is the start of the new line
+				int from = ValuesRange.lowerBound(valuesX, snapshot.offset, end, layer.lastDrawnX[i]);
+				if (from == end && from > snapshot.offset) {
+					from--;
+				}
+				// values right of the layer would be lost, they are drawn when the layer was shifted
+				int to = ValuesRange.upperBound(valuesX, from, end, maxX);
+				if (to < end) {
+					to++;
+				}
+				if (to - from >= 2) {
+					timedDrawSeries(layerCanvas, i, valuesX, snapshot.valuesY, from, to, to - from, graphheight, border, layer.minX, minY, diffX, diffY, horstart);
+					layer.lastDrawnX[i] = valuesX[to-1];
+				}
+				SeriesData.release(snapshot);
+			}
+		}
+		layer.draw(canvas);
+	}
+
+	/**
+	 * @param f distance in pixels
+	 * @param eventTime time of the touch event, for the scroll velocity
+	 */
+	private void onMoveGesture(float f, long eventTime) {
+		// view port update
+		GraphLayout layout = this.layout;
+		if (layout.viewportSize != 0) {
+			layout.viewportStart -= f*layout.viewportSize/layout.graphwidth;
+
+			// minimal and maximal view limit
+			double minX = getMinX(true);
+			double maxX = getMaxX(true);
+			if (layout.viewportStart < minX) {
+				layout.viewportStart = minX;
+			} else if (layout.viewportStart+layout.viewportSize > maxX) {
+				layout.viewportStart = maxX - layout.viewportSize;
+			}
+
+			viewportMotion.onMove(layout.viewportStart, eventTime);
+			requestViewport();
+
+			// labels have to be regenerated
+			layout.invalidateLabels();
+			viewVerLabels.invalidate();
+		}
+		invalidateContent();
+	}
+
+	private boolean onContentTouchEvent(MotionEvent event) {
+		synchronized (drawLock) {
+			return handleContentTouchEvent(event);
+		}
+	}
+
+	private boolean handleContentTouchEvent(MotionEvent event) {
+		boolean handled = false;
+		// first scale
+		if (scalable && scaleDetector != null) {
+			scaleDetector.onTouchEvent(event);
+			handled = scaleDetector.isInProgress();
+		}
+		if (!handled) {
+			//Log.d("GraphView", "on touch event scale not handled+"+lastTouchEventX);
+			// if not scaled, scroll
+			if ((event.getAction() & MotionEvent.ACTION_DOWN) == MotionEvent.ACTION_DOWN &&
+					(event.getAction() & MotionEvent.ACTION_MOVE) == 0) {
+				scrollingStarted = true;
+				viewportMotion.reset();
+				handled = true;
+			}
+			if ((event.getAction() & MotionEvent.ACTION_UP) == MotionEvent.ACTION_UP) {
+				scrollingStarted = false;
+				lastTouchEventX = 0;
+				handled = true;
+			}
+			if ((event.getAction() & MotionEvent.ACTION_MOVE) == MotionEvent.ACTION_MOVE) {
+				if (scrollingStarted) {
+					if (lastTouchEventX != 0) {
+						onMoveGesture(event.getX() - lastTouchEventX, event.getEventTime());
 					}
+					lastTouchEventX = event.getX();
+					handled = true;
 				}
-				return listData.toArray(new GraphViewDataInterface[listData.size()]);
 			}
+			if (handled)
+				invalidateContent();
+		} else {
+			// currently scaling
+			scrollingStarted = false;
+			lastTouchEventX = 0;
 		}
+		return handled;
+	}
+
+	/**
+	 * redraws the content view, or requests a frame from the render thread
+	 */
+	private void invalidateContent() {
+		if (renderThreadEnabled) {
+			graphViewSurfaceView.requestRender();
+		} else {
+			graphViewContentView.invalidate();
+		}
+	}
+
+	/**
+	 * frees the bitmaps of the content view
+	 */
+	private void releaseContentLayers() {
+		contentLayerCache.release();
+		streamingLayer.release();
 	}
 
 	/**
@@ -411,72 +997,47 @@ abstract public class GraphView extends LinearLayout {
 	 */
 	public void addSeries(GraphViewSeries series) {
 		series.addGraphView(this);
-		graphSeries.add(series);
+		synchronized (drawLock) {
+			graphSeries.add(series);
+		}
 		redrawAll();
 	}
 
+	/**
+	 * draws the horizontal labels and the vertical lines of the grid
+	 */
 	protected void drawHorizontalLabels(Canvas canvas, float border,
 			float horstart, float height, String[] horlabels, float graphwidth) {
-		// horizontal labels + lines
-		int hors = horlabels.length - 1;
-		for (int i = 0; i < horlabels.length; i++) {
-			paint.setColor(graphViewStyle.getGridColor());
-			float x = ((graphwidth / hors) * i) + horstart;
-			if(graphViewStyle.getGridStyle() != GridStyle.VERTICAL) {
-				canvas.drawLine(x, height - border, x, border, paint);
-			}
-            if(showHorizontalLabels) {
-                paint.setTextAlign(Align.CENTER);
-                if (i==horlabels.length-1)
-                    paint.setTextAlign(Align.RIGHT);
-                if (i==0)
-                    paint.setTextAlign(Align.LEFT);
-                paint.setColor(graphViewStyle.getHorizontalLabelsColor());
-                canvas.drawText(horlabels[i], x, height - 4, paint);
-            }
-		}
+		frameLayout.drawHorizontalLabels(canvasBackend.setCanvas(canvas), border, horstart, height, horlabels, graphwidth);
 	}
 
 	protected void drawLegend(Canvas canvas, float height, float width) {
-		float textSize = paint.getTextSize();
-		int spacing = getGraphViewStyle().getLegendSpacing();
-		int border = getGraphViewStyle().getLegendBorder();
-		int legendWidth = getGraphViewStyle().getLegendWidth();
-
-		int shapeSize = (int) (textSize*0.8d);
-		Log.d("GraphView", "draw legend size: "+paint.getTextSize());
-
-		// rect
-		paint.setARGB(180, 100, 100, 100);
-		float legendHeight = (shapeSize+spacing)*graphSeries.size() +2*border -spacing;
-		float lLeft = width-legendWidth - border*2;
-		float lTop;
-		switch (legendAlign) {
-		case TOP:
-			lTop = 0;
-			break;
-		case MIDDLE:
-			lTop = height/2 - legendHeight/2;
-			break;
-		default:
-			lTop = height - GraphViewConfig.BORDER - legendHeight - getGraphViewStyle().getLegendMarginBottom();
-		}
-		float lRight = lLeft+legendWidth;
-		float lBottom = lTop+legendHeight;
-		canvas.drawRoundRect(new RectF(lLeft, lTop, lRight, lBottom), 8, 8, paint);
+		frameLayout.drawLegend(canvasBackend.setCanvas(canvas), height, width);
+	}
 
-		for (int i=0; i<graphSeries.size(); i++) {
-			paint.setColor(graphSeries.get(i).style.color);
-			canvas.drawRect(new RectF(lLeft+border, lTop+border+(i*(shapeSize+spacing)), lLeft+border+shapeSize, lTop+border+(i*(shapeSize+spacing))+shapeSize), paint);
-			if (graphSeries.get(i).description != null) {
-				paint.setColor(Color.WHITE);
-				paint.setTextAlign(Align.LEFT);
-				canvas.drawText(graphSeries.get(i).description, lLeft+border+shapeSize+spacing, lTop+border+shapeSize+(i*(shapeSize+spacing)), paint);
-			}
+
+	/**
+	 * draws the visible values of a series. The values are the indices from (inclusive)
+	 * to to (exclusive) of the primitive arrays. The arrays must not be modified.
+	 * The default implementation creates data objects and delegates to the deprecated
+	 * {@link #drawSeries(Canvas, GraphViewDataInterface[], float, float, float, double, double, double, double, float, GraphViewSeriesStyle)}
+	 */
+	@SuppressWarnings("deprecation")
+	protected void drawSeries(Canvas canvas, double[] valuesX, double[] valuesY, int from, int to, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
+		GraphViewDataInterface[] values = new GraphViewDataInterface[to-from];
+		for (int i=from; i<to; i++) {
+			values[i-from] = new GraphViewData(valuesX[i], valuesY[i]);
 		}
+		drawSeries(canvas, values, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, style);
 	}
 
-	abstract protected void drawSeries(Canvas canvas, GraphViewDataInterface[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style);
+	/**
+	 * @deprecated override {@link #drawSeries(Canvas, double[], double[], int, int, float, float, float, double, double, double, double, float, GraphViewSeriesStyle)}
+	 * instead, it draws without creating data objects.
+	 */
+	@Deprecated
+	protected void drawSeries(Canvas canvas, GraphViewDataInterface[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
+	}
 
 	/**
 	 * formats the label
@@ -489,83 +1050,51 @@ abstract public class GraphView extends LinearLayout {
 	 */
 	@Deprecated
 	protected String formatLabel(double value, boolean isValueX) {
-		if (customLabelFormatter != null) {
-			String label = customLabelFormatter.formatLabel(value, isValueX);
-			if (label != null) {
-				return label;
-			}
+		// only called by overriding subclasses, otherwise the layouts format their labels themselves.
+		// The frame is drawn without the draw lock, so it is taken for the shared layout
+		synchronized (drawLock) {
+			return layout.formatLabel(value, isValueX);
 		}
-		int i = isValueX ? 1 : 0;
-		if (numberformatter[i] == null) {
-			numberformatter[i] = NumberFormat.getNumberInstance();
-			double highestvalue = isValueX ? getMaxX(false) : getMaxY();
-			double lowestvalue = isValueX ? getMinX(false) : getMinY();
-			if (highestvalue - lowestvalue < 0.1) {
-				numberformatter[i].setMaximumFractionDigits(6);
-			} else if (highestvalue - lowestvalue < 1) {
-				numberformatter[i].setMaximumFractionDigits(4);
-			} else if (highestvalue - lowestvalue < 20) {
-				numberformatter[i].setMaximumFractionDigits(3);
-			} else if (highestvalue - lowestvalue < 100) {
-				numberformatter[i].setMaximumFractionDigits(1);
-			} else {
-				numberformatter[i].setMaximumFractionDigits(0);
-			}
-		}
-		return numberformatter[i].format(value);
 	}
 
-	private String[] generateHorlabels(float graphwidth) {
-		int numLabels = getGraphViewStyle().getNumHorizontalLabels()-1;
-		if (numLabels < 0) {
-			if (graphwidth <= 0) graphwidth = 1f;
-			numLabels = (int) (graphwidth/(horLabelTextWidth*2));
-		}
-
-		String[] labels = new String[numLabels+1];
-		double min = getMinX(false);
-		double max = getMaxX(false);
-		for (int i=0; i<=numLabels; i++) {
-			labels[i] = formatLabel(min + ((max-min)*i/numLabels), true);
+	/**
+	 * @return true if a subclass overrides {@link #formatLabel(double, boolean)}
+	 */
+	private boolean isFormatLabelOverridden() {
+		for (Class<?> c=getClass(); c != GraphView.class; c=c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("formatLabel", double.class, boolean.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not in this class
+			}
 		}
-		return labels;
+		return false;
 	}
 
-	synchronized private String[] generateVerlabels(float graphheight) {
-		int numLabels = getGraphViewStyle().getNumVerticalLabels()-1;
-		if (numLabels < 0) {
-			if (graphheight <= 0) graphheight = 1f;
-			numLabels = (int) (graphheight/(labelTextHeight*3));
-			if (numLabels == 0) {
-				Log.w("GraphView", "Height of Graph is smaller than the label text height, so no vertical labels were shown!");
-			}
-		}
-		String[] labels = new String[numLabels+1];
-		double min = getMinY();
-		double max = getMaxY();
-		if (max == min) {
-			// if min/max is the same, fake it so that we can render a line
-			if(max == 0) {
-				// if both are zero, change the values to prevent division by zero
-				max = 1.0d;
-				min = 0.0d;
-			} else {
-				max = max*1.05d;
-				min = min*0.95d;
-			}
-		}
+	/**
+	 * @return the custom label formatter, if there is one. otherwise null
+	 */
+	public CustomLabelFormatter getCustomLabelFormatter() {
+		return layout.customLabelFormatter;
+	}
 
-		for (int i=0; i<=numLabels; i++) {
-			labels[numLabels-i] = formatLabel(min + ((max-min)*i/numLabels), false);
+	/**
+	 * @return the timing of the drawing phases and the points per series,
+	 * or null if the statistics are disabled
+	 * @see #setDrawStatisticsEnabled(boolean)
+	 */
+	public DrawStatistics getDrawStatistics() {
+		synchronized (drawLock) {
+			return drawTimer == null ? null : drawTimer.snapshot();
 		}
-		return labels;
 	}
 
 	/**
-	 * @return the custom label formatter, if there is one. otherwise null
+	 * @return the number of values that were drawn for the last series
 	 */
-	public CustomLabelFormatter getCustomLabelFormatter() {
-		return customLabelFormatter;
+	public int getDrawnPointsCount() {
+		return drawnPointsCount;
 	}
 
 	/**
@@ -600,29 +1129,7 @@ abstract public class GraphView extends LinearLayout {
 	 * warning: only override this, if you really know want you're doing!
 	 */
 	protected double getMaxX(boolean ignoreViewport) {
-		// if viewport is set, use this
-		if (!ignoreViewport && viewportSize != 0) {
-			return viewportStart+viewportSize;
-		} else {
-			// otherwise use the max x value
-			// values must be sorted by x, so the last value has the largest X value
-			double highest = 0;
-			if (graphSeries.size() > 0) {
-				GraphViewDataInterface[] values = graphSeries.get(0).values;
-				if (values.length == 0) {
-					highest = 0;
-				} else {
-					highest = values[values.length-1].getX();
-				}
-				for (int i=1; i<graphSeries.size(); i++) {
-					values = graphSeries.get(i).values;
-					if (values.length > 0) {
-						highest = Math.max(highest, values[values.length-1].getX());
-					}
-				}
-			}
-			return highest;
-		}
+		return layout.getMaxX(ignoreViewport);
 	}
 
 	/**
@@ -631,18 +1138,13 @@ abstract public class GraphView extends LinearLayout {
 	 * warning: only override this, if you really know want you're doing!
 	 */
 	protected double getMaxY() {
-		double largest;
-		if (manualYAxis || manualMaxY) {
-			largest = manualMaxYValue;
-		} else {
-			largest = Integer.MIN_VALUE;
-			for (int i=0; i<graphSeries.size(); i++) {
-				GraphViewDataInterface[] values = _values(i);
-				for (int ii=0; ii<values.length; ii++)
-					if (values[ii].getY() > largest)
-						largest = values[ii].getY();
-			}
-		}
+		DrawTimer timer = drawTimer;
+		long start = timer != null ? System.nanoTime() : 0;
+		boolean traced = beginTrace(TraceSection.Y_RANGE);
+		double largest = layout.getMaxY();
+		endTrace(traced);
+
+		if (timer != null) timer.add(Phase.Y_RANGE, System.nanoTime() - start);
 		return largest;
 	}
 
@@ -654,29 +1156,7 @@ abstract public class GraphView extends LinearLayout {
 	 * warning: only override this, if you really know want you're doing!
 	 */
 	protected double getMinX(boolean ignoreViewport) {
-		// if viewport is set, use this
-		if (!ignoreViewport && viewportSize != 0) {
-			return viewportStart;
-		} else {
-			// otherwise use the min x value
-			// values must be sorted by x, so the first value has the smallest X value
-			double lowest = 0;
-			if (graphSeries.size() > 0) {
-				GraphViewDataInterface[] values = graphSeries.get(0).values;
-				if (values.length == 0) {
-					lowest = 0;
-				} else {
-					lowest = values[0].getX();
-				}
-				for (int i=1; i<graphSeries.size(); i++) {
-					values = graphSeries.get(i).values;
-					if (values.length > 0) {
-						lowest = Math.min(lowest, values[0].getX());
-					}
-				}
-			}
-			return lowest;
-		}
+		return layout.getMinX(ignoreViewport);
 	}
 
 	/**
@@ -685,18 +1165,13 @@ abstract public class GraphView extends LinearLayout {
 	 * warning: only override this, if you really know want you're doing!
 	 */
 	protected double getMinY() {
-		double smallest;
-		if (manualYAxis || manualMinY) {
-			smallest = manualMinYValue;
-		} else {
-			smallest = Integer.MAX_VALUE;
-			for (int i=0; i<graphSeries.size(); i++) {
-				GraphViewDataInterface[] values = _values(i);
-				for (int ii=0; ii<values.length; ii++)
-					if (values[ii].getY() < smallest)
-						smallest = values[ii].getY();
-			}
-		}
+		DrawTimer timer = drawTimer;
+		long start = timer != null ? System.nanoTime() : 0;
+		boolean traced = beginTrace(TraceSection.Y_RANGE);
+		double smallest = layout.getMinY();
+		endTrace(traced);
+
+		if (timer != null) timer.add(Phase.Y_RANGE, System.nanoTime() - start);
 		return smallest;
 	}
 	
@@ -705,19 +1180,75 @@ abstract public class GraphView extends LinearLayout {
 	 * 
 	 */
 	public double getViewportSize(){
-		return viewportSize;
+		return layout.viewportSize;
+	}
+
+	/**
+	 * grid, labels and title will be drawn again, even if the layer cache is enabled.
+	 * Has to be called under the draw lock.
+	 */
+	private void invalidateLayerCache() {
+		// the content layers could be drawn right now, they are invalidated with the next frame
+		contentLayersInvalid = true;
+		viewVerLabels.layerCache.invalidate();
+	}
+
+	public boolean isTraceEnabled() {
+		return traceSections != null;
+	}
+
+	public boolean isDrawStatisticsEnabled() {
+		return drawTimer != null;
 	}
 
 	public boolean isDisableTouch() {
 		return disableTouch;
 	}
 
+	public boolean isLayerCacheEnabled() {
+		return layerCacheEnabled;
+	}
+
+	public float getMaxFrameRate() {
+		return maxFrameRate;
+	}
+
+	public boolean isRedrawCoalescingEnabled() {
+		return redrawScheduler != null;
+	}
+
+	public boolean isRenderThreadEnabled() {
+		return renderThreadEnabled;
+	}
+
 	public boolean isScrollable() {
 		return scrollable;
 	}
 
+	/**
+	 * @return true if this graph type draws every value independent of the others,
+	 * so that new values can be drawn on top of the already drawn series.
+	 * @see #setStreamingRenderEnabled(boolean)
+	 */
+	protected boolean isIncrementalDrawingSupported() {
+		return false;
+	}
+
+	/**
+	 * @return true if this graph type can draw the reduced values of a level of detail pyramid
+	 * (the min and max of each bucket) instead of all values in the viewport.
+	 * Return false if every value has to be drawn, e.g. one bar per value.
+	 */
+	protected boolean supportsAggregation() {
+		return true;
+	}
+
+	public boolean isStreamingRenderEnabled() {
+		return streamingRenderEnabled;
+	}
+
 	public boolean isShowLegend() {
-		return showLegend;
+		return layout.showLegend;
 	}
 
 	/**
@@ -725,28 +1256,77 @@ abstract public class GraphView extends LinearLayout {
 	 * Normally there is no need to call this manually.
 	 */
 	public void redrawAll() {
-		if (!staticVerticalLabels) verlabels = null;
-		if (!staticHorizontalLabels) horlabels = null;
-		numberformatter[0] = null;
-		numberformatter[1] = null;
-		labelTextHeight = null;
-		horLabelTextWidth = null;
-		verLabelTextWidth = null;
+		RedrawScheduler scheduler = redrawScheduler;
+		if (scheduler != null) {
+			scheduler.request(RedrawScheduler.REDRAW_ALL);
+			return;
+		}
+		synchronized (drawLock) {
+			resetLabels();
+		}
+
+		invalidate();
+		viewVerLabels.invalidate();
+		invalidateContent();
+	}
+
+	/**
+	 * redraws everything, like {@link #redrawAll()}, but can be called from any thread
+	 */
+	void postRedrawAll() {
+		RedrawScheduler scheduler = redrawScheduler;
+		if (scheduler != null) {
+			scheduler.request(RedrawScheduler.REDRAW_ALL);
+		} else {
+			post(redrawAllRunnable);
+		}
+	}
+
+	/**
+	 * series with a data source start loading the pages of the new viewport,
+	 * and the pages that will be visible next, see {@link #viewportMotion}
+	 */
+	private void requestViewport() {
+		for (int i=0; i<graphSeries.size(); i++) {
+			graphSeries.get(i).data.requestViewport(layout.viewportStart, layout.viewportSize, viewportMotion);
+		}
+	}
+
+	private void resetLabels() {
+		layout.resetLabels();
+		invalidateLayerCache();
+	}
+
+	/**
+	 * applies the changes that were collected since the last frame, see {@link #setRedrawCoalescingEnabled(boolean)}
+	 * @param changes flags of {@link RedrawScheduler}
+	 */
+	void performRedraw(int changes) {
+		synchronized (drawLock) {
+			if ((changes & RedrawScheduler.SCROLL_TO_END) != 0 && scrollable) {
+				moveViewportToEnd();
+			}
+			if ((changes & RedrawScheduler.REDRAW_ALL) != 0) {
+				resetLabels();
+			}
+		}
 
 		invalidate();
 		viewVerLabels.invalidate();
-		graphViewContentView.invalidate();
+		invalidateContent();
 	}
 
 	/**
 	 * removes all series
 	 */
 	public void removeAllSeries() {
-		for (GraphViewSeries s : graphSeries) {
-			s.removeGraphView(this);
-		}
-		while (!graphSeries.isEmpty()) {
-			graphSeries.remove(0);
+		synchronized (drawLock) {
+			for (GraphViewSeries s : graphSeries) {
+				s.removeGraphView(this);
+			}
+			while (!graphSeries.isEmpty()) {
+				graphSeries.remove(0);
+			}
 		}
 		redrawAll();
 	}
@@ -757,7 +1337,9 @@ abstract public class GraphView extends LinearLayout {
 	 */
 	public void removeSeries(GraphViewSeries series) {
 		series.removeGraphView(this);
-		graphSeries.remove(series);
+		synchronized (drawLock) {
+			graphSeries.remove(series);
+		}
 		redrawAll();
 	}
 
@@ -779,17 +1361,27 @@ abstract public class GraphView extends LinearLayout {
 	 */
 	public void scrollToEnd() {
 		if (!scrollable) throw new IllegalStateException("This GraphView is not scrollable.");
+		RedrawScheduler scheduler = redrawScheduler;
+		if (scheduler != null) {
+			scheduler.request(RedrawScheduler.SCROLL_TO_END);
+			return;
+		}
+		synchronized (drawLock) {
+			moveViewportToEnd();
+		}
+
+		invalidate();
+		viewVerLabels.invalidate();
+		invalidateContent();
+	}
+
+	private void moveViewportToEnd() {
 		double max = getMaxX(true);
-		viewportStart = max-viewportSize;
+		layout.viewportStart = max-layout.viewportSize;
 
 		// don't clear labels width/height cache
 		// so that the display is not flickering
-		if (!staticVerticalLabels) verlabels = null;
-		if (!staticHorizontalLabels) horlabels = null;
-
-		invalidate();
-		viewVerLabels.invalidate();
-		graphViewContentView.invalidate();
+		layout.invalidateLabels();
 	}
 
 	/**
@@ -797,7 +1389,9 @@ abstract public class GraphView extends LinearLayout {
 	 * @param customLabelFormatter
 	 */
 	public void setCustomLabelFormatter(CustomLabelFormatter customLabelFormatter) {
-		this.customLabelFormatter = customLabelFormatter;
+		synchronized (drawLock) {
+			layout.customLabelFormatter = customLabelFormatter;
+		}
 	}
 
 	/**
@@ -813,8 +1407,38 @@ abstract public class GraphView extends LinearLayout {
 	 * @param style
 	 */
 	public void setGraphViewStyle(GraphViewStyle style) {
-		graphViewStyle = style;
-		labelTextHeight = null;
+		synchronized (drawLock) {
+			graphViewStyle = style;
+			layout.resetLabels();
+			invalidateLayerCache();
+		}
+	}
+
+	/**
+	 * measures how long the phases of drawing take (labels, y range, series, legend, ...)
+	 * and how many values of each series are visited and drawn.
+	 * Useful to find out why a graph is slow, see {@link #getDrawStatistics()}.
+	 * If disabled (default), nothing is measured. Enabling again starts new statistics.
+	 * @param enabled
+	 */
+	public void setDrawStatisticsEnabled(boolean enabled) {
+		synchronized (drawLock) {
+			drawTimer = enabled ? new DrawTimer() : null;
+		}
+	}
+
+	/**
+	 * adds sections to the system trace (systrace, perfetto) for the phases of drawing:
+	 * measuring and generating the labels, the viewport and y range of the data,
+	 * every series and the legend. The names of the sections contain the title
+	 * and the series descriptions, so the graph can be found in the trace.
+	 * If disabled (default), no sections are added. Only has an effect since Android 4.3 (API 18).
+	 * @param enabled
+	 */
+	public void setTraceEnabled(boolean enabled) {
+		synchronized (drawLock) {
+			traceSections = enabled && Build.VERSION.SDK_INT >= 18 ? createTraceSections() : null;
+		}
 	}
 
 	/**
@@ -822,8 +1446,49 @@ abstract public class GraphView extends LinearLayout {
 	 * @param horlabels if null, labels were generated automatically
 	 */
 	public void setHorizontalLabels(String[] horlabels) {
-		staticHorizontalLabels = horlabels != null;
-		this.horlabels = horlabels;
+		synchronized (drawLock) {
+			layout.setHorizontalLabels(horlabels);
+		}
+	}
+
+	/**
+	 * draws the grid, the labels and the title to off-screen bitmaps, that are
+	 * only redrawn if the size, the labels or the style change.
+	 * Then only the series and the legend are drawn for each frame.
+	 * If you change the {@link GraphViewStyle} after it was set, call {@link #redrawAll()}.
+	 * @param layerCacheEnabled
+	 */
+	public void setLayerCacheEnabled(boolean layerCacheEnabled) {
+		this.layerCacheEnabled = layerCacheEnabled;
+		if (!layerCacheEnabled) {
+			synchronized (frameLock) {
+				contentLayerCache.release();
+			}
+			synchronized (drawLock) {
+				viewVerLabels.layerCache.release();
+			}
+		}
+		redrawAll();
+	}
+
+	/**
+	 * keeps the drawn series in an off-screen bitmap. If the graph scrolls to the right,
+	 * for example with {@link GraphViewSeries#appendData(double, double, boolean, int)} and scrollToEnd,
+	 * the bitmap is shifted and only the new values are drawn.
+	 * The series are redrawn completely if the y range, the viewport size or the view size change.
+	 * Useful for real time graphs with a fixed viewport size and manual y axis bounds.
+	 * Only has an effect if the graph type supports it, like {@link LineGraphView}.
+	 * If you change the style of a series, call {@link #redrawAll()}.
+	 * @param streamingRenderEnabled
+	 */
+	public void setStreamingRenderEnabled(boolean streamingRenderEnabled) {
+		this.streamingRenderEnabled = streamingRenderEnabled;
+		if (!streamingRenderEnabled) {
+			synchronized (frameLock) {
+				streamingLayer.release();
+			}
+		}
+		redrawAll();
 	}
 
 	/**
@@ -831,7 +1496,9 @@ abstract public class GraphView extends LinearLayout {
 	 * @param legendAlign
 	 */
 	public void setLegendAlign(LegendAlign legendAlign) {
-		this.legendAlign = legendAlign;
+		synchronized (drawLock) {
+			this.legendAlign = legendAlign;
+		}
 	}
 
 	/**
@@ -850,22 +1517,28 @@ abstract public class GraphView extends LinearLayout {
 	 * @param manualYAxis
 	 */
 	public void setManualYAxis(boolean manualYAxis) {
-		this.manualYAxis = manualYAxis;
+		synchronized (drawLock) {
+			layout.manualYAxis = manualYAxis;
+		}
 	}
 	
 	/**
 	 * if you want to disable the menual y axis maximum bound, call this method with false.
 	 */
 	public void setManualMaxY(boolean manualMaxY) {
-        	this.manualMaxY = manualMaxY;
-    	}
+		synchronized (drawLock) {
+			layout.manualMaxY = manualMaxY;
+		}
+	}
     	
     	/**
 	 * if you want to disable the menual y axis minimum bound, call this method with false.
 	 */
-    	public void setManualMinY(boolean manualMinY) {
-        	this.manualMinY = manualMinY;
-	 }
+	public void setManualMinY(boolean manualMinY) {
+		synchronized (drawLock) {
+			layout.manualMinY = manualMinY;
+		}
+	}
 
 	/**
 	 * set manual Y axis limit
@@ -873,9 +1546,11 @@ abstract public class GraphView extends LinearLayout {
 	 * @param min
 	 */
 	public void setManualYAxisBounds(double max, double min) {
-		manualMaxYValue = max;
-		manualMinYValue = min;
-		manualYAxis = true;
+		synchronized (drawLock) {
+			layout.manualMaxYValue = max;
+			layout.manualMinYValue = min;
+			layout.manualYAxis = true;
+		}
 	}
 	
 	/*
@@ -883,18 +1558,22 @@ abstract public class GraphView extends LinearLayout {
 	 * @param max
 	 */
 	public void setManualYMaxBound(double max) {
-        	manualMaxYValue = max;
-        	manualMaxY = true;
-    	}
+		synchronized (drawLock) {
+			layout.manualMaxYValue = max;
+			layout.manualMaxY = true;
+		}
+	}
 
 	/*
 	 * set manual Y axis min limit
 	 * @param min
 	 */
-    	public void setManualYMinBound(double min) {
-        	manualMinYValue = min;
-        	manualMinY = true;
-    	}
+	public void setManualYMinBound(double min) {
+		synchronized (drawLock) {
+			layout.manualMinYValue = min;
+			layout.manualMinY = true;
+		}
+	}
 
 	/**
 	 * this forces scrollable = true
@@ -907,32 +1586,35 @@ abstract public class GraphView extends LinearLayout {
 			scaleDetector = new ScaleGestureDetector(getContext(), new ScaleGestureDetector.SimpleOnScaleGestureListener() {
 				@Override
 				public boolean onScale(ScaleGestureDetector detector) {
-					double center = viewportStart + viewportSize / 2;
-					viewportSize /= detector.getScaleFactor();
-					viewportStart = center - viewportSize / 2;
+					GraphLayout layout = GraphView.this.layout;
+					double center = layout.viewportStart + layout.viewportSize / 2;
+					layout.viewportSize /= detector.getScaleFactor();
+					layout.viewportStart = center - layout.viewportSize / 2;
 
 					// viewportStart must not be < minX
 					double minX = getMinX(true);
-					if (viewportStart < minX) {
-						viewportStart = minX;
+					if (layout.viewportStart < minX) {
+						layout.viewportStart = minX;
 					}
 
 					// viewportStart + viewportSize must not be > maxX
 					double maxX = getMaxX(true);
-					if (viewportSize == 0) {
-						viewportSize = maxX;
+					if (layout.viewportSize == 0) {
+						layout.viewportSize = maxX;
 					}
-					double overlap = viewportStart + viewportSize - maxX;
+					double overlap = layout.viewportStart + layout.viewportSize - maxX;
 					if (overlap > 0) {
 						// scroll left
-						if (viewportStart-overlap > minX) {
-							viewportStart -= overlap;
+						if (layout.viewportStart-overlap > minX) {
+							layout.viewportStart -= overlap;
 						} else {
 							// maximal scale
-							viewportStart = minX;
-							viewportSize = maxX - viewportStart;
+							layout.viewportStart = minX;
+							layout.viewportSize = maxX - layout.viewportStart;
 						}
 					}
+					viewportMotion.onScale(detector.getScaleFactor());
+					requestViewport();
 					redrawAll();
 					return true;
 				}
@@ -940,6 +1622,83 @@ abstract public class GraphView extends LinearLayout {
 		}
 	}
 
+	/**
+	 * limits how often the graph is redrawn because of new data,
+	 * e.g. 10 for a dashboard in the background.
+	 * Only used if {@link #setRedrawCoalescingEnabled(boolean)} is enabled.
+	 * @param maxFrameRate frames per second, 0 = as fast as the display (default)
+	 */
+	public void setMaxFrameRate(float maxFrameRate) {
+		this.maxFrameRate = maxFrameRate;
+		if (redrawScheduler != null) {
+			redrawScheduler.setMaxFrameRate(maxFrameRate);
+		}
+	}
+
+	/**
+	 * if enabled, {@link #redrawAll()} and {@link #scrollToEnd()} don't update the graph
+	 * immediately, but at the next display frame. All changes until then are applied at once,
+	 * so appending data faster than the display refreshes doesn't regenerate the labels more than once per frame.
+	 * The graph is always updated on the UI thread, so data can be appended from any thread.
+	 * Has to be called on the UI thread.
+	 * @see #setMaxFrameRate(float)
+	 * @param enabled
+	 */
+	public void setRedrawCoalescingEnabled(boolean enabled) {
+		if (enabled == (redrawScheduler != null)) {
+			return;
+		}
+		if (enabled) {
+			RedrawScheduler scheduler = new RedrawScheduler(this);
+			scheduler.setMaxFrameRate(maxFrameRate);
+			redrawScheduler = scheduler;
+		} else {
+			int changes = redrawScheduler.cancel();
+			redrawScheduler = null;
+			performRedraw(changes);
+		}
+	}
+
+	/**
+	 * draws the graph area on a render thread, into a SurfaceView.
+	 * Then the UI thread only handles the touch events and the vertical labels.
+	 * The render thread copies the graph state under a lock that the UI thread only waits
+	 * for during the copy, the series data is read from acquired snapshots, see {@link GraphViewSeries}.
+	 * A SurfaceView can't be transparent, see {@link #setRenderThreadBackgroundColor(int)}.
+	 * @param renderThreadEnabled
+	 */
+	public void setRenderThreadEnabled(boolean renderThreadEnabled) {
+		if (this.renderThreadEnabled == renderThreadEnabled) {
+			return;
+		}
+		synchronized (drawLock) {
+			this.renderThreadEnabled = renderThreadEnabled;
+		}
+		synchronized (frameLock) {
+			releaseContentLayers();
+		}
+		if (renderThreadEnabled) {
+			if (graphViewSurfaceView == null) {
+				graphViewSurfaceView = new GraphViewSurfaceView(getContext());
+			}
+			removeView(graphViewContentView);
+			addView(graphViewSurfaceView, new LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT, 1));
+		} else {
+			removeView(graphViewSurfaceView);
+			addView(graphViewContentView, new LayoutParams(LayoutParams.FILL_PARENT, LayoutParams.FILL_PARENT, 1));
+		}
+		redrawAll();
+	}
+
+	/**
+	 * @param color background color of the graph area if the render thread is used. default black.
+	 * @see #setRenderThreadEnabled(boolean)
+	 */
+	public void setRenderThreadBackgroundColor(int color) {
+		renderThreadBackgroundColor = color;
+		invalidateContent();
+	}
+
 	/**
 	 * the user can scroll (horizontal) the graph. This is only useful if you use a viewport {@link #setViewPort(double, double)} which doesn't displays all data.
 	 * @param scrollable
@@ -949,7 +1708,9 @@ abstract public class GraphView extends LinearLayout {
 	}
 
 	public void setShowLegend(boolean showLegend) {
-		this.showLegend = showLegend;
+		synchronized (drawLock) {
+			layout.showLegend = showLegend;
+		}
 	}
 
 	/**
@@ -957,7 +1718,13 @@ abstract public class GraphView extends LinearLayout {
 	 * @param title
 	 */
 	public void setTitle(String title) {
-		this.title = title;
+		synchronized (drawLock) {
+			layout.title = title;
+			if (traceSections != null) {
+				traceSections = createTraceSections();
+			}
+			invalidateLayerCache();
+		}
 	}
 
 	/**
@@ -965,8 +1732,9 @@ abstract public class GraphView extends LinearLayout {
 	 * @param verlabels if null, labels were generated automatically
 	 */
 	public void setVerticalLabels(String[] verlabels) {
-		staticVerticalLabels = verlabels != null;
-		this.verlabels = verlabels;
+		synchronized (drawLock) {
+			layout.setVerticalLabels(verlabels);
+		}
 	}
 
 	/**
@@ -979,8 +1747,12 @@ abstract public class GraphView extends LinearLayout {
 		if (size<0) {
 			throw new IllegalArgumentException("Viewport size must be greater than 0!");
 		}
-		viewportStart = start;
-		viewportSize = size;
+		synchronized (drawLock) {
+			layout.viewportStart = start;
+			layout.viewportSize = size;
+			viewportMotion.reset();
+			requestViewport();
+		}
 	}
 
     /**
@@ -989,7 +1761,9 @@ abstract public class GraphView extends LinearLayout {
      * @param showHorizontalLabels
      */
     public void setShowHorizontalLabels(boolean showHorizontalLabels) {
-        this.showHorizontalLabels = showHorizontalLabels;
+        synchronized (drawLock) {
+            layout.showHorizontalLabels = showHorizontalLabels;
+        }
         redrawAll();
     }
 
@@ -999,7 +1773,7 @@ abstract public class GraphView extends LinearLayout {
      * @return {@code True} if horizontal labels are drawn
      */
     public boolean getShowHorizontalLabels() {
-        return showHorizontalLabels;
+        return layout.showHorizontalLabels;
     }
 
     /**
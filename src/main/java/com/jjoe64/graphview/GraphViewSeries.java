@@ -19,12 +19,17 @@
 
 package com.jjoe64.graphview;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * a graphview series.
- * holds the data, description and styles
+ * holds the data, description and styles.
+ * Data can be appended from any thread. The graph reads the data without
+ * locking, see {@link SeriesData}.
  */
 public class GraphViewSeries {
 	/**
@@ -60,15 +65,25 @@ public class GraphViewSeries {
 
 	final String description;
 	final GraphViewSeriesStyle style;
-	GraphViewDataInterface[] values;
-	private final List<GraphView> graphViews = new ArrayList<GraphView>();
+	final SeriesStore data;
+	private final List<GraphView> graphViews = new CopyOnWriteArrayList<GraphView>();
+	/**
+	 * name of the section in the system trace, created when it is used the first time
+	 */
+	private String traceSectionName;
 
+	/**
+	 * @param values data, sorted by x. the values are copied into the primitive storage
+	 */
 	public GraphViewSeries(GraphViewDataInterface[] values) {
-		description = null;
-		style = new GraphViewSeriesStyle();
-		this.values = values;
+		this(null, null, values);
 	}
 
+	/**
+	 * @param description
+	 * @param style
+	 * @param values data, sorted by x. the values are copied into the primitive storage
+	 */
 	public GraphViewSeries(String description, GraphViewSeriesStyle style, GraphViewDataInterface[] values) {
 		super();
 		this.description = description;
@@ -76,7 +91,113 @@ public class GraphViewSeries {
 			style = new GraphViewSeriesStyle();
 		}
 		this.style = style;
-		this.values = values;
+		this.data = new SeriesData(toValuesX(values), toValuesY(values));
+	}
+
+	/**
+	 * creates a series that is backed by primitive arrays.
+	 * The arrays are used directly, they are not copied.
+	 * @param valuesX x values, sorted ascending
+	 * @param valuesY y values, same length as valuesX
+	 */
+	public GraphViewSeries(double[] valuesX, double[] valuesY) {
+		this(null, null, valuesX, valuesY);
+	}
+
+	/**
+	 * creates a series that is backed by primitive arrays.
+	 * The arrays are used directly, they are not copied.
+	 * @param description
+	 * @param style
+	 * @param valuesX x values, sorted ascending
+	 * @param valuesY y values, same length as valuesX
+	 */
+	public GraphViewSeries(String description, GraphViewSeriesStyle style, double[] valuesX, double[] valuesY) {
+		super();
+		this.description = description;
+		if (style == null) {
+			style = new GraphViewSeriesStyle();
+		}
+		this.style = style;
+		this.data = new SeriesData(valuesX, valuesY);
+	}
+
+	/**
+	 * creates a series that is stored in a memory mapped file, for histories that are
+	 * too large for the heap. If the file exists, the series has the values in the file.
+	 * Appended values are written to the file, a second file with the name + ".pages"
+	 * is created next to it.
+	 * Only the values in the viewport are read, about 4 values per pixel column.
+	 * Call {@link #close()} if the series is no longer needed.
+	 * @param description
+	 * @param style
+	 * @param file the file of the values
+	 * @throws IOException if the file could not be opened or is not a series file
+	 */
+	public GraphViewSeries(String description, GraphViewSeriesStyle style, File file) throws IOException {
+		this(description, style, new MappedSeriesData(file));
+	}
+
+	private GraphViewSeries(String description, GraphViewSeriesStyle style, SeriesStore data) {
+		super();
+		this.description = description;
+		if (style == null) {
+			style = new GraphViewSeriesStyle();
+		}
+		this.style = style;
+		this.data = data;
+	}
+
+	/**
+	 * creates a series that keeps the values compressed in memory, in blocks of 1024 values.
+	 * x values are stored as delta of delta, y values as XOR of the previous value, so
+	 * evenly spaced timestamps and slowly changing values (sensors) need about 2 to 4 bytes
+	 * instead of 16 bytes per value. The newest values are compressed when a block is full.
+	 * Only the blocks in the viewport are decoded when the graph is drawn.
+	 * @param description
+	 * @param style
+	 * @param valuesX x values, sorted ascending. the values are copied
+	 * @param valuesY y values, same length as valuesX
+	 * @return the series
+	 */
+	public static GraphViewSeries createCompressed(String description, GraphViewSeriesStyle style, double[] valuesX, double[] valuesY) {
+		return new GraphViewSeries(description, style, new CompressedSeriesData(valuesX, valuesY));
+	}
+
+	/**
+	 * creates a series whose values are loaded from a data source, only for the viewport.
+	 * The x axis is split into pages, the pages of the viewport are loaded on a background thread
+	 * when the viewport is changed (setViewPort, scrolling, scaling) and the graph is redrawn
+	 * when a page arrived. The last 64 pages are kept in memory.
+	 * {@link #getSize()} is 0, the values are never all in memory.
+	 * The values can't be appended or reset, appendData and resetData throw an UnsupportedOperationException.
+	 * Call {@link #close()} to stop the background thread, if the series is no longer needed.
+	 * @param description
+	 * @param style
+	 * @param source loads the values
+	 */
+	public GraphViewSeries(String description, GraphViewSeriesStyle style, GraphViewDataSource source) {
+		this(description, style, source, null);
+	}
+
+	/**
+	 * creates a series whose values are loaded from a data source, only for the viewport.
+	 * @see #GraphViewSeries(String, GraphViewSeriesStyle, GraphViewDataSource)
+	 * @param description
+	 * @param style
+	 * @param source loads the values
+	 * @param executor loads the pages, e.g. shared by several series. null = a background thread for this series
+	 */
+	public GraphViewSeries(String description, GraphViewSeriesStyle style, GraphViewDataSource source, Executor executor) {
+		this(description, style, new PagedSeriesData(source, executor));
+		((PagedSeriesData) data).setLoadListener(new Runnable() {
+			@Override
+			public void run() {
+				for (GraphView g : graphViews) {
+					g.postRedrawAll();
+				}
+			}
+		});
 	}
 
 	/**
@@ -92,15 +213,45 @@ public class GraphViewSeries {
 	 * @param value the new data to append
 	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
 	 * @deprecated please use {@link #appendData(GraphViewDataInterface, boolean, int)} to avoid memory overflow
+	 * @throws UnsupportedOperationException if the values are loaded from a {@link GraphViewDataSource}
 	 */
 	@Deprecated
 	public void appendData(GraphViewDataInterface value, boolean scrollToEnd) {
-		GraphViewDataInterface[] newValues = new GraphViewDataInterface[values.length + 1];
-		int offset = values.length;
-		System.arraycopy(values, 0, newValues, 0, offset);
+		appendData(value.getX(), value.getY(), scrollToEnd, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * add one data to current data
+	 * @param value the new data to append
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 * @param maxDataCount if max data count is reached, the oldest data value will be lost
+	 * @throws UnsupportedOperationException if the values are loaded from a {@link GraphViewDataSource}
+	 */
+	public void appendData(GraphViewDataInterface value, boolean scrollToEnd, int maxDataCount) {
+		appendData(value.getX(), value.getY(), scrollToEnd, maxDataCount);
+	}
+
+	/**
+	 * add one data to current data, without creating a data object.
+	 * The arrays have free space at the end, the new value is written there, so the
+	 * values that are already visible to the graph are never changed.
+	 * If the end of the arrays is reached, the newest values are copied to new arrays
+	 * twice as large as needed, so appending costs constant time on average.
+	 * Can be called from any thread.
+	 * @param valueX the new x value. must not be smaller than the last x value
+	 * @param valueY the new y value
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 * @param maxDataCount if max data count is reached, the oldest data value will be lost
+	 * @throws UnsupportedOperationException if the values are loaded from a {@link GraphViewDataSource}
+	 */
+	public void appendData(double valueX, double valueY, boolean scrollToEnd, int maxDataCount) {
+		checkWritable();
+		if (maxDataCount < 1) {
+			throw new IllegalArgumentException("maxDataCount must be greater than 0");
+		}
+		data.append(valueX, valueY, maxDataCount);
 
-		newValues[values.length] = value;
-		values = newValues;
+		// update linked graph views
 		for (GraphView g : graphViews) {
 			if (scrollToEnd) {
 				g.scrollToEnd();
@@ -109,32 +260,42 @@ public class GraphViewSeries {
 	}
 
 	/**
-	 * add one data to current data
-	 * @param value the new data to append
+	 * add many data at once.
+	 * @param values the new data, sorted by x. must not be smaller than the last x value
 	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
-	 * @param maxDataCount if max data count is reached, the oldest data value will be lost
+	 * @param maxDataCount if max data count is reached, the oldest data values will be lost
+	 * @see #appendData(double[], double[], boolean, int)
+	 * @throws UnsupportedOperationException if the values are loaded from a {@link GraphViewDataSource}
 	 */
-	public void appendData(GraphViewDataInterface value, boolean scrollToEnd, int maxDataCount) {
-		synchronized (values) {
-			int curDataCount = values.length;
-			GraphViewDataInterface[] newValues;
-			if (curDataCount < maxDataCount) {
-				// enough space
-				newValues = new GraphViewDataInterface[curDataCount + 1];
-				System.arraycopy(values, 0, newValues, 0, curDataCount);
-				// append new data
-				newValues[curDataCount] = value;
-			} else {
-				// we have to trim one data
-				newValues = new GraphViewDataInterface[maxDataCount];
-				System.arraycopy(values, 1, newValues, 0, curDataCount-1);
-				// append new data
-				newValues[maxDataCount-1] = value;
-			}
-			values = newValues;
+	public void appendData(GraphViewDataInterface[] values, boolean scrollToEnd, int maxDataCount) {
+		appendData(toValuesX(values), toValuesY(values), scrollToEnd, maxDataCount);
+	}
+
+	/**
+	 * add many data at once. The storage grows at most once and the
+	 * graphview(s) are updated only once, so this is much faster than
+	 * calling {@link #appendData(double, double, boolean, int)} for every value.
+	 * Can be called from any thread.
+	 * @param valuesX the new x values, sorted ascending. must not be smaller than the last x value
+	 * @param valuesY the new y values, same length as valuesX
+	 * @param scrollToEnd true => graphview will scroll to the end (maxX)
+	 * @param maxDataCount if max data count is reached, the oldest data values will be lost
+	 * @throws UnsupportedOperationException if the values are loaded from a {@link GraphViewDataSource}
+	 */
+	public void appendData(double[] valuesX, double[] valuesY, boolean scrollToEnd, int maxDataCount) {
+		checkWritable();
+		if (maxDataCount < 1) {
+			throw new IllegalArgumentException("maxDataCount must be greater than 0");
 		}
+		if (valuesX.length != valuesY.length) {
+			throw new IllegalArgumentException("valuesX and valuesY must have the same length");
+		}
+		if (valuesX.length == 0) {
+			return;
+		}
+		data.append(valuesX, valuesY, maxDataCount);
 
-		// update linked graph views
+		// update linked graph views, once for all values
 		for (GraphView g : graphViews) {
 			if (scrollToEnd) {
 				g.scrollToEnd();
@@ -142,6 +303,27 @@ public class GraphViewSeries {
 		}
 	}
 
+	/**
+	 * releases the file of a file backed series, or stops the background thread of
+	 * a series with a data source.
+	 * Remove the series from the graphview(s) first, the series can not be used afterwards.
+	 * Does nothing for series on the heap.
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		data.close();
+	}
+
+	/**
+	 * @return name of the section in the system trace when the series is drawn
+	 */
+	String getTraceSectionName() {
+		if (traceSectionName == null) {
+			traceSectionName = description == null ? "GraphView series" : "GraphView series " + description;
+		}
+		return traceSectionName;
+	}
+
 	/**
 	 * @return series styles. never null
 	 */
@@ -149,6 +331,37 @@ public class GraphViewSeries {
 		return style;
 	}
 
+	/**
+	 * @return number of data values
+	 */
+	public int getSize() {
+		return data.getSize();
+	}
+
+	/**
+	 * @return true if the series keeps pre-aggregated data for zoomed out drawing
+	 * @see #setLevelOfDetailEnabled(boolean)
+	 */
+	public boolean isLevelOfDetailEnabled() {
+		return data.isLevelOfDetailEnabled();
+	}
+
+	/**
+	 * @param index 0 .. size-1
+	 * @return x value at the index
+	 */
+	public double getX(int index) {
+		return data.getX(index);
+	}
+
+	/**
+	 * @param index 0 .. size-1
+	 * @return y value at the index
+	 */
+	public double getY(int index) {
+		return data.getY(index);
+	}
+
 	/**
 	 * you should use {@link GraphView#removeSeries(GraphViewSeries)}
 	 * @param graphView
@@ -157,15 +370,74 @@ public class GraphViewSeries {
 		graphViews.remove(graphView);
 	}
 
+	/**
+	 * keeps a pyramid of pre-aggregated data (min/max/first/last/mean of 2, 4, 8, ... values),
+	 * that is updated when data is appended.
+	 * If the graph shows much more values than pixels, the coarsest level that still
+	 * has one value per pixel is drawn, so the time to draw doesn't depend on the
+	 * number of values.
+	 * This needs about as much memory as the data itself.
+	 * @param enabled
+	 */
+	public void setLevelOfDetailEnabled(boolean enabled) {
+		data.setLevelOfDetailEnabled(enabled);
+		for (GraphView g : graphViews) {
+			g.redrawAll();
+		}
+	}
+
 	/**
 	 * clears the current data and set the new.
 	 * redraws the graphview(s)
 	 * @param values new data
+	 * @throws UnsupportedOperationException if the values are loaded from a {@link GraphViewDataSource}
 	 */
 	public void resetData(GraphViewDataInterface[] values) {
-		this.values = values;
+		checkWritable();
+		data.setValues(toValuesX(values), toValuesY(values));
 		for (GraphView g : graphViews) {
 			g.redrawAll();
 		}
 	}
+
+	/**
+	 * clears the current data and set the new.
+	 * The arrays are used directly, they are not copied.
+	 * redraws the graphview(s)
+	 * @param valuesX new x values, sorted ascending
+	 * @param valuesY new y values, same length as valuesX
+	 * @throws UnsupportedOperationException if the values are loaded from a {@link GraphViewDataSource}
+	 */
+	public void resetData(double[] valuesX, double[] valuesY) {
+		checkWritable();
+		data.setValues(valuesX, valuesY);
+		for (GraphView g : graphViews) {
+			g.redrawAll();
+		}
+	}
+
+	/**
+	 * @throws UnsupportedOperationException if the values are loaded from a {@link GraphViewDataSource}
+	 */
+	private void checkWritable() {
+		if (data instanceof PagedSeriesData) {
+			throw new UnsupportedOperationException("the values of this series are loaded from a GraphViewDataSource, they can't be appended or reset");
+		}
+	}
+
+	private static double[] toValuesX(GraphViewDataInterface[] values) {
+		double[] valuesX = new double[values.length];
+		for (int i=0; i<values.length; i++) {
+			valuesX[i] = values[i].getX();
+		}
+		return valuesX;
+	}
+
+	private static double[] toValuesY(GraphViewDataInterface[] values) {
+		double[] valuesY = new double[values.length];
+		for (int i=0; i<values.length; i++) {
+			valuesY[i] = values[i].getY();
+		}
+		return valuesY;
+	}
 }
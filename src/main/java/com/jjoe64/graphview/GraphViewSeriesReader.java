@@ -0,0 +1,121 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
+
+/**
+ * reads a series that was written by {@link GraphViewSeriesWriter}.
+ * The values are decoded block by block into primitive arrays and appended to
+ * the series storage, no object per value is created.
+ * Not thread safe.
+ */
+public class GraphViewSeriesReader implements Closeable {
+	private final DataInputStream in;
+	private final String description;
+	private final GraphViewSeriesStyle style;
+	private final BitBuffer bits = new BitBuffer(SeriesCodec.BLOCK_SIZE * 4);
+	private double[] blockX = new double[SeriesCodec.BLOCK_SIZE];
+	private double[] blockY = new double[SeriesCodec.BLOCK_SIZE];
+	private boolean end;
+
+	/**
+	 * reads the header
+	 * @param in the stream is closed by {@link #close()}. Should be buffered.
+	 * @throws IOException if the stream is not a series
+	 */
+	public GraphViewSeriesReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(in);
+		SeriesCodec.readHeader(this.in);
+		description = this.in.readBoolean() ? this.in.readUTF() : null;
+		style = new GraphViewSeriesStyle(this.in.readInt(), this.in.readInt());
+	}
+
+	/**
+	 * @return description of the series, may be null
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * @return style of the series. never null
+	 */
+	public GraphViewSeriesStyle getStyle() {
+		return style;
+	}
+
+	/**
+	 * reads all values into a new series on the heap
+	 * @return the series with description and style
+	 * @throws IOException
+	 */
+	public GraphViewSeries readSeries() throws IOException {
+		GraphViewSeries series = new GraphViewSeries(description, style, new double[0], new double[0]);
+		readInto(series, Integer.MAX_VALUE);
+		return series;
+	}
+
+	/**
+	 * appends all remaining values to the series, e.g. to a file backed series.
+	 * The graphview(s) of the series are not scrolled.
+	 * @param series the values have to be larger than the last x value of the series
+	 * @param maxDataCount if max data count is reached, the oldest data values will be lost
+	 * @throws IOException
+	 */
+	public void readInto(GraphViewSeries series, int maxDataCount) throws IOException {
+		while (readBlock() > 0) {
+			series.appendData(blockX, blockY, false, maxDataCount);
+		}
+	}
+
+	/**
+	 * decodes the next block into blockX and blockY
+	 * @return number of values, 0 at the end
+	 */
+	private int readBlock() throws IOException {
+		if (end) {
+			return 0;
+		}
+		int count = SeriesCodec.readBlock(in, bits);
+		if (count == 0) {
+			end = true;
+			return 0;
+		}
+		if (blockX.length != count) {
+			// blocks written by flush() and the last block are smaller, appendData takes whole arrays
+			blockX = new double[count];
+			blockY = new double[count];
+		}
+		SeriesCodec.decodeBlock(bits, count, blockX, blockY);
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
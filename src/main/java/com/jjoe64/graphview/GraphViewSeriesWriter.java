@@ -0,0 +1,169 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
+
+/**
+ * writes a series in a compact binary format, that can be read with {@link GraphViewSeriesReader}.
+ * The header has the description, color and thickness of the series, then the values
+ * follow in compressed blocks of 1024 values: x values as delta of delta (1 bit for
+ * evenly spaced integral x values, like timestamps), y values as XOR of the previous value.
+ * The values are written as they come, so any number of values can be written.
+ * Not thread safe.
+ */
+public class GraphViewSeriesWriter implements Closeable {
+	private final DataOutputStream out;
+	private final double[] blockX = new double[SeriesCodec.BLOCK_SIZE];
+	private final double[] blockY = new double[SeriesCodec.BLOCK_SIZE];
+	private final BitBuffer bits = new BitBuffer(SeriesCodec.BLOCK_SIZE * 4);
+	private int blockSize;
+	private boolean closed;
+
+	/**
+	 * writes the header with the description and style of the series.
+	 * The values are not written, see {@link #write(GraphViewSeries)}
+	 * @param out the stream is closed by {@link #close()}
+	 * @param series
+	 * @throws IOException
+	 */
+	public GraphViewSeriesWriter(OutputStream out, GraphViewSeries series) throws IOException {
+		this(out, series.description, series.style);
+	}
+
+	/**
+	 * writes the header
+	 * @param out the stream is closed by {@link #close()}
+	 * @param description may be null
+	 * @param style may be null. The value dependent color is not written
+	 * @throws IOException
+	 */
+	public GraphViewSeriesWriter(OutputStream out, String description, GraphViewSeriesStyle style) throws IOException {
+		this.out = new DataOutputStream(out);
+		if (style == null) {
+			style = new GraphViewSeriesStyle();
+		}
+		SeriesCodec.writeHeader(this.out);
+		this.out.writeBoolean(description != null);
+		if (description != null) {
+			this.out.writeUTF(description);
+		}
+		this.out.writeInt(style.color);
+		this.out.writeInt(style.thickness);
+	}
+
+	/**
+	 * writes one value
+	 * @param valueX must not be smaller than the last x value
+	 * @param valueY
+	 * @throws IOException
+	 */
+	public void write(double valueX, double valueY) throws IOException {
+		blockX[blockSize] = valueX;
+		blockY[blockSize++] = valueY;
+		if (blockSize == SeriesCodec.BLOCK_SIZE) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * writes many values
+	 * @param valuesX sorted ascending, not smaller than the last x value
+	 * @param valuesY same length as valuesX
+	 * @throws IOException
+	 */
+	public void write(double[] valuesX, double[] valuesY) throws IOException {
+		if (valuesX.length != valuesY.length) {
+			throw new IllegalArgumentException("valuesX and valuesY must have the same length");
+		}
+		for (int i=0; i<valuesX.length; i++) {
+			write(valuesX[i], valuesY[i]);
+		}
+	}
+
+	/**
+	 * writes the current values of the series
+	 * @param series
+	 * @throws IOException
+	 */
+	public void write(GraphViewSeries series) throws IOException {
+		SeriesStore data = series.data;
+		if (data instanceof SeriesData) {
+			// consistent, even if values are appended meanwhile
+			SeriesData.Snapshot snapshot = new SeriesData.Snapshot();
+			((SeriesData) data).acquire(snapshot);
+			try {
+				for (int i=snapshot.offset; i<snapshot.offset+snapshot.size; i++) {
+					write(snapshot.valuesX[i], snapshot.valuesY[i]);
+				}
+			} finally {
+				SeriesData.release(snapshot);
+			}
+		} else {
+			int size = data.getSize();
+			for (int i=0; i<size; i++) {
+				write(data.getX(i), data.getY(i));
+			}
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		SeriesCodec.writeBlock(out, blockX, blockY, blockSize, bits);
+		blockSize = 0;
+	}
+
+	/**
+	 * writes the values that are not written yet.
+	 * This ends the current block, so flushing often makes the file larger.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		if (blockSize > 0) {
+			writeBlock();
+		}
+		out.flush();
+	}
+
+	/**
+	 * writes the remaining values and the end of the series, and closes the stream
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (blockSize > 0) {
+				writeBlock();
+			}
+			SeriesCodec.writeEnd(out);
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import java.util.Arrays;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * off-screen bitmap for the parts of a view that rarely change (grid, labels, title).
+ * The bitmap is redrawn if the size or the labels change, or if it was invalidated.
+ */
+final class LayerCache {
+	private Bitmap bitmap;
+	private final Canvas canvas = new Canvas();
+	private boolean valid;
+	private String[] labelsA;
+	private String[] labelsB;
+
+	/**
+	 * @return true if the bitmap has to be redrawn with {@link #beginUpdate(int, int, String[], String[])}
+	 */
+	boolean needsUpdate(int width, int height, String[] labelsA, String[] labelsB) {
+		return !valid || bitmap == null
+				|| bitmap.getWidth() != width || bitmap.getHeight() != height
+				|| !Arrays.equals(this.labelsA, labelsA) || !Arrays.equals(this.labelsB, labelsB);
+	}
+
+	/**
+	 * clears the bitmap
+	 * @return canvas to draw the layer to
+	 */
+	Canvas beginUpdate(int width, int height, String[] labelsA, String[] labelsB) {
+		if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+			release();
+			bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			canvas.setBitmap(bitmap);
+		} else {
+			bitmap.eraseColor(Color.TRANSPARENT);
+		}
+		this.labelsA = copy(labelsA, this.labelsA);
+		this.labelsB = copy(labelsB, this.labelsB);
+		valid = true;
+		return canvas;
+	}
+
+	/**
+	 * @return a copy of labels, in target if it has the same length
+	 */
+	private static String[] copy(String[] labels, String[] target) {
+		if (labels == null) {
+			return null;
+		}
+		if (target == null || target.length != labels.length) {
+			return labels.clone();
+		}
+		System.arraycopy(labels, 0, target, 0, labels.length);
+		return target;
+	}
+
+	void draw(Canvas canvas) {
+		canvas.drawBitmap(bitmap, 0, 0, null);
+	}
+
+	/**
+	 * the bitmap will be redrawn for the next frame
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * frees the bitmap
+	 */
+	void release() {
+		if (bitmap != null) {
+			bitmap.recycle();
+			bitmap = null;
+		}
+		valid = false;
+	}
+}
@@ -21,9 +21,6 @@ package com.jjoe64.graphview;
 
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Path;
 import android.util.AttributeSet;
 
 import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
@@ -32,110 +29,81 @@ import com.jjoe64.graphview.GraphViewSeries.GraphViewSeriesStyle;
  * Line Graph View. This draws a line chart.
  */
 public class LineGraphView extends GraphView {
-	private final Paint paintBackground;
-	private boolean drawBackground;
-	private boolean drawDataPoints;
-	private float dataPointsRadius = 10f;
+	/**
+	 * how the values are reduced before they are drawn
+	 */
+	public enum Downsampling {
+		/**
+		 * every value is drawn
+		 */
+		NONE,
+		/**
+		 * Largest-Triangle-Three-Buckets, keeps the visual shape and the extremes
+		 */
+		LTTB,
+		/**
+		 * first, last, min and max value per pixel column.
+		 * Looks exactly like drawing all values, spikes never disappear.
+		 */
+		M4
+	}
+
+	private final LineSeriesRenderer renderer = new LineSeriesRenderer();
+	private Downsampling downsampling = Downsampling.NONE;
 
 	public LineGraphView(Context context, AttributeSet attrs) {
 		super(context, attrs);
-
-		paintBackground = new Paint();
-		paintBackground.setColor(Color.rgb(20, 40, 60));
-		paintBackground.setStrokeWidth(4);
-		paintBackground.setAlpha(128);
 	}
 
 	public LineGraphView(Context context, String title) {
 		super(context, title);
-
-		paintBackground = new Paint();
-		paintBackground.setColor(Color.rgb(20, 40, 60));
-		paintBackground.setStrokeWidth(4);
-		paintBackground.setAlpha(128);
 	}
 
 	@Override
-	public void drawSeries(Canvas canvas, GraphViewDataInterface[] values, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
-		// draw background
-		double lastEndY = 0;
-		double lastEndX = 0;
-
-		// draw data
-		paint.setStrokeWidth(style.thickness);
-		paint.setColor(style.color);
-
-
-		Path bgPath = null;
-		if (drawBackground) {
-			bgPath = new Path();
-		}
-
-		lastEndY = 0;
-		lastEndX = 0;
-		float firstX = 0;
-		for (int i = 0; i < values.length; i++) {
-			double valY = values[i].getY() - minY;
-			double ratY = valY / diffY;
-			double y = graphheight * ratY;
-
-			double valX = values[i].getX() - minX;
-			double ratX = valX / diffX;
-			double x = graphwidth * ratX;
-
-			if (i > 0) {
-				float startX = (float) lastEndX + (horstart + 1);
-				float startY = (float) (border - lastEndY) + graphheight;
-				float endX = (float) x + (horstart + 1);
-				float endY = (float) (border - y) + graphheight;
-
-				// draw data point
-				if (drawDataPoints) {
-					//fix: last value was not drawn. Draw here now the end values
-					canvas.drawCircle(endX, endY, dataPointsRadius, paint);
-				}
-
-				canvas.drawLine(startX, startY, endX, endY, paint);
-				if (bgPath != null) {
-					if (i==1) {
-						firstX = startX;
-						bgPath.moveTo(startX, startY);
-					}
-					bgPath.lineTo(endX, endY);
-				}
-			} else if (drawDataPoints) {
-				//fix: last value not drawn as datapoint. Draw first point here, and then on every step the end values (above)
-				float first_X = (float) x + (horstart + 1);
-				float first_Y = (float) (border - y) + graphheight;
-				canvas.drawCircle(first_X, first_Y, dataPointsRadius, paint);
-			}
-			lastEndY = y;
-			lastEndX = x;
-		}
+	public void drawSeries(Canvas canvas, double[] valuesX, double[] valuesY, int from, int to, float graphwidth, float graphheight, float border, double minX, double minY, double diffX, double diffY, float horstart, GraphViewSeriesStyle style) {
+		renderer.draw(canvasBackend.setCanvas(canvas), valuesX, valuesY, from, to, graphwidth, graphheight, border, minX, minY, diffX, diffY, horstart, style.color, style.thickness);
+	}
 
-		if (bgPath != null) {
-			// end / close path
-			bgPath.lineTo((float) lastEndX, graphheight + border);
-			bgPath.lineTo(firstX, graphheight + border);
-			bgPath.close();
-			canvas.drawPath(bgPath, paintBackground);
-		}
+	/**
+	 * every line segment only depends on its two values, so new values can be drawn
+	 * on top of the already drawn line.
+	 */
+	@Override
+	protected boolean isIncrementalDrawingSupported() {
+		return true;
 	}
 
 	public int getBackgroundColor() {
-		return paintBackground.getColor();
+		return renderer.backgroundColor;
 	}
 
 	public float getDataPointsRadius() {
-		return dataPointsRadius;
+		return renderer.dataPointsRadius;
 	}
 
 	public boolean getDrawBackground() {
-		return drawBackground;
+		return renderer.drawBackground;
 	}
 
 	public boolean getDrawDataPoints() {
-		return drawDataPoints;
+		return renderer.drawDataPoints;
+	}
+
+	/**
+	 * @return the number of values that were drawn for the last series.
+	 * If downsampling is active, this is smaller than the number of visible values.
+	 */
+	@Override
+	public int getDrawnPointsCount() {
+		return renderer.drawnPointsCount;
+	}
+
+	public Downsampling getDownsampling() {
+		return downsampling;
+	}
+
+	public int getDownsamplingTarget() {
+		return renderer.downsamplingTarget;
 	}
 
 	/**
@@ -145,7 +113,7 @@ public class LineGraphView extends GraphView {
 	 */
 	@Override
 	public void setBackgroundColor(int color) {
-		paintBackground.setColor(color);
+		renderer.backgroundColor = color;
 	}
 
 	/**
@@ -154,7 +122,7 @@ public class LineGraphView extends GraphView {
 	 * @param dataPointsRadius
 	 */
 	public void setDataPointsRadius(float dataPointsRadius) {
-		this.dataPointsRadius = dataPointsRadius;
+		renderer.dataPointsRadius = dataPointsRadius;
 	}
 
 	/**
@@ -162,7 +130,35 @@ public class LineGraphView extends GraphView {
 	 * @see #setBackgroundColor(int)
 	 */
 	public void setDrawBackground(boolean drawBackground) {
-		this.drawBackground = drawBackground;
+		renderer.drawBackground = drawBackground;
+	}
+
+	/**
+	 * reduces the visible values before they are drawn.
+	 * This is useful if there are a lot more values than pixels.
+	 * @see #setDownsamplingTarget(int)
+	 * @param downsampling
+	 */
+	public void setDownsampling(Downsampling downsampling) {
+		this.downsampling = downsampling;
+		switch (downsampling) {
+		case LTTB:
+			renderer.downsampling = LineSeriesRenderer.DOWNSAMPLING_LTTB;
+			break;
+		case M4:
+			renderer.downsampling = LineSeriesRenderer.DOWNSAMPLING_M4;
+			break;
+		default:
+			renderer.downsampling = LineSeriesRenderer.DOWNSAMPLING_NONE;
+		}
+	}
+
+	/**
+	 * @param downsamplingTarget number of values to draw per series, if {@link Downsampling#LTTB} is active. 0 = auto (2 values per pixel)
+	 * @see #setDownsampling(Downsampling)
+	 */
+	public void setDownsamplingTarget(int downsamplingTarget) {
+		renderer.downsamplingTarget = downsamplingTarget;
 	}
 
 	/**
@@ -171,7 +167,7 @@ public class LineGraphView extends GraphView {
 	 * @param drawDataPoints
 	 */
 	public void setDrawDataPoints(boolean drawDataPoints) {
-		this.drawDataPoints = drawDataPoints;
+		renderer.drawDataPoints = drawDataPoints;
 	}
 
 }
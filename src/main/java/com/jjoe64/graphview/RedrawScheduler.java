@@ -0,0 +1,133 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.jjoe64.graphview.compatible.FrameCallbackScheduler;
+
+/**
+ * merges all redraw requests until the next display frame into one.
+ * Uses the Choreographer since API 16, before that a Handler of the UI thread.
+ * Requests can come from any thread, the graph is always updated on the UI thread.
+ */
+final class RedrawScheduler implements Runnable {
+	/**
+	 * data or styles changed, the labels and caches have to be rebuilt
+	 */
+	static final int REDRAW_ALL = 1;
+	/**
+	 * new data, the viewport has to be moved to the end
+	 */
+	static final int SCROLL_TO_END = 2;
+
+	private final GraphView graphView;
+	private final Handler handler;
+	private final FrameCallbackScheduler frameCallbackScheduler;
+	private int pendingChanges;
+	private boolean scheduled;
+	private long minFrameInterval;
+	private long lastFrameTime;
+
+	/**
+	 * has to be created on the UI thread
+	 */
+	RedrawScheduler(GraphView graphView) {
+		this.graphView = graphView;
+		if (Build.VERSION.SDK_INT >= 16) {
+			handler = null;
+			frameCallbackScheduler = new FrameCallbackScheduler(this);
+		} else {
+			handler = new Handler(Looper.getMainLooper());
+			frameCallbackScheduler = null;
+		}
+	}
+
+	/**
+	 * @param changes {@link #REDRAW_ALL} and/or {@link #SCROLL_TO_END}
+	 */
+	synchronized void request(int changes) {
+		pendingChanges |= changes;
+		if (!scheduled) {
+			scheduled = true;
+			schedule(0);
+		}
+	}
+
+	/**
+	 * @param maxFrameRate frames per second, 0 = as fast as the display
+	 */
+	synchronized void setMaxFrameRate(float maxFrameRate) {
+		minFrameInterval = maxFrameRate > 0 ? (long) (1000 / maxFrameRate) : 0;
+	}
+
+	/**
+	 * stops the scheduled frame
+	 * @return the changes that were not applied yet
+	 */
+	synchronized int cancel() {
+		if (frameCallbackScheduler != null) {
+			frameCallbackScheduler.cancel();
+		} else {
+			handler.removeCallbacks(this);
+		}
+		int changes = pendingChanges;
+		pendingChanges = 0;
+		scheduled = false;
+		return changes;
+	}
+
+	/**
+	 * called at the frame, on the UI thread
+	 */
+	@Override
+	public void run() {
+		int changes;
+		synchronized (this) {
+			if (!scheduled) {
+				return;
+			}
+			long now = SystemClock.uptimeMillis();
+			long wait = lastFrameTime + minFrameInterval - now;
+			if (wait > 0) {
+				// max frame rate
+				schedule(wait);
+				return;
+			}
+			lastFrameTime = now;
+			changes = pendingChanges;
+			pendingChanges = 0;
+			scheduled = false;
+		}
+		graphView.performRedraw(changes);
+	}
+
+	private void schedule(long delayMillis) {
+		if (frameCallbackScheduler != null) {
+			frameCallbackScheduler.schedule(delayMillis);
+		} else {
+			handler.postDelayed(this, delayMillis);
+		}
+	}
+}
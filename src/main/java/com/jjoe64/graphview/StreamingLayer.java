@@ -0,0 +1,129 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+package com.jjoe64.graphview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * off-screen bitmap with the drawn series, for incremental drawing of real time graphs.
+ * If the graph scrolls, the bitmap is shifted to the left and only the new values are drawn.
+ * Two bitmaps are used, because a bitmap can't be drawn to itself.
+ */
+final class StreamingLayer {
+	private Bitmap front;
+	private Bitmap back;
+	private final Canvas frontCanvas = new Canvas();
+	private final Canvas backCanvas = new Canvas();
+	private boolean valid;
+
+	/**
+	 * geometry that was used to draw the bitmap
+	 */
+	double minX;
+	double diffX;
+	double minY;
+	double diffY;
+	float graphwidth;
+	float graphheight;
+	float border;
+	/**
+	 * per series: the x value of the last drawn value and the smallest x value of the series
+	 */
+	double[] lastDrawnX = new double[0];
+	double[] firstX = new double[0];
+
+	/**
+	 * @return true if the bitmap has the size and can be drawn incrementally
+	 */
+	boolean isValid(int width, int height, int seriesCount) {
+		return valid && front != null
+				&& front.getWidth() == width && front.getHeight() == height
+				&& lastDrawnX.length == seriesCount;
+	}
+
+	/**
+	 * clears the bitmap, for a full redraw
+	 * @return canvas to draw the series to
+	 */
+	Canvas beginFull(int width, int height, int seriesCount) {
+		if (front == null || front.getWidth() != width || front.getHeight() != height) {
+			release();
+			front = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			back = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			frontCanvas.setBitmap(front);
+			backCanvas.setBitmap(back);
+		} else {
+			front.eraseColor(Color.TRANSPARENT);
+		}
+		if (lastDrawnX.length != seriesCount) {
+			lastDrawnX = new double[seriesCount];
+			firstX = new double[seriesCount];
+		}
+		valid = true;
+		return frontCanvas;
+	}
+
+	/**
+	 * shifts the content to the left. The exposed area on the right is transparent.
+	 * @param pixels >= 0
+	 * @return canvas to draw the new values to
+	 */
+	Canvas beginShift(int pixels) {
+		if (pixels == 0) {
+			return frontCanvas;
+		}
+		back.eraseColor(Color.TRANSPARENT);
+		backCanvas.drawBitmap(front, -pixels, 0, null);
+
+		// swap
+		Bitmap bitmap = front;
+		front = back;
+		back = bitmap;
+		frontCanvas.setBitmap(front);
+		backCanvas.setBitmap(back);
+		return frontCanvas;
+	}
+
+	void draw(Canvas canvas) {
+		canvas.drawBitmap(front, 0, 0, null);
+	}
+
+	/**
+	 * the series will be completely redrawn for the next frame
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * frees the bitmaps
+	 */
+	void release() {
+		if (front != null) {
+			front.recycle();
+			back.recycle();
+			front = null;
+			back = null;
+		}
+		valid = false;
+	}
+}
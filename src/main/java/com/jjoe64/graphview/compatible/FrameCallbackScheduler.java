@@ -0,0 +1,60 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview.compatible;
+
+import android.annotation.SuppressLint;
+import android.view.Choreographer;
+
+/**
+ * calls a runnable at the next display frame.
+ * Only available since API 16, check the version before using this class.
+ */
+@SuppressLint("NewApi")
+public class FrameCallbackScheduler implements Choreographer.FrameCallback {
+	private final Choreographer choreographer;
+	private final Runnable runnable;
+
+	/**
+	 * has to be created on a thread with a looper, normally the UI thread
+	 * @param runnable will be called on the UI thread
+	 */
+	public FrameCallbackScheduler(Runnable runnable) {
+		this.choreographer = Choreographer.getInstance();
+		this.runnable = runnable;
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		runnable.run();
+	}
+
+	/**
+	 * can be called from any thread
+	 * @param delayMillis 0 = next frame
+	 */
+	public void schedule(long delayMillis) {
+		choreographer.postFrameCallbackDelayed(this, delayMillis);
+	}
+
+	public void cancel() {
+		choreographer.removeFrameCallback(this);
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * This file is part of GraphView.
+ *
+ * GraphView is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GraphView is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with GraphView.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ *
+ * Copyright Jonas Gehring
+ */
+
+
+package com.jjoe64.graphview.compatible;
+
+import android.annotation.SuppressLint;
+import android.os.Trace;
+
+/**
+ * sections in the system trace (systrace, perfetto).
+ * Only available since API 18, check the version before using this class.
+ */
+@SuppressLint("NewApi")
+public class SystemTrace {
+	/**
+	 * longer names are not allowed by the system
+	 */
+	private static final int MAX_NAME_LENGTH = 127;
+
+	private SystemTrace() {
+	}
+
+	/**
+	 * @param name is cut to 127 characters
+	 */
+	public static void beginSection(String name) {
+		if (name.length() > MAX_NAME_LENGTH) {
+			name = name.substring(0, MAX_NAME_LENGTH);
+		}
+		Trace.beginSection(name);
+	}
+
+	/**
+	 * ends the last section that was begun on this thread
+	 */
+	public static void endSection() {
+		Trace.endSection();
+	}
+}